@@ -0,0 +1,167 @@
+package org.jboss.maven.plugins;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.model.Dependency;
+import org.jboss.maven.plugins.benchmark.SyntheticData;
+import org.jboss.maven.plugins.dependency.DeclaredDependencies;
+import org.jboss.maven.plugins.dependency.MavenDependency;
+import org.jboss.maven.plugins.dependency.RelocationMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs each check of {@link DependencyChecker} over all dependencies of a synthetic project
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CheckerBenchmark {
+
+    @State(Scope.Thread)
+    public static class Project {
+
+        @Param({ "10", "1000", "10000" })
+        public int dependencies;
+
+        List<Dependency> dependencyList;
+
+        DeclaredDependencies declaredDependencies;
+
+        DependencyChecker checker;
+
+        @Setup
+        public void setup() {
+            dependencyList = SyntheticData.dependencies(dependencies);
+            declaredDependencies = new DeclaredDependencies(SyntheticData.model(dependencyList));
+            checker = newChecker(null, declaredDependencies, Collections.<String> emptyList());
+        }
+
+    }
+
+    @State(Scope.Thread)
+    public static class Relocations {
+
+        @Param({ "bundled", "500", "5000" })
+        public String relocations;
+
+        DependencyChecker checker;
+
+        @Setup
+        public void setup(Project project) throws IOException {
+            RelocationMatcher matcher = RelocationMatcher.compile(SyntheticData.relocations(relocations));
+            checker = newChecker(new CheckerResources(matcher, null), project.declaredDependencies,
+                    Collections.<String> emptyList());
+        }
+
+    }
+
+    @State(Scope.Thread)
+    public static class Excludes {
+
+        @Param({ "10", "1000" })
+        public int excludes;
+
+        DependencyChecker checker;
+
+        @Setup
+        public void setup(Project project) {
+            checker = newChecker(null, project.declaredDependencies,
+                    SyntheticData.excludes(project.dependencyList, excludes));
+        }
+
+    }
+
+    @Benchmark
+    public int checkNoRedHatRelease(Project project) {
+        for (Dependency dependency : project.dependencyList) {
+            project.checker.checkNoRedHatRelease(dependency);
+        }
+        return drainIssues(project.checker);
+    }
+
+    @Benchmark
+    public int checkRelocateDependency(Project project, Relocations relocations) {
+        for (Dependency dependency : project.dependencyList) {
+            relocations.checker.checkRelocateDependency(dependency);
+        }
+        return drainIssues(relocations.checker);
+    }
+
+    @Benchmark
+    public int hasDeclaredVersion(Project project) {
+        int declared = 0;
+        for (Dependency dependency : project.dependencyList) {
+            MavenDependency mvnDependency = new MavenDependency(dependency.getGroupId(), dependency.getArtifactId());
+            if (project.declaredDependencies.hasDeclaredVersion(mvnDependency)) {
+                declared++;
+            }
+        }
+        return declared;
+    }
+
+    @Benchmark
+    public int isExcludedDependency(Project project, Excludes excludes) {
+        int excluded = 0;
+        for (Dependency dependency : project.dependencyList) {
+            if (excludes.checker.isExcludedDependency(dependency)) {
+                excluded++;
+            }
+        }
+        return excluded;
+    }
+
+    private static DependencyChecker newChecker(CheckerResources resources,
+            DeclaredDependencies declaredDependencies, List<String> excludes) {
+        DependencyChecker checker = new DependencyChecker(resources, declaredDependencies, excludes);
+        checker.setLog(SyntheticData.quietLog());
+        return checker;
+    }
+
+    /**
+     * Clears the issues found by the last invocation, so they don't pile up between invocations
+     */
+    private static int drainIssues(DependencyChecker checker) {
+        int issues = checker.getNonConformantDependencies().size();
+        checker.getNonConformantDependencies().clear();
+        return issues;
+    }
+
+}
@@ -0,0 +1,116 @@
+package org.jboss.maven.plugins.benchmark;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.util.FileUtils;
+import org.jboss.jdf.stacks.model.BomVersion;
+import org.jboss.maven.plugins.bom.BomIndex;
+import org.jboss.maven.plugins.bom.BomIndexBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds the BOM index from synthetic BOM POMs (and their parents) and queries it
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BomIndexBenchmark {
+
+    private static final int PARENT_DEPTH = 3;
+
+    @Param({ "1", "20" })
+    public int boms;
+
+    @Param({ "10", "1000", "10000" })
+    public int managedDependencies;
+
+    @Param({ "1", "4" })
+    public int threads;
+
+    private File repository;
+
+    private List<BomVersion> bomVersions;
+
+    private BomIndex index;
+
+    private List<Dependency> dependencies;
+
+    @Setup
+    public void setup() throws IOException, MojoExecutionException {
+        repository = File.createTempFile("bom-benchmark", "");
+        repository.delete();
+        bomVersions = SyntheticData.writeBoms(repository, boms, managedDependencies, PARENT_DEPTH);
+        index = buildIndex();
+        dependencies = SyntheticData.dependencies(managedDependencies);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(repository);
+    }
+
+    @Benchmark
+    public BomIndex build() throws MojoExecutionException {
+        return buildIndex();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int isManaged() {
+        int managed = 0;
+        for (Dependency dependency : dependencies) {
+            if (index.isManaged(dependency.getGroupId(), dependency.getArtifactId())) {
+                managed++;
+            }
+        }
+        return managed;
+    }
+
+    private BomIndex buildIndex() throws MojoExecutionException {
+        return new BomIndexBuilder(new DirectoryPomResolver(repository), SyntheticData.quietLog(), threads)
+                .build(bomVersions);
+    }
+
+}
@@ -0,0 +1,61 @@
+package org.jboss.maven.plugins.benchmark;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+
+import org.jboss.maven.plugins.bom.PomResolver;
+
+/**
+ * Resolves POMs from a directory with the local repository layout, without any Maven session
+ *
+ */
+public class DirectoryPomResolver implements PomResolver {
+
+    private File basedir;
+
+    /**
+     * @param basedir
+     */
+    public DirectoryPomResolver(File basedir) {
+        this.basedir = basedir;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.bom.PomResolver#resolvePom(java.lang.String, java.lang.String, java.lang.String)
+     */
+    public File resolvePom(String groupId, String artifactId, String version) {
+        return pathOf(basedir, groupId, artifactId, version);
+    }
+
+    /**
+     * @return where the given POM is stored inside basedir
+     */
+    static File pathOf(File basedir, String groupId, String artifactId, String version) {
+        File directory = new File(basedir, groupId.replace('.', '/') + "/" + artifactId + "/" + version);
+        return new File(directory, artifactId + "-" + version + ".pom");
+    }
+
+}
@@ -0,0 +1,218 @@
+package org.jboss.maven.plugins.benchmark;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.monitor.logging.DefaultLog;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.jboss.jdf.stacks.model.Bom;
+import org.jboss.jdf.stacks.model.BomVersion;
+
+/**
+ * Synthetic projects, relocation tables and BOMs used by the benchmarks. Everything is generated, so the benchmarks
+ * run without network access or a Maven repository.
+ *
+ */
+public class SyntheticData {
+
+    private static final String[] GROUP_PREFIXES = { "org.hibernate", "org.jboss.spec", "org.apache.commons",
+            "org.richfaces", "com.example" };
+
+    private static final String SYNTHETIC_GROUP = "org.jboss.synthetic";
+
+    /**
+     * Every 10th dependency is one of the relocated ones and every 3rd one is a Red Hat release
+     *
+     * @param count
+     * @return the project dependencies
+     */
+    public static List<Dependency> dependencies(int count) {
+        List<Dependency> dependencies = new ArrayList<Dependency>(count);
+        for (int i = 0; i < count; i++) {
+            Dependency dependency = new Dependency();
+            dependency.setGroupId(GROUP_PREFIXES[i % GROUP_PREFIXES.length] + ".module" + (i % 97));
+            dependency.setArtifactId(i % 10 == 0 ? "relocated-lib" + i : "artifact-" + i);
+            dependency.setVersion(i % 3 == 0 ? "1." + i + ".0.Final-redhat-1" : "1." + i + ".0.Final");
+            dependencies.add(dependency);
+        }
+        return dependencies;
+    }
+
+    /**
+     * Only half of the dependencies declare a version on the model: the other half is managed by a BOM
+     *
+     * @param dependencies
+     * @return the model of a project declaring the given dependencies
+     */
+    public static Model model(List<Dependency> dependencies) {
+        Model model = new Model();
+        model.setGroupId(SYNTHETIC_GROUP);
+        model.setArtifactId("synthetic-project");
+        model.setVersion("1.0");
+        for (int i = 0; i < dependencies.size(); i++) {
+            Dependency dependency = dependencies.get(i).clone();
+            if (i % 2 == 1) {
+                dependency.setVersion(null);
+            }
+            model.addDependency(dependency);
+        }
+        return model;
+    }
+
+    /**
+     * @param size the number of relocations or "bundled" for the relocation table shipped with the plugin
+     * @return the relocation table
+     * @throws IOException
+     */
+    public static Properties relocations(String size) throws IOException {
+        Properties relocations = new Properties();
+        if ("bundled".equals(size)) {
+            InputStream in = SyntheticData.class.getResourceAsStream("/mavenrelocated.properties");
+            try {
+                relocations.load(in);
+            } finally {
+                in.close();
+            }
+            return relocations;
+        }
+        for (int i = 0; i < Integer.parseInt(size); i++) {
+            relocations.setProperty("relocated-lib" + i, String.format(
+                    "%s:relocated-lib%d-api:1.0.0.Final-redhat-1|%s:relocated-lib%d-impl:1.0.0.Final-redhat-1",
+                    SYNTHETIC_GROUP, i, SYNTHETIC_GROUP, i));
+        }
+        return relocations;
+    }
+
+    /**
+     * Picks every n-th dependency, so only part of the exclusions match
+     *
+     * @param dependencies
+     * @param count
+     * @return the exclude list (groupId:artifactId)
+     */
+    public static List<String> excludes(List<Dependency> dependencies, int count) {
+        List<String> excludes = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 0 && i < dependencies.size()) {
+                Dependency dependency = dependencies.get(i * 7 % dependencies.size());
+                excludes.add(dependency.getGroupId() + ":" + dependency.getArtifactId());
+            } else {
+                excludes.add(SYNTHETIC_GROUP + ".excluded:excluded-" + i);
+            }
+        }
+        return excludes;
+    }
+
+    /**
+     * Writes the BOM POMs on the local repository layout. All BOMs share the same parent chain (like the jboss BOMs
+     * share jboss-parent) and each BOM manages half of the dependencies of the previous one.
+     *
+     * @param basedir
+     * @param bomCount
+     * @param managedPerBom the number of dependencies managed by each BOM
+     * @param parentDepth the number of parent POMs above each BOM
+     * @return the BOMs
+     * @throws IOException
+     */
+    public static List<BomVersion> writeBoms(File basedir, int bomCount, int managedPerBom, int parentDepth)
+            throws IOException {
+        String parentVersion = "1.0";
+        for (int depth = 0; depth < parentDepth; depth++) {
+            String parent = depth == 0 ? null : "synthetic-parent" + (depth - 1);
+            writePom(basedir, "synthetic-parent" + depth, parentVersion, parent, depth * 100, 100);
+        }
+        String lastParent = parentDepth == 0 ? null : "synthetic-parent" + (parentDepth - 1);
+        List<BomVersion> boms = new ArrayList<BomVersion>(bomCount);
+        for (int i = 0; i < bomCount; i++) {
+            String artifactId = "synthetic-bom" + i;
+            writePom(basedir, artifactId, "1.0.0.Final", lastParent, 10000 + i * managedPerBom / 2, managedPerBom);
+            Bom bom = new Bom();
+            bom.setId(artifactId);
+            bom.setName(artifactId);
+            bom.setGroupId(SYNTHETIC_GROUP);
+            bom.setArtifactId(artifactId);
+            bom.setRecommendedVersion("1.0.0.Final");
+            BomVersion bomVersion = new BomVersion();
+            bomVersion.setId(artifactId + "-1.0.0.Final");
+            bomVersion.setBom(bom);
+            bomVersion.setVersion("1.0.0.Final");
+            boms.add(bomVersion);
+        }
+        return boms;
+    }
+
+    /**
+     * @return a log that discards everything, so the benchmarks don't measure the console
+     */
+    public static Log quietLog() {
+        return new DefaultLog(new ConsoleLogger(Logger.LEVEL_DISABLED, "benchmark"));
+    }
+
+    private static void writePom(File basedir, String artifactId, String version, String parent, int firstManaged,
+            int managedCount) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n");
+        sb.append("  <modelVersion>4.0.0</modelVersion>\n");
+        if (parent != null) {
+            sb.append("  <parent>\n");
+            sb.append("    <groupId>").append(SYNTHETIC_GROUP).append("</groupId>\n");
+            sb.append("    <artifactId>").append(parent).append("</artifactId>\n");
+            sb.append("    <version>1.0</version>\n");
+            sb.append("  </parent>\n");
+        }
+        sb.append("  <groupId>").append(SYNTHETIC_GROUP).append("</groupId>\n");
+        sb.append("  <artifactId>").append(artifactId).append("</artifactId>\n");
+        sb.append("  <version>").append(version).append("</version>\n");
+        sb.append("  <packaging>pom</packaging>\n");
+        sb.append("  <dependencyManagement>\n    <dependencies>\n");
+        for (int i = firstManaged; i < firstManaged + managedCount; i++) {
+            sb.append("      <dependency>\n");
+            sb.append("        <groupId>").append(GROUP_PREFIXES[i % GROUP_PREFIXES.length]).append(".module")
+                    .append(i % 97).append("</groupId>\n");
+            sb.append("        <artifactId>artifact-").append(i).append("</artifactId>\n");
+            sb.append("        <version>1.").append(i).append(".0.Final-redhat-1</version>\n");
+            sb.append("      </dependency>\n");
+        }
+        sb.append("    </dependencies>\n  </dependencyManagement>\n</project>\n");
+        File pom = DirectoryPomResolver.pathOf(basedir, SYNTHETIC_GROUP, artifactId, version);
+        pom.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter(pom);
+        try {
+            writer.write(sb.toString());
+        } finally {
+            writer.close();
+        }
+    }
+
+}
@@ -0,0 +1,200 @@
+package org.jboss.maven.plugins;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.settings.Proxy;
+import org.jboss.jdf.stacks.model.BomVersion;
+import org.jboss.maven.plugins.bom.BomIndex;
+import org.jboss.maven.plugins.bom.BomIndexBuilder;
+import org.jboss.maven.plugins.bom.BomIndexCache;
+import org.jboss.maven.plugins.bom.LazyBomIndex;
+import org.jboss.maven.plugins.bom.PomResolver;
+import org.jboss.maven.plugins.stacks.MavenStacksConfiguration;
+import org.jboss.maven.plugins.stacks.MavenStacksMessages;
+import org.jboss.maven.plugins.stacks.StacksSnapshot;
+import org.jboss.maven.plugins.util.Fingerprint;
+import org.jboss.maven.plugins.util.Metrics;
+
+/**
+ * Lists the BOMs from the stacks descriptor and loads their index, from the cache on the local repository when it is
+ * still valid.
+ *
+ */
+public class BomIndexLoader {
+
+    /**
+     * Location of the stacks descriptor snapshot, relative to the local repository
+     */
+    public static final String STACKS_SNAPSHOT_DIRECTORY = ".cache/dependency-checker/stacks";
+
+    private MavenStacksConfiguration stacksConfiguration;
+
+    private PomResolver pomResolver;
+
+    private BomIndexCache cache;
+
+    private boolean useCache;
+
+    private int resolverThreads;
+
+    private Log log;
+
+    private Metrics metrics;
+
+    /**
+     * @param stacksConfiguration
+     * @param pomResolver
+     * @param localRepositoryDirectory where the BOM index cache is kept
+     * @param useCache reuses the cached BOM index
+     * @param resolverThreads the number of BOMs resolved at the same time
+     * @param log
+     * @param metrics
+     */
+    public BomIndexLoader(MavenStacksConfiguration stacksConfiguration, PomResolver pomResolver,
+            File localRepositoryDirectory, boolean useCache, int resolverThreads, Log log, Metrics metrics) {
+        this.stacksConfiguration = stacksConfiguration;
+        this.pomResolver = pomResolver;
+        this.cache = new BomIndexCache(new File(localRepositoryDirectory, BomIndexCache.CACHE_FILE), log);
+        this.useCache = useCache;
+        this.resolverThreads = resolverThreads;
+        this.log = log;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param proxy may be null
+     * @param online
+     * @param localRepositoryDirectory where the stacks descriptor snapshot is kept
+     * @param snapshotTtlSeconds
+     * @param stacksUrl uses the jdf-stacks default when null
+     * @return the stacks-client configuration
+     * @throws MojoExecutionException if the URL is invalid
+     */
+    public static MavenStacksConfiguration newStacksConfiguration(Proxy proxy, boolean online,
+            File localRepositoryDirectory, int snapshotTtlSeconds, String stacksUrl) throws MojoExecutionException {
+        MavenStacksConfiguration stacksConfiguration = new MavenStacksConfiguration(proxy);
+        stacksConfiguration.setOnline(online);
+        stacksConfiguration.setSnapshotDirectory(new File(localRepositoryDirectory, STACKS_SNAPSHOT_DIRECTORY));
+        stacksConfiguration.setSnapshotTtlSeconds(snapshotTtlSeconds);
+        if (stacksUrl != null) {
+            try {
+                stacksConfiguration.setUrl(new URL(stacksUrl));
+            } catch (MalformedURLException e) {
+                throw new MojoExecutionException("Invalid stacks URL " + stacksUrl, e);
+            }
+        }
+        return stacksConfiguration;
+    }
+
+    /**
+     * Uses stacks-client to query all available BOMs
+     *
+     * @return all BOMs listed on the stacks descriptor
+     */
+    public List<BomVersion> fetchBomVersions() {
+        StacksSnapshot snapshot = new StacksSnapshot(stacksConfiguration, new MavenStacksMessages(log), metrics);
+        long start = System.nanoTime();
+        List<BomVersion> boms = snapshot.getAvailableBomVersions();
+        metrics.time("stacks.fetch", start);
+        metrics.add("boms.listed", boms.size());
+        return boms;
+    }
+
+    /**
+     * @param boms all available BOMs
+     * @return the identity of the given BOMs, from the size and modification date of their POMs
+     */
+    public String computeBomsIdentity(List<BomVersion> boms) {
+        return BomIndexCache.computeIdentity(boms, pomResolver);
+    }
+
+    /**
+     * Identifies the BOM index {@link #load(List)} would return without loading it: by the stacks descriptor snapshot
+     * the BOMs are listed from and by the cached index
+     *
+     * @return the fingerprint or null if it can't be told without loading the index: the cache isn't used or is
+     *         missing, or the snapshot is missing or due for a refresh
+     */
+    public String computeIndexFingerprint() {
+        if (!useCache) {
+            return null;
+        }
+        String snapshot = new StacksSnapshot(stacksConfiguration, new MavenStacksMessages(log), metrics)
+                .getFingerprint();
+        if (snapshot == null) {
+            return null;
+        }
+        String cacheIdentity = cache.getIdentity();
+        if (cacheIdentity == null) {
+            return null;
+        }
+        return new Fingerprint().add(snapshot).add(cacheIdentity).digestHex();
+    }
+
+    /**
+     * Reuses the BOM index cached on the local repository or starts building (and caching) a new one. The cache is
+     * looked up by the BOMs listed, and validated by the POMs it was built from, so no BOM is resolved before the
+     * concurrent build starts.
+     *
+     * @param boms all available BOMs
+     * @return the index of all managed Dependencies
+     */
+    public LazyBomIndex load(List<BomVersion> boms) {
+        final String cacheKey = useCache ? BomIndexCache.computeKey(boms) : null;
+        if (cacheKey != null) {
+            long start = System.nanoTime();
+            BomIndex cachedIndex = cache.load(cacheKey, boms, pomResolver);
+            metrics.time("bomIndex.cacheLoad", start);
+            if (cachedIndex != null) {
+                log.debug("Using cached BOM index");
+                metrics.increment("bomIndex.cacheHits");
+                return LazyBomIndex.of(cachedIndex);
+            }
+            metrics.increment("bomIndex.cacheMisses");
+        }
+        final long start = System.nanoTime();
+        final BomIndexBuilder builder = new BomIndexBuilder(pomResolver, log, resolverThreads, metrics);
+        return builder.start(boms, new LazyBomIndex.Listener() {
+
+            public void built(BomIndex index) {
+                metrics.time("bomIndex.build", start);
+                metrics.add("bomIndex.entries", index.size());
+                if (cacheKey != null) {
+                    try {
+                        cache.store(cacheKey, index, builder.getSourcePoms(), builder.getMissingPoms());
+                    } catch (Exception e) {
+                        log.warn("Can't write the BOM index cache: " + e.getMessage());
+                    }
+                }
+            }
+        });
+    }
+
+}
@@ -0,0 +1,169 @@
+package org.jboss.maven.plugins;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+import org.apache.maven.repository.RepositorySystem;
+import org.apache.maven.settings.Proxy;
+import org.jboss.maven.plugins.bom.BomIndex;
+import org.jboss.maven.plugins.bom.BomIndexFile;
+import org.jboss.maven.plugins.bom.RepositoryPomResolver;
+import org.jboss.maven.plugins.dependency.RelocationMatcher;
+import org.jboss.maven.plugins.stacks.MavenStacksConfiguration;
+import org.jboss.maven.plugins.util.Metrics;
+
+/**
+ * Builds the BOM index of every BOM listed on the stacks descriptor and writes it, with the relocation table, to a
+ * single file that is attached to the project. Once deployed, the check goal can use it (see its indexArtifact
+ * parameter) instead of fetching the stacks descriptor and resolving every BOM.
+ * 
+ * @goal build-index
+ * 
+ * @phase package
+ */
+public class BuildIndexMojo extends AbstractMojo {
+
+    /**
+     * @parameter expression="${project}"
+     * @readonly
+     */
+    private MavenProject project;
+
+    /**
+     * @component
+     */
+    private MavenProjectHelper projectHelper;
+
+    /**
+     * @parameter expression="${session}"
+     * @readonly
+     */
+    private MavenSession session;
+
+    /**
+     * @component
+     */
+    private RepositorySystem repositorySystem;
+
+    /**
+     * List of Remote Repositories used by the resolver
+     * 
+     * @parameter expression="${project.remoteArtifactRepositories}"
+     * @required
+     */
+    protected java.util.List<ArtifactRepository> remoteRepos;
+
+    /**
+     * Location of the local repository.
+     * 
+     * @parameter expression="${localRepository}"
+     * @required
+     */
+    protected org.apache.maven.artifact.repository.ArtifactRepository localRepository;
+
+    /**
+     * The index file
+     * 
+     * @parameter expression="${checker.index.file}" default-value="${project.build.directory}/dependency-checker-index.bin"
+     */
+    private File indexFile;
+
+    /**
+     * Attaches the index file to the project, so it is installed and deployed with it
+     * 
+     * @parameter expression="${checker.index.attach}" default-value="true"
+     */
+    private boolean attach;
+
+    /**
+     * Reuses the BOM index cached on the local repository
+     * 
+     * @parameter expression="${checker.useCache}" default-value="true"
+     */
+    private boolean useCache;
+
+    /**
+     * Number of BOMs resolved at the same time when building the BOM index
+     * 
+     * @parameter expression="${checker.resolverThreads}" default-value="4"
+     */
+    private int resolverThreads;
+
+    /**
+     * URL of the stacks descriptor. Uses the jdf-stacks default when not informed
+     * 
+     * @parameter expression="${checker.stacksUrl}"
+     */
+    private String stacksUrl;
+
+    /**
+     * For how long (in seconds) the stacks descriptor snapshot is used without checking the stacks repository for
+     * changes
+     * 
+     * @parameter expression="${checker.stacksSnapshotTtl}" default-value="86400"
+     */
+    private int stacksSnapshotTtl;
+
+    /**
+     * Proxy Host from Settings.xml
+     * 
+     * @parameter expression="${settings.proxies}"
+     * 
+     */
+    private List<Proxy> proxies;
+
+    public void execute() throws MojoExecutionException {
+        Proxy proxy = proxies.size() == 0 ? null : proxies.get(0);
+        File localRepositoryDirectory = new File(localRepository.getBasedir());
+        MavenStacksConfiguration stacksConfiguration = BomIndexLoader.newStacksConfiguration(proxy,
+                !session.isOffline(), localRepositoryDirectory, stacksSnapshotTtl, stacksUrl);
+        BomIndexLoader bomIndexLoader = new BomIndexLoader(stacksConfiguration, new RepositoryPomResolver(
+                repositorySystem, remoteRepos, localRepository), localRepositoryDirectory, useCache, resolverThreads,
+                getLog(), new Metrics());
+        BomIndex bomIndex = bomIndexLoader.load(bomIndexLoader.fetchBomVersions()).getIndex();
+        RelocationMatcher relocatedDependencies = CheckerResources.loadRelocatedDependencies();
+        try {
+            indexFile.getParentFile().mkdirs();
+            BomIndexFile.write(indexFile, bomIndex, relocatedDependencies);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Can't write " + indexFile, e);
+        }
+        getLog().info(
+                String.format("Indexed %d dependencies managed by %d BOMs and %d relocations on %s (%d KB)",
+                        bomIndex.size(), bomIndex.getBomVersions().size(), relocatedDependencies.size(), indexFile,
+                        indexFile.length() / 1024));
+        if (attach) {
+            projectHelper.attachArtifact(project, BomIndexFile.TYPE, BomIndexFile.CLASSIFIER, indexFile);
+        }
+    }
+
+}
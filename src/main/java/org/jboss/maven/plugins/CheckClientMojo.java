@@ -0,0 +1,106 @@
+package org.jboss.maven.plugins;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.jboss.maven.plugins.daemon.CheckClient;
+
+/**
+ * Checks the project dependencies on a running check daemon (see the daemon goal)
+ * 
+ * @goal client
+ * 
+ * @phase validate
+ */
+public class CheckClientMojo extends AbstractMojo {
+
+    /**
+     * @parameter expression="${project}"
+     */
+    private MavenProject project;
+
+    /**
+     * Port the daemon listens on, on the loopback interface
+     * 
+     * @parameter expression="${checker.daemonPort}" default-value="9876"
+     */
+    private int daemonPort;
+
+    /**
+     * Instructs the plugin to fail if found some dependency problem
+     * 
+     * @parameter expression="${checker.failBuild}"
+     */
+    private boolean failBuild;
+
+    public void execute() throws MojoExecutionException {
+        List<Map<String, String>> answer;
+        try {
+            answer = new CheckClient(daemonPort).check(project.getFile());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Can't reach the dependency checker daemon on port " + daemonPort
+                    + ". Start it with mvn dependency-checker:daemon", e);
+        }
+        // The last record holds the status
+        Map<String, String> status = answer.get(answer.size() - 1);
+        if ("error".equals(status.get("status"))) {
+            throw new MojoExecutionException(status.get("message"));
+        }
+        Map<String, StringBuilder> issuesByDependency = new LinkedHashMap<String, StringBuilder>();
+        for (Map<String, String> issue : answer.subList(0, answer.size() - 1)) {
+            String dependency = String.format("%s:%s:%s", issue.get("groupId"), issue.get("artifactId"),
+                    issue.get("version"));
+            if (!issuesByDependency.containsKey(dependency)) {
+                issuesByDependency.put(dependency, new StringBuilder("- Dependency: " + dependency));
+            }
+            issuesByDependency.get(dependency).append("\n\t- ").append(issue.get("message"));
+        }
+        for (StringBuilder sb : issuesByDependency.values()) {
+            log(sb);
+        }
+        getLog().info(String.format("Checked %s dependencies in %s ms", status.get("dependencies"),
+                status.get("millis")));
+        if (!issuesByDependency.isEmpty() && failBuild) {
+            throw new MojoExecutionException("Project has non conformant Depencies. Check the logs above.");
+        }
+    }
+
+    /**
+     * choose the right log level based on failBuild property
+     */
+    private void log(CharSequence message) {
+        if (failBuild) {
+            getLog().error(message);
+        } else {
+            getLog().warn(message);
+        }
+    }
+
+}
@@ -0,0 +1,184 @@
+package org.jboss.maven.plugins;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.repository.RepositorySystem;
+import org.apache.maven.settings.Proxy;
+import org.jboss.maven.plugins.bom.LocalRepositoryPomResolver;
+import org.jboss.maven.plugins.bom.RepositoryPomResolver;
+import org.jboss.maven.plugins.check.VersionPolicy;
+import org.jboss.maven.plugins.daemon.CheckDaemon;
+import org.jboss.maven.plugins.project.ProjectReader;
+import org.jboss.maven.plugins.stacks.MavenStacksConfiguration;
+import org.jboss.maven.plugins.util.Metrics;
+
+/**
+ * Starts the check daemon, which keeps the BOM index in memory and checks a pom.xml on each request from the client
+ * goal, IDEs or pre-commit hooks. Runs until it receives a stop request.
+ * 
+ * @goal daemon
+ * 
+ * @requiresProject false
+ */
+public class CheckDaemonMojo extends AbstractMojo {
+
+    /**
+     * @parameter expression="${session}"
+     * @readonly
+     */
+    private MavenSession session;
+
+    /**
+     * @component
+     */
+    private RepositorySystem repositorySystem;
+
+    /**
+     * List of Remote Repositories used by the resolver
+     * 
+     * @parameter expression="${project.remoteArtifactRepositories}"
+     * @required
+     */
+    protected java.util.List<ArtifactRepository> remoteRepos;
+
+    /**
+     * Location of the local repository.
+     * 
+     * @parameter expression="${localRepository}"
+     * @required
+     */
+    protected org.apache.maven.artifact.repository.ArtifactRepository localRepository;
+
+    /**
+     * Port the daemon listens on, on the loopback interface
+     * 
+     * @parameter expression="${checker.daemonPort}" default-value="9876"
+     */
+    private int daemonPort;
+
+    /**
+     * Seconds between each check for BOM changes on the stacks descriptor and the local repository. Zero never reloads
+     * the BOMs.
+     * 
+     * @parameter expression="${checker.daemonPollInterval}" default-value="10"
+     */
+    private int pollInterval;
+
+    /**
+     * Comma separated vendor suffixes accepted as vendor releases, for the projects that don't configure their own
+     * 
+     * @parameter expression="${checker.vendorSuffixes}" default-value="redhat"
+     */
+    private String vendorSuffixes;
+
+    /**
+     * Comma separated qualifiers allowed on vendor releases, for the projects that don't configure their own. Any
+     * qualifier is allowed when empty
+     * 
+     * @parameter expression="${checker.allowedQualifiers}"
+     */
+    private String allowedQualifiers;
+
+    /**
+     * Versions accepted without a vendor suffix, as groupId:artifactId:range, for the projects that don't configure
+     * their own
+     * 
+     * @parameter
+     */
+    private List<String> allowedVersions = new ArrayList<String>();
+
+    /**
+     * Reuses the BOM index cached on the local repository
+     * 
+     * @parameter expression="${checker.useCache}" default-value="true"
+     */
+    private boolean useCache;
+
+    /**
+     * Number of BOMs resolved at the same time when building the BOM index
+     * 
+     * @parameter expression="${checker.resolverThreads}" default-value="4"
+     */
+    private int resolverThreads;
+
+    /**
+     * URL of the stacks descriptor. Uses the jdf-stacks default when not informed
+     * 
+     * @parameter expression="${checker.stacksUrl}"
+     */
+    private String stacksUrl;
+
+    /**
+     * For how long (in seconds) the stacks descriptor snapshot is used without checking the stacks repository for
+     * changes
+     * 
+     * @parameter expression="${checker.stacksSnapshotTtl}" default-value="86400"
+     */
+    private int stacksSnapshotTtl;
+
+    /**
+     * Proxy Host from Settings.xml
+     * 
+     * @parameter expression="${settings.proxies}"
+     * 
+     */
+    private List<Proxy> proxies;
+
+    public void execute() throws MojoExecutionException {
+        try {
+            VersionPolicy.compile(vendorSuffixes, allowedQualifiers, allowedVersions);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        Proxy proxy = proxies.size() == 0 ? null : proxies.get(0);
+        File localRepositoryDirectory = new File(localRepository.getBasedir());
+        MavenStacksConfiguration stacksConfiguration = BomIndexLoader.newStacksConfiguration(proxy,
+                !session.isOffline(), localRepositoryDirectory, stacksSnapshotTtl, stacksUrl);
+        // The BOMs can still be downloaded, but the checked projects are read from the local repository only
+        BomIndexLoader bomIndexLoader = new BomIndexLoader(stacksConfiguration, new RepositoryPomResolver(
+                repositorySystem, remoteRepos, localRepository), localRepositoryDirectory, useCache, resolverThreads,
+                getLog(), new Metrics());
+        ProjectReader projectReader = new ProjectReader(new LocalRepositoryPomResolver(localRepositoryDirectory), false,
+                vendorSuffixes, allowedQualifiers, allowedVersions);
+        CheckDaemon daemon = new CheckDaemon(bomIndexLoader, projectReader,
+                CheckerResources.loadRelocatedDependencies(), pollInterval, getLog());
+        daemon.start();
+        try {
+            daemon.listen(daemonPort);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Can't listen on port " + daemonPort, e);
+        } finally {
+            daemon.stop();
+        }
+    }
+
+}
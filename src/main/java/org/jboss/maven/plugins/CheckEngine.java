@@ -0,0 +1,508 @@
+package org.jboss.maven.plugins;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.jboss.jdf.stacks.model.BomVersion;
+import org.jboss.maven.plugins.bom.BomIndex;
+import org.jboss.maven.plugins.bom.BomPlan;
+import org.jboss.maven.plugins.bom.BomPlanner;
+import org.jboss.maven.plugins.bom.LazyBomIndex;
+import org.jboss.maven.plugins.check.BomCheck;
+import org.jboss.maven.plugins.check.CheckContext;
+import org.jboss.maven.plugins.check.DependencyCheck;
+import org.jboss.maven.plugins.check.RedHatReleaseCheck;
+import org.jboss.maven.plugins.check.RelocationCheck;
+import org.jboss.maven.plugins.check.SuggestionAvailability;
+import org.jboss.maven.plugins.check.VersionPolicy;
+import org.jboss.maven.plugins.dependency.DeclaredDependencies;
+import org.jboss.maven.plugins.dependency.ExclusionMatcher;
+import org.jboss.maven.plugins.dependency.MavenDependency;
+import org.jboss.maven.plugins.dependency.RelocationMatcher;
+import org.jboss.maven.plugins.dependency.RelocationMatcher.Relocation;
+import org.jboss.maven.plugins.report.ReportWriter;
+import org.jboss.maven.plugins.util.Metrics;
+
+/**
+ * The checks of a single project, with no Maven session around them, so they can be run by the {@link DependencyChecker}
+ * mojo and by the check daemon alike.
+ *
+ * Each check returns the issues it found instead of reporting them: what is done with an issue (reporting, failing the
+ * build, answering a client) is up to the caller. The engine is the {@link CheckContext} of every
+ * {@link DependencyCheck} run on the project.
+ *
+ */
+public class CheckEngine implements CheckContext {
+
+    private static final RedHatReleaseCheck RED_HAT_RELEASE_CHECK = new RedHatReleaseCheck();
+
+    private static final RelocationCheck RELOCATION_CHECK = new RelocationCheck();
+
+    private static final BomCheck BOM_CHECK = new BomCheck();
+
+    private final CheckerResources resources;
+
+    private final Callable<LazyBomIndex> bomIndexLoader;
+
+    private final DeclaredDependencies declaredDependencies;
+
+    private final ExclusionMatcher exclusionMatcher;
+
+    private final VersionPolicy versionPolicy;
+
+    private final boolean failFast;
+
+    private final Metrics metrics;
+
+    private volatile BomPlan bomPlan;
+
+    /**
+     * The dependencies whose BOMs are planned when the plan is first needed
+     */
+    private Collection<Dependency> plannedDependencies;
+
+    private volatile SuggestionAvailability suggestionAvailability;
+
+    /**
+     * @param resources the relocated dependencies and BOM index
+     * @param bomIndexLoader starts loading the BOM index if the resources don't have it yet
+     * @param declaredDependencies versions declared on pom.xml
+     * @param exclusionMatcher the excluded Dependencies
+     */
+    public CheckEngine(CheckerResources resources, Callable<LazyBomIndex> bomIndexLoader,
+            DeclaredDependencies declaredDependencies, ExclusionMatcher exclusionMatcher) {
+        this(resources, bomIndexLoader, declaredDependencies, exclusionMatcher, VersionPolicy.RED_HAT, false,
+                new Metrics());
+    }
+
+    /**
+     * @param resources the relocated dependencies and BOM index
+     * @param bomIndexLoader starts loading the BOM index if the resources don't have it yet
+     * @param declaredDependencies versions declared on pom.xml
+     * @param exclusionMatcher the excluded Dependencies
+     * @param versionPolicy the accepted vendor releases
+     * @param failFast if the checks should prefer a quick answer over a thorough one
+     * @param metrics receives the time spent on each check
+     */
+    public CheckEngine(CheckerResources resources, Callable<LazyBomIndex> bomIndexLoader,
+            DeclaredDependencies declaredDependencies, ExclusionMatcher exclusionMatcher, VersionPolicy versionPolicy,
+            boolean failFast, Metrics metrics) {
+        this.resources = resources;
+        this.bomIndexLoader = bomIndexLoader;
+        this.declaredDependencies = declaredDependencies;
+        this.exclusionMatcher = exclusionMatcher;
+        this.versionPolicy = versionPolicy;
+        this.failFast = failFast;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the checks run on each dependency, on the order they run
+     * @throws MojoExecutionException if a custom check can't be loaded
+     */
+    public List<DependencyCheck> getChecks() throws MojoExecutionException {
+        return resources.getChecks();
+    }
+
+    /**
+     * Runs every check on the given dependency, waiting for the full BOM index if needed
+     *
+     * @param dependency
+     * @return the issues found, on the check order
+     * @throws MojoExecutionException
+     */
+    public List<Issue> check(Dependency dependency) throws MojoExecutionException {
+        List<Issue> issues = new ArrayList<Issue>();
+        for (DependencyCheck check : getChecks()) {
+            issues.addAll(check(dependency, check));
+        }
+        return issues;
+    }
+
+    /**
+     * Runs a single check on the given dependency
+     *
+     * @param dependency
+     * @param check
+     * @return the issues found
+     * @throws MojoExecutionException if the check fails
+     */
+    public List<Issue> check(Dependency dependency, DependencyCheck check) throws MojoExecutionException {
+        long start = System.nanoTime();
+        try {
+            return check.check(dependency, this);
+        } catch (RuntimeException e) {
+            throw new MojoExecutionException(String.format("The %s check failed on %s:%s:%s", check.getId(),
+                    dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion()), e);
+        } finally {
+            metrics.time("check." + check.getId(), start);
+        }
+    }
+
+    /**
+     * Runs every check on each dependency, spreading the dependencies over the given number of threads. The calling
+     * thread checks dependencies too.
+     *
+     * @param dependencies
+     * @param threads
+     * @return the issues of each dependency, on the same order of the dependencies
+     * @throws MojoExecutionException if any dependency can't be checked
+     */
+    public List<List<Issue>> checkParallel(List<Dependency> dependencies, int threads)
+            throws MojoExecutionException {
+        AtomicReferenceArray<List<Issue>> results = new AtomicReferenceArray<List<Issue>>(dependencies.size());
+        Worker worker = new Worker(dependencies, results);
+        int workers = Math.min(threads, dependencies.size());
+        ExecutorService executor = null;
+        if (workers > 1) {
+            executor = Executors.newFixedThreadPool(workers - 1, new ThreadFactory() {
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "dependency-checker-check");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 1; i < workers; i++) {
+                futures.add(executor.submit(worker));
+            }
+            worker.call();
+            for (Future<Void> future : futures) {
+                get(future);
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        List<List<Issue>> issues = new ArrayList<List<Issue>>(dependencies.size());
+        for (int i = 0; i < dependencies.size(); i++) {
+            issues.add(results.get(i));
+        }
+        return issues;
+    }
+
+    /**
+     * Runs every check on each dependency that isn't excluded
+     *
+     * @param dependencies
+     * @param report receives each issue found
+     * @return the number of issues found
+     * @throws MojoExecutionException
+     * @throws IOException if the report can't be written
+     */
+    public int checkAll(List<Dependency> dependencies, ReportWriter report) throws MojoExecutionException,
+            IOException {
+        planBomsOnDemand(dependencies);
+        int issues = 0;
+        for (Dependency dependency : dependencies) {
+            if (findExclusion(dependency) == null) {
+                for (Issue issue : check(dependency)) {
+                    report.write(dependency, issue);
+                    issues++;
+                }
+            }
+        }
+        return issues;
+    }
+
+    /**
+     * Proposes the smallest set of BOMs managing the given dependencies. Once planned, the BOM check suggests only the
+     * planned BOM of each dependency.
+     *
+     * @param dependencies the project dependencies, only the ones declaring their version and not excluded are planned
+     * @return the proposed BOMs
+     * @throws MojoExecutionException
+     */
+    public BomPlan planBoms(Collection<Dependency> dependencies) throws MojoExecutionException {
+        Map<MavenDependency, String> declaredVersions = new LinkedHashMap<MavenDependency, String>();
+        for (Dependency dependency : dependencies) {
+            MavenDependency mvnDependency = new MavenDependency(dependency.getGroupId(), dependency.getArtifactId());
+            if (findExclusion(dependency) == null && declaredDependencies.hasDeclaredVersion(mvnDependency)) {
+                declaredVersions.put(mvnDependency, dependency.getVersion());
+            }
+        }
+        // Nothing to plan doesn't need the BOM index
+        bomPlan = declaredVersions.isEmpty() ? BomPlan.empty() : new BomPlanner(getBomIndex().getIndex())
+                .plan(declaredVersions);
+        return bomPlan;
+    }
+
+    /**
+     * Proposes the BOMs of the given dependencies only once a check first asks for them (see {@link #getBomPlan()}), so
+     * the checks start while the BOMs are still loading and only wait for all of them when a BOM is about to be
+     * suggested.
+     *
+     * @param dependencies the project dependencies, only the ones declaring their version and not excluded are planned
+     */
+    public synchronized void planBomsOnDemand(Collection<Dependency> dependencies) {
+        plannedDependencies = dependencies;
+        bomPlan = null;
+    }
+
+    /**
+     * Makes the checks annotate each suggested coordinate as available or not, resolving at once every coordinate that
+     * may be suggested for the given dependencies. Call it after {@link #planBoms(Collection)}, so only the planned
+     * BOMs are resolved.
+     *
+     * @param availability the shared availability cache
+     * @param dependencies the dependencies about to be checked
+     * @param metrics receives the time spent resolving the suggestions
+     * @throws MojoExecutionException
+     */
+    public void verifySuggestions(SuggestionAvailability availability, Collection<Dependency> dependencies,
+            Metrics metrics) throws MojoExecutionException {
+        this.suggestionAvailability = availability;
+        // Fail fast resolves each suggestion when it is reported, instead of loading the BOM index up front
+        if (failFast) {
+            return;
+        }
+        Set<String> suggested = new LinkedHashSet<String>();
+        BomPlan bomPlan = getBomPlan();
+        BomIndex index = null;
+        for (Dependency dependency : dependencies) {
+            if (findExclusion(dependency) != null) {
+                continue;
+            }
+            for (Relocation relocation : getRelocatedDependencies().match(dependency.getGroupId(),
+                    dependency.getArtifactId())) {
+                for (String proposed : relocation.getProposed()) {
+                    suggested.add(proposed);
+                }
+            }
+            MavenDependency mvnDependency = new MavenDependency(dependency.getGroupId(), dependency.getArtifactId());
+            if (!declaredDependencies.hasDeclaredVersion(mvnDependency)) {
+                continue;
+            }
+            if (bomPlan != null && bomPlan.getSuggestion(mvnDependency) != null) {
+                suggested.add(coordinate(bomPlan.getSuggestion(mvnDependency).getBomVersion()));
+                continue;
+            }
+            if (index == null) {
+                index = getBomIndex().getIndex();
+            }
+            int entry = index.indexOf(dependency.getGroupId(), dependency.getArtifactId());
+            for (int bom = entry < 0 ? -1 : index.nextBom(entry, 0); bom >= 0; bom = index.nextBom(entry, bom + 1)) {
+                suggested.add(coordinate(index.getBomVersion(bom)));
+            }
+        }
+        availability.prefetch(suggested, metrics);
+    }
+
+    private static String coordinate(BomVersion bomVersion) {
+        return bomVersion.getBom().getGroupId() + ":" + bomVersion.getBom().getArtifactId() + ":"
+                + bomVersion.getVersion();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.check.CheckContext#getSuggestionAvailability()
+     */
+    public SuggestionAvailability getSuggestionAvailability() {
+        return suggestionAvailability;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.check.CheckContext#getBomPlan()
+     */
+    public BomPlan getBomPlan() throws MojoExecutionException {
+        BomPlan plan = bomPlan;
+        if (plan == null) {
+            synchronized (this) {
+                if (bomPlan == null && plannedDependencies != null) {
+                    planBoms(plannedDependencies);
+                }
+                plan = bomPlan;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * @return the BOMs proposed for the project or null if no check needed them, without planning them
+     */
+    public BomPlan getPlannedBoms() {
+        return bomPlan;
+    }
+
+    /**
+     * @param dependency
+     * @return the exclusion that matches the dependency or null if it should be checked
+     */
+    public String findExclusion(Dependency dependency) {
+        return exclusionMatcher.match(dependency.getGroupId(), dependency.getArtifactId());
+    }
+
+    /**
+     * Verifies if this dependency is a vendor release, like -redhat-N
+     *
+     * @param dependency
+     * @return the issue or null if it is a vendor release
+     */
+    public Issue checkRedHatRelease(Dependency dependency) {
+        return RED_HAT_RELEASE_CHECK.check(dependency, versionPolicy);
+    }
+
+    /**
+     * Check the if groupdId or artifactId contains any relocated dependency
+     *
+     * @param dependency
+     * @return one issue for each relocation that applies to the dependency
+     */
+    public List<Issue> checkRelocation(Dependency dependency) {
+        return RELOCATION_CHECK.check(dependency, this);
+    }
+
+    /**
+     * Check if this dependency has a BOM (Bill of Materials) for it, see {@link BomCheck}
+     *
+     * @param dependency
+     * @param firstBomOnly only waits for the first BOM that manages the dependency, instead of listing all of them
+     * @return the issue or null if the dependency doesn't declare its version or no BOM manages it
+     * @throws MojoExecutionException
+     */
+    public Issue checkBom(Dependency dependency, boolean firstBomOnly) throws MojoExecutionException {
+        return BOM_CHECK.check(dependency, this, firstBomOnly);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.check.CheckContext#getBomIndex()
+     */
+    public LazyBomIndex getBomIndex() throws MojoExecutionException {
+        return resources.getBomIndex(bomIndexLoader);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.check.CheckContext#getDeclaredDependencies()
+     */
+    public DeclaredDependencies getDeclaredDependencies() {
+        return declaredDependencies;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.check.CheckContext#getRelocatedDependencies()
+     */
+    public RelocationMatcher getRelocatedDependencies() {
+        return resources.getRelocatedDependencies();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.check.CheckContext#getVersionPolicy()
+     */
+    public VersionPolicy getVersionPolicy() {
+        return versionPolicy;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.check.CheckContext#isFailFast()
+     */
+    public boolean isFailFast() {
+        return failFast;
+    }
+
+    /**
+     * Checks the dependencies not claimed by other workers yet
+     */
+    private class Worker implements Callable<Void> {
+
+        private final List<Dependency> dependencies;
+
+        private final AtomicReferenceArray<List<Issue>> results;
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        Worker(List<Dependency> dependencies, AtomicReferenceArray<List<Issue>> results) {
+            this.dependencies = dependencies;
+            this.results = results;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.util.concurrent.Callable#call()
+         */
+        public Void call() throws MojoExecutionException {
+            // Each worker claims the next dependency and owns its slot, so no lock is needed
+            for (int i = next.getAndIncrement(); i < dependencies.size(); i = next.getAndIncrement()) {
+                try {
+                    results.set(i, check(dependencies.get(i)));
+                } catch (MojoExecutionException e) {
+                    // Stops the other workers
+                    next.set(dependencies.size());
+                    throw e;
+                }
+            }
+            return null;
+        }
+
+    }
+
+    private static <T> T get(Future<T> future) throws MojoExecutionException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while checking the dependencies", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e.getCause();
+            }
+            throw new MojoExecutionException("Problem checking the dependencies", e.getCause());
+        }
+    }
+
+}
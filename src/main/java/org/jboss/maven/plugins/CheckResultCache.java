@@ -0,0 +1,154 @@
+package org.jboss.maven.plugins;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Keeps the result of the last check of a module, together with the fingerprint of everything that was used to
+ * produce it. When the fingerprint doesn't change, the result can be replayed instead of checking again.
+ *
+ */
+public class CheckResultCache {
+
+    /**
+     * Name of the state file, inside the project build directory
+     */
+    public static final String STATE_FILE = "dependency-checker.state";
+
+    private static final int MAGIC = 0x44435253;
+
+    private static final int FORMAT_VERSION = 4;
+
+    private File stateFile;
+
+    private Log log;
+
+    /**
+     * @param stateFile
+     * @param log
+     */
+    public CheckResultCache(File stateFile, Log log) {
+        this.stateFile = stateFile;
+        this.log = log;
+    }
+
+    /**
+     * @param fingerprint the fingerprint of the current check
+     *
+     * @return the result of the last check or null if it was produced from a different fingerprint
+     */
+    public Map<Dependency, List<Issue>> load(String fingerprint) {
+        if (!stateFile.isFile()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(stateFile)));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !fingerprint.equals(in.readUTF())) {
+                    return null;
+                }
+                int count = in.readInt();
+                Map<Dependency, List<Issue>> result = new LinkedHashMap<Dependency, List<Issue>>();
+                for (int i = 0; i < count; i++) {
+                    Dependency dependency = new Dependency();
+                    dependency.setGroupId(in.readUTF());
+                    dependency.setArtifactId(in.readUTF());
+                    // The version may be unknown
+                    dependency.setVersion(in.readBoolean() ? in.readUTF() : null);
+                    int issueCount = in.readInt();
+                    List<Issue> issues = new ArrayList<Issue>(issueCount);
+                    for (int j = 0; j < issueCount; j++) {
+                        IssueType type = IssueType.valueOf(in.readUTF());
+                        String id = in.readUTF();
+                        String message = in.readUTF();
+                        issues.add(type == IssueType.CUSTOM ? new Issue(id, message) : new Issue(type, message));
+                    }
+                    result.put(dependency, issues);
+                }
+                return result;
+            } finally {
+                in.close();
+            }
+        } catch (IllegalArgumentException e) {
+            log.debug("Ignoring unreadable " + stateFile + ": " + e.getMessage());
+            return null;
+        } catch (IOException e) {
+            log.debug("Ignoring unreadable " + stateFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param fingerprint the fingerprint of the current check
+     * @param result the result of the current check
+     */
+    public void store(String fingerprint, Map<Dependency, List<Issue>> result) {
+        try {
+            stateFile.getParentFile().mkdirs();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(stateFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(fingerprint);
+                out.writeInt(result.size());
+                for (Entry<Dependency, List<Issue>> entry : result.entrySet()) {
+                    out.writeUTF(entry.getKey().getGroupId());
+                    out.writeUTF(entry.getKey().getArtifactId());
+                    String version = entry.getKey().getVersion();
+                    out.writeBoolean(version != null);
+                    if (version != null) {
+                        out.writeUTF(version);
+                    }
+                    out.writeInt(entry.getValue().size());
+                    for (Issue issue : entry.getValue()) {
+                        out.writeUTF(issue.getType().name());
+                        out.writeUTF(issue.getId());
+                        out.writeUTF(issue.getMessage());
+                    }
+                }
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            log.warn("Can't write " + stateFile + ": " + e.getMessage());
+            stateFile.delete();
+        }
+    }
+
+}
@@ -0,0 +1,243 @@
+package org.jboss.maven.plugins;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.jboss.maven.plugins.bom.BomIndex;
+import org.jboss.maven.plugins.bom.LazyBomIndex;
+import org.jboss.maven.plugins.bom.PomResolver;
+import org.jboss.maven.plugins.check.DependencyCheck;
+import org.jboss.maven.plugins.check.DependencyChecks;
+import org.jboss.maven.plugins.check.SuggestionAvailability;
+import org.jboss.maven.plugins.dependency.RelocationMatcher;
+
+/**
+ * Resources that don't depend on the checked project: the relocated dependencies, the BOM index and the checks.
+ *
+ * They are loaded once per build and shared by every module of the reactor that loads them with the same
+ * configuration (repositories, stacks descriptor, index artifact, ...). The instances are never modified after
+ * being loaded, so modules running in parallel can read them freely. The BOM index is only loaded when the first
+ * dependency needs it, as it requires the stacks descriptor and every BOM.
+ *
+ */
+public class CheckerResources {
+
+    /**
+     * Resources of each running build, by the configuration they were loaded with. Parallel builds clone the
+     * {@link MavenSession} for each module, but all of them share the same {@link MavenExecutionRequest}.
+     */
+    private static final Map<MavenExecutionRequest, Map<String, FutureTask<CheckerResources>>> BUILD_RESOURCES = new WeakHashMap<MavenExecutionRequest, Map<String, FutureTask<CheckerResources>>>();
+
+    private final RelocationMatcher relocatedDependencies;
+
+    private final AtomicReference<FutureTask<LazyBomIndex>> bomIndex = new AtomicReference<FutureTask<LazyBomIndex>>();
+
+    private final File indexFile;
+
+    private volatile List<DependencyCheck> checks;
+
+    private SuggestionAvailability suggestionAvailability;
+
+    /**
+     * @param relocatedDependencies
+     */
+    public CheckerResources(RelocationMatcher relocatedDependencies) {
+        this.relocatedDependencies = relocatedDependencies;
+        this.indexFile = null;
+    }
+
+    /**
+     * @param relocatedDependencies
+     * @param bomIndex an already loaded BOM index
+     */
+    public CheckerResources(RelocationMatcher relocatedDependencies, BomIndex bomIndex) {
+        this(relocatedDependencies, bomIndex, null);
+    }
+
+    /**
+     * @param relocatedDependencies
+     * @param bomIndex an already loaded BOM index
+     * @param indexFile the index file both were read from, may be null
+     */
+    public CheckerResources(RelocationMatcher relocatedDependencies, final BomIndex bomIndex, File indexFile) {
+        this.relocatedDependencies = relocatedDependencies;
+        this.indexFile = indexFile;
+        FutureTask<LazyBomIndex> task = new FutureTask<LazyBomIndex>(new Callable<LazyBomIndex>() {
+
+            public LazyBomIndex call() {
+                return LazyBomIndex.of(bomIndex);
+            }
+        });
+        task.run();
+        this.bomIndex.set(task);
+    }
+
+    /**
+     * Returns the resources of the given build, loading them if this is the first module asking for them with the given
+     * configuration. Other modules asking for the same resources while they are being loaded wait for the same load to
+     * finish.
+     *
+     * @param session the current build session
+     * @param configuration identifies everything the loader depends on, like the remote repositories or the index
+     *        artifact. Modules with another configuration get their own resources
+     * @param loader loads the resources
+     *
+     * @return the shared resources
+     * @throws MojoExecutionException if the resources couldn't be loaded
+     */
+    public static CheckerResources forSession(MavenSession session, String configuration,
+            Callable<CheckerResources> loader) throws MojoExecutionException {
+        FutureTask<CheckerResources> task;
+        boolean loadHere = false;
+        synchronized (BUILD_RESOURCES) {
+            Map<String, FutureTask<CheckerResources>> buildResources = BUILD_RESOURCES.get(session.getRequest());
+            if (buildResources == null) {
+                buildResources = new HashMap<String, FutureTask<CheckerResources>>();
+                BUILD_RESOURCES.put(session.getRequest(), buildResources);
+            }
+            task = buildResources.get(configuration);
+            if (task == null) {
+                task = new FutureTask<CheckerResources>(loader);
+                buildResources.put(configuration, task);
+                loadHere = true;
+            }
+        }
+        if (loadHere) {
+            task.run();
+        }
+        return get(task);
+    }
+
+    /**
+     * @return the index file the resources were read from or null if they were loaded from the plugin and the stacks
+     *         descriptor
+     */
+    public File getIndexFile() {
+        return indexFile;
+    }
+
+    /**
+     * @return the relocated dependencies bundled with the plugin
+     * @throws MojoExecutionException
+     */
+    public static RelocationMatcher loadRelocatedDependencies() throws MojoExecutionException {
+        Properties relocatedDependencies = new Properties();
+        try {
+            InputStream in = CheckerResources.class.getResourceAsStream("/mavenrelocated.properties");
+            try {
+                relocatedDependencies.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Problem loading mavenrelocated.properties", e);
+        }
+        return RelocationMatcher.compile(relocatedDependencies);
+    }
+
+    /**
+     * @return the relocated dependencies
+     */
+    public RelocationMatcher getRelocatedDependencies() {
+        return relocatedDependencies;
+    }
+
+    /**
+     * @return the built-in checks and the custom ones found on the plugin class path
+     * @throws MojoExecutionException if a custom check can't be loaded
+     */
+    public List<DependencyCheck> getChecks() throws MojoExecutionException {
+        List<DependencyCheck> loaded = checks;
+        if (loaded == null) {
+            synchronized (this) {
+                if (checks == null) {
+                    checks = DependencyChecks.load(CheckerResources.class.getClassLoader());
+                }
+                loaded = checks;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * @param pomResolver resolves the suggested coordinates. Only the one informed by the first caller is used
+     * @param threads the number of coordinates resolved at the same time
+     * @return the availability of the suggested coordinates, shared by every module of the build
+     */
+    public synchronized SuggestionAvailability getSuggestionAvailability(PomResolver pomResolver, int threads) {
+        if (suggestionAvailability == null) {
+            suggestionAvailability = new SuggestionAvailability(pomResolver, threads);
+        }
+        return suggestionAvailability;
+    }
+
+    /**
+     * Returns the BOM index, starting to load it if this is the first time it is needed. Other modules asking for the
+     * index while the load is being started wait for it.
+     *
+     * @param loader starts loading the index
+     * @return the index of all managed Dependencies from each BOM (Bill of Materials)
+     * @throws MojoExecutionException if the index couldn't be loaded
+     */
+    public LazyBomIndex getBomIndex(Callable<LazyBomIndex> loader) throws MojoExecutionException {
+        FutureTask<LazyBomIndex> task = bomIndex.get();
+        if (task == null) {
+            FutureTask<LazyBomIndex> newTask = new FutureTask<LazyBomIndex>(loader);
+            if (bomIndex.compareAndSet(null, newTask)) {
+                newTask.run();
+            }
+            task = bomIndex.get();
+        }
+        return get(task);
+    }
+
+    private static <T> T get(FutureTask<T> task) throws MojoExecutionException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while loading the dependency checker resources", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e.getCause();
+            }
+            throw new MojoExecutionException("Problem loading the dependency checker resources", e.getCause());
+        }
+    }
+
+}
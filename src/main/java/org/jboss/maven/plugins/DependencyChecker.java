@@ -22,32 +22,50 @@ package org.jboss.maven.plugins;
  * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
  */
 
-import java.io.FileReader;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.Callable;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.artifact.resolver.ArtifactResolutionRequest;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Dependency;
-import org.apache.maven.model.Model;
-import org.apache.maven.model.Parent;
-import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.repository.RepositorySystem;
 import org.apache.maven.settings.Proxy;
-import org.jboss.jdf.stacks.client.StacksClient;
-import org.jboss.jdf.stacks.model.BomVersion;
+import org.jboss.maven.plugins.bom.BomIndexFile;
+import org.jboss.maven.plugins.bom.BomPlan;
+import org.jboss.maven.plugins.bom.LazyBomIndex;
+import org.jboss.maven.plugins.bom.PomResolver;
+import org.jboss.maven.plugins.bom.RepositoryPomResolver;
+import org.jboss.maven.plugins.check.DependencyCheck;
+import org.jboss.maven.plugins.check.VersionPolicy;
+import org.jboss.maven.plugins.dependency.DeclaredDependencies;
+import org.jboss.maven.plugins.dependency.ExclusionMatcher;
 import org.jboss.maven.plugins.dependency.MavenDependency;
+import org.jboss.maven.plugins.report.ReportFormat;
+import org.jboss.maven.plugins.report.ReportWriter;
 import org.jboss.maven.plugins.stacks.MavenStacksConfiguration;
-import org.jboss.maven.plugins.stacks.MavenStacksMessages;
+import org.jboss.maven.plugins.util.Fingerprint;
+import org.jboss.maven.plugins.util.Metrics;
 
 /**
  * Check project dependencies
@@ -58,18 +76,37 @@ import org.jboss.maven.plugins.stacks.MavenStacksMessages;
  */
 public class DependencyChecker extends AbstractMojo {
 
-    private Pattern patternRedHat = Pattern.compile(".*-redhat-[0-9]");
+    /**
+     * Name of the metrics report, inside the project build directory
+     */
+    private static final String METRICS_FILE = "dependency-checker-metrics.json";
+
+    /**
+     * How many transitive dependencies are checked in parallel at a time
+     */
+    private static final int TRANSITIVE_BATCH = 256;
 
     /**
      * @parameter expression="${project}"
      */
     private MavenProject project;
 
+    /**
+     * @parameter expression="${session}"
+     * @readonly
+     */
+    private MavenSession session;
+
     /**
      * @component
      */
     private RepositorySystem repositorySystem;
 
+    /**
+     * @component
+     */
+    private org.apache.maven.project.ProjectDependenciesResolver dependenciesResolver;
+
     /**
      * List of Remote Repositories used by the resolver
      * 
@@ -93,6 +130,29 @@ public class DependencyChecker extends AbstractMojo {
      */
     private boolean failBuild;
 
+    /**
+     * File with the findings accepted on the project, which may be shared by every module. When informed, only the
+     * findings that aren't on the baseline fail the build
+     * 
+     * @parameter expression="${checker.baseline}"
+     */
+    private File baselineFile;
+
+    /**
+     * Replaces the findings of the project on the baseline by the current ones, instead of comparing them
+     * 
+     * @parameter expression="${checker.baseline.update}" default-value="false"
+     */
+    private boolean updateBaseline;
+
+    /**
+     * Stops and fails the build on the first issue found. The checks run from the cheapest to the most expensive, and
+     * the BOMs are only resolved if a dependency needs them.
+     * 
+     * @parameter expression="${checker.failFast}" default-value="false"
+     */
+    private boolean failFast;
+
     /**
      * List of excluded Dependencies
      * 
@@ -100,6 +160,34 @@ public class DependencyChecker extends AbstractMojo {
      */
     private List<String> excludes = new ArrayList<String>();
 
+    /**
+     * File or URL of a policy file with more excluded Dependencies, one per line. Lines starting with # are comments
+     * 
+     * @parameter expression="${checker.excludesFile}"
+     */
+    private String excludesFile;
+
+    /**
+     * Comma separated vendor suffixes accepted as vendor releases, like redhat for 1.0.0.Final-redhat-1
+     * 
+     * @parameter expression="${checker.vendorSuffixes}" default-value="redhat"
+     */
+    private String vendorSuffixes;
+
+    /**
+     * Comma separated qualifiers allowed on vendor releases, like Final,GA,SP. Any qualifier is allowed when empty
+     * 
+     * @parameter expression="${checker.allowedQualifiers}"
+     */
+    private String allowedQualifiers;
+
+    /**
+     * Versions accepted without a vendor suffix, as groupId:artifactId:range, like org.slf4j:*:[1.7,1.8)
+     * 
+     * @parameter
+     */
+    private List<String> allowedVersions = new ArrayList<String>();
+
     /**
      * Holds all project dependencies
      * 
@@ -108,6 +196,95 @@ public class DependencyChecker extends AbstractMojo {
      */
     private List<Dependency> dependencies = new ArrayList<Dependency>();
 
+    /**
+     * Also checks the transitive dependencies of the project
+     * 
+     * @parameter expression="${checker.transitive}" default-value="false"
+     */
+    private boolean transitive;
+
+    /**
+     * Skips the checks and replays the last result when nothing that affects it has changed since the last check
+     * 
+     * @parameter expression="${checker.incremental}" default-value="true"
+     */
+    private boolean incremental;
+
+    /**
+     * @parameter expression="${plugin.version}"
+     * @readonly
+     */
+    private String pluginVersion;
+
+    /**
+     * Reuses the BOM index cached on the local repository between builds
+     * 
+     * @parameter expression="${checker.useCache}" default-value="true"
+     */
+    private boolean useCache;
+
+    /**
+     * Number of dependencies checked at the same time. Uses every available processor when not informed. Fail fast
+     * always checks one dependency at a time
+     * 
+     * @parameter expression="${checker.threads}" default-value="0"
+     */
+    private int threads;
+
+    /**
+     * Pre-built index artifact (groupId:artifactId:version[:classifier]) deployed by the build-index goal. When
+     * informed, its BOM index and relocation table are used instead of fetching the stacks descriptor and resolving
+     * the BOMs
+     * 
+     * @parameter expression="${checker.indexArtifact}"
+     */
+    private String indexArtifact;
+
+    /**
+     * Number of BOMs resolved at the same time when building the BOM index
+     * 
+     * @parameter expression="${checker.resolverThreads}" default-value="4"
+     */
+    private int resolverThreads;
+
+    /**
+     * URL of the stacks descriptor. Uses the jdf-stacks default when not informed
+     * 
+     * @parameter expression="${checker.stacksUrl}"
+     */
+    private String stacksUrl;
+
+    /**
+     * For how long (in seconds) the stacks descriptor snapshot is used without checking the stacks repository for
+     * changes
+     * 
+     * @parameter expression="${checker.stacksSnapshotTtl}" default-value="86400"
+     */
+    private int stacksSnapshotTtl;
+
+    /**
+     * Writes the timers and counters of the check to target/dependency-checker-metrics.json
+     * 
+     * @parameter expression="${checker.metrics}" default-value="true"
+     */
+    private boolean writeMetrics;
+
+    /**
+     * Verifies if each suggested relocation and BOM can be resolved from the configured repositories, annotating it as
+     * available or unavailable
+     * 
+     * @parameter expression="${checker.verifySuggestions}" default-value="false"
+     */
+    private boolean verifySuggestions;
+
+    /**
+     * Comma separated report formats (jsonl, sarif, junit) written to the project build directory, or none. When no
+     * report is written, the details of each issue are logged instead of a short summary.
+     * 
+     * @parameter expression="${checker.reports}" default-value="jsonl"
+     */
+    private String reports;
+
     /**
      * Proxy Host from Settings.xml
      * 
@@ -119,22 +296,65 @@ public class DependencyChecker extends AbstractMojo {
     /**
      * Dependencies and its problems
      */
-    private Map<Dependency, List<String>> nonConformantDependecies = new HashMap<Dependency, List<String>>();
+    private Map<Dependency, List<Issue>> nonConformantDependecies = new LinkedHashMap<Dependency, List<Issue>>();
+
+    /**
+     * Receive each issue as soon as it is found
+     */
+    private List<ReportWriter> reportWriters = new ArrayList<ReportWriter>();
+
+    /**
+     * Relocated dependencies and BOM index shared by all modules of the build
+     */
+    private CheckerResources resources;
+
+    /**
+     * Versions declared on pom.xml
+     */
+    private DeclaredDependencies declaredDependencies;
 
     /**
-     * List of all relocated dependencies
+     * Compiled excludes and excludesFile
      */
-    private Properties relocatedDependencies = new Properties();
+    private ExclusionMatcher exclusionMatcher;
 
     /**
-     * List of all managed Dependencies from each BOM (Bill of Materials)
+     * Compiled vendorSuffixes, allowedQualifiers and allowedVersions
      */
-    private Map<MavenDependency, List<BomVersion>> managedDependencies = new HashMap<MavenDependency, List<BomVersion>>();
+    private VersionPolicy versionPolicy = VersionPolicy.RED_HAT;
 
     /**
-     * Read model from pom.xml
+     * Findings of the project on the baseline, read when fail fast needs them
      */
-    private Model model;
+    private List<String> baselineFindings;
+
+    /**
+     * Runs the checks over the shared resources
+     */
+    private CheckEngine engine;
+
+    /**
+     * Timers and counters of this check
+     */
+    private Metrics metrics = new Metrics();
+
+    public DependencyChecker() {
+    }
+
+    /**
+     * Creates a checker with its resources already loaded, so the checks can run without a Maven session
+     * 
+     * @param resources
+     * @param declaredDependencies
+     * @param excludes
+     */
+    DependencyChecker(CheckerResources resources, DeclaredDependencies declaredDependencies, List<String> excludes) {
+        this.resources = resources;
+        this.declaredDependencies = declaredDependencies;
+        this.excludes = excludes;
+        this.exclusionMatcher = ExclusionMatcher.compile(excludes);
+        this.engine = new CheckEngine(resources, null, declaredDependencies, exclusionMatcher);
+    }
 
     /**
      * Read any needed information that is used by this plugin
@@ -143,239 +363,739 @@ public class DependencyChecker extends AbstractMojo {
      * 
      */
     private void setupResources() throws MojoExecutionException {
-        MavenXpp3Reader reader = new MavenXpp3Reader();
+        // Uses the model as read from pom.xml to determine what version has been informed or not
+        this.declaredDependencies = new DeclaredDependencies(project.getOriginalModel());
+        this.exclusionMatcher = compileExclusions();
         try {
-            // Gets a new model from pom.xml to determine what version has been informed or not
-            this.model = reader.read(new FileReader(project.getFile()));
-        } catch (Exception e) {
-            throw new MojoExecutionException("Problem reading " + project.getFile(), e);
+            this.versionPolicy = VersionPolicy.compile(vendorSuffixes, allowedQualifiers, allowedVersions);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        this.resources = CheckerResources.forSession(session, getResourcesConfiguration(),
+                new Callable<CheckerResources>() {
+
+            public CheckerResources call() throws MojoExecutionException {
+                return loadResources();
+            }
+        });
+        this.engine = new CheckEngine(resources, new Callable<LazyBomIndex>() {
+
+            public LazyBomIndex call() throws MojoExecutionException {
+                BomIndexLoader loader = newBomIndexLoader();
+                return loader.load(loader.fetchBomVersions());
+            }
+        }, declaredDependencies, exclusionMatcher, versionPolicy, failFast, metrics);
+    }
+
+    /**
+     * @return identifies what the shared resources are loaded from, so modules configured differently don't share them
+     */
+    private String getResourcesConfiguration() {
+        Fingerprint configuration = new Fingerprint().add(indexArtifact).add(stacksUrl)
+                .add(String.valueOf(stacksSnapshotTtl)).add(String.valueOf(useCache))
+                .add(String.valueOf(resolverThreads)).add(localRepository.getBasedir());
+        for (ArtifactRepository repository : remoteRepos) {
+            configuration.add(repository.getId()).add(repository.getUrl());
+        }
+        for (Proxy proxy : proxies) {
+            configuration.add(proxy.getId()).add(proxy.getHost() + ":" + proxy.getPort());
+        }
+        return configuration.digestHex();
+    }
+
+    /**
+     * @return the matcher of the excludes and the exclusions from the excludesFile
+     * @throws MojoExecutionException if any exclusion is malformed or the excludesFile can't be read
+     */
+    private ExclusionMatcher compileExclusions() throws MojoExecutionException {
+        List<String> exclusions = new ArrayList<String>(excludes);
+        if (excludesFile != null && excludesFile.trim().length() > 0) {
+            try {
+                exclusions.addAll(readExcludesFile(excludesFile.trim()));
+            } catch (IOException e) {
+                throw new MojoExecutionException("Problem reading the excludes file " + excludesFile, e);
+            }
         }
-        // Load the relocated dependencies
         try {
-            relocatedDependencies.load(this.getClass().getResourceAsStream("/mavenrelocated.properties"));
-        } catch (IOException e) {
-            throw new MojoExecutionException("Problem loading mavenrelocated.properties", e);
+            return ExclusionMatcher.compile(exclusions);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
         }
-        // Uses stacks-client to query all available BOMs
-        Proxy proxy = proxies.size() == 0 ? null : proxies.get(0);
-        StacksClient sc = new StacksClient(new MavenStacksConfiguration(proxy), new MavenStacksMessages(getLog()));
-        List<BomVersion> boms = sc.getStacks().getAvailableBomVersions();
-        for (BomVersion bomVersion : boms) {
-            readBOMArtifact(bomVersion, bomVersion.getBom().getGroupId(), bomVersion.getBom().getArtifactId(),
-                    bomVersion.getVersion());
+    }
+
+    /**
+     * @param location a file or an URL
+     * @return the exclusions, without comments
+     * @throws IOException
+     */
+    private List<String> readExcludesFile(String location) throws IOException {
+        InputStream in;
+        if (location.matches("[a-zA-Z][a-zA-Z0-9+.-]+:.*") && !new File(location).exists()) {
+            in = new URL(location).openStream();
+        } else {
+            in = new FileInputStream(location);
         }
+        List<String> exclusions = new ArrayList<String>();
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (!line.trim().startsWith("#")) {
+                    exclusions.add(line);
+                }
+            }
+        } finally {
+            in.close();
+        }
+        return exclusions;
     }
 
     /**
-     * @param bomVersion
-     * @param groupId
-     * @param artifactId
-     * @param version
+     * Loads the resources that are shared by all modules of the build
+     * 
+     * @return the loaded resources
      * @throws MojoExecutionException
+     */
+    private CheckerResources loadResources() throws MojoExecutionException {
+        metrics.increment("resources.loaded");
+        if (indexArtifact != null && indexArtifact.trim().length() > 0) {
+            return loadIndexArtifact(indexArtifact.trim());
+        }
+        return new CheckerResources(CheckerResources.loadRelocatedDependencies());
+    }
+
+    /**
+     * Resolves and reads the pre-built index artifact
      * 
+     * @param coordinates groupId:artifactId:version[:classifier]
+     * @return the resources read from the index
+     * @throws MojoExecutionException if the artifact can't be resolved or read
      */
-    private void readBOMArtifact(BomVersion bomVersion, String groupId, String artifactId, String version)
-            throws MojoExecutionException {
-        Artifact pomArtifact = repositorySystem.createArtifact(groupId, artifactId, version, "", "pom");
+    private CheckerResources loadIndexArtifact(String coordinates) throws MojoExecutionException {
+        String[] parts = coordinates.split(":");
+        if (parts.length < 3 || parts.length > 4) {
+            throw new MojoExecutionException("The indexArtifact " + coordinates
+                    + " should be groupId:artifactId:version[:classifier]");
+        }
+        long start = System.nanoTime();
+        Artifact artifact = repositorySystem.createArtifactWithClassifier(parts[0], parts[1], parts[2],
+                BomIndexFile.TYPE, parts.length == 4 ? parts[3] : BomIndexFile.CLASSIFIER);
         ArtifactResolutionRequest arr = new ArtifactResolutionRequest();
-        arr.setArtifact(pomArtifact).setRemoteRepositories(remoteRepos).setLocalRepository(localRepository);
+        arr.setArtifact(artifact).setRemoteRepositories(remoteRepos).setLocalRepository(localRepository);
         repositorySystem.resolve(arr);
+        if (artifact.getFile() == null || !artifact.getFile().isFile()) {
+            throw new MojoExecutionException("Can't resolve the index artifact " + coordinates);
+        }
+        metrics.time("index.resolve", start);
+        start = System.nanoTime();
         try {
-            readBOM(bomVersion, pomArtifact);
-        } catch (Exception e) {
-            throw new MojoExecutionException("Can't read the POM " + pomArtifact, e);
+            BomIndexFile indexFile = BomIndexFile.read(artifact.getFile());
+            metrics.time("index.read", start);
+            getLog().debug("Using the index " + artifact.getFile());
+            return new CheckerResources(indexFile.getRelocatedDependencies(), indexFile.getBomIndex(),
+                    artifact.getFile());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Can't read the index artifact " + artifact.getFile(), e);
         }
-
     }
 
     /**
-     * @param bomVersion
-     * @param pomArtifact
-     * @throws Exception
+     * @return the loader of the BOM index, using the build settings
+     * @throws MojoExecutionException
      */
-    private void readBOM(BomVersion bomVersion, Artifact pomArtifact) throws Exception {
-        if (pomArtifact.getFile().exists()) {
-            MavenXpp3Reader reader = new MavenXpp3Reader();
-            Model model = reader.read(new FileReader(pomArtifact.getFile()));
-            // recursive parent search
-            if (model.getParent() != null) {
-                Parent p = model.getParent();
-                readBOMArtifact(bomVersion, p.getGroupId(), p.getArtifactId(), p.getVersion());
-            }
-            if (model.getDependencyManagement() != null) {
-                for (Dependency dep : model.getDependencyManagement().getDependencies()) {
-                    MavenDependency mvnDependency = new MavenDependency(dep.getGroupId(), dep.getArtifactId());
-                    if (managedDependencies.get(mvnDependency) == null) {
-                        managedDependencies.put(mvnDependency, new ArrayList<BomVersion>());
-                    }
-                    managedDependencies.get(mvnDependency).add(bomVersion);
-                }
-            }
-        } else {
-            String msg = String
-                    .format("BOM %s (from jdf-stacks) was not found. Maybe you need to setup a EAP/WFK repository on your settings.xml",
-                            pomArtifact);
-            getLog().warn(msg);
-        }
+    private BomIndexLoader newBomIndexLoader() throws MojoExecutionException {
+        Proxy proxy = proxies.size() == 0 ? null : proxies.get(0);
+        File localRepositoryDirectory = new File(localRepository.getBasedir());
+        MavenStacksConfiguration stacksConfiguration = BomIndexLoader.newStacksConfiguration(proxy,
+                !session.isOffline(), localRepositoryDirectory, stacksSnapshotTtl, stacksUrl);
+        PomResolver pomResolver = new RepositoryPomResolver(repositorySystem, remoteRepos, localRepository);
+        return new BomIndexLoader(stacksConfiguration, pomResolver, localRepositoryDirectory, useCache,
+                resolverThreads, getLog(), metrics);
     }
 
     public void execute() throws MojoExecutionException {
+        long start = System.nanoTime();
+        try {
+            check();
+        } finally {
+            metrics.time("execute", start);
+            reportMetrics();
+        }
+    }
+
+    /**
+     * Checks the project dependencies and prints the result
+     * 
+     * @throws MojoExecutionException
+     */
+    private void check() throws MojoExecutionException {
         setupResources();
-        // Process each Dependency
-        for (Dependency dependency : dependencies) {
-            if (!isExcludedDependency(dependency)) {
-                checkNoRedHatRelease(dependency); // feature 1
-                checkRelocateDependency(dependency); // feature 2
-                checkIfHasBomForIt(dependency); // feature 3
-            }
+        openReports();
+        try {
+            checkAndReport();
+        } finally {
+            closeReports();
         }
+        boolean newFindings = compareWithBaseline();
         // Prints the result
         if (nonConformantDependecies.size() > 0) {
             printExecutionResult();
+            printBomPlan();
             // Should fail the build?
-            if (failBuild) {
+            if ((failBuild || failFast) && newFindings) {
                 throw new MojoExecutionException("Project has non conformant Depencies. Check the logs above.");
             }
         }
     }
 
     /**
+     * Compares the findings with the baseline, or updates the baseline, when it is informed
      * 
-     * Check if this dependency has a BOM (Bill of Materials) for it
+     * @return true if any finding isn't on the baseline
+     * @throws MojoExecutionException if the baseline can't be read or written
+     */
+    private boolean compareWithBaseline() throws MojoExecutionException {
+        if (baselineFile == null) {
+            return true;
+        }
+        long start = System.nanoTime();
+        FindingsBaseline baseline = new FindingsBaseline(baselineFile);
+        SortedSet<String> findings = FindingsBaseline.findings(getModule(), nonConformantDependecies);
+        try {
+            if (updateBaseline) {
+                baseline.update(getModule(), findings);
+                getLog().info(String.format("Updated the baseline %s with %d findings", baselineFile, findings.size()));
+                return false;
+            }
+            if (!baseline.exists()) {
+                getLog().warn("The baseline " + baselineFile + " doesn't exist. Every finding is new");
+            }
+            FindingsBaseline.Diff diff = baseline.diff(getModule(), findings);
+            metrics.add("baseline.new", diff.getNewFindings().size());
+            metrics.add("baseline.fixed", diff.getFixed());
+            if (!diff.getNewFindings().isEmpty()) {
+                StringBuilder sb = new StringBuilder(String.format("%d of the %d findings aren't on the baseline %s:",
+                        diff.getNewFindings().size(), findings.size(), baselineFile));
+                for (String finding : diff.getNewFindings()) {
+                    sb.append("\n\t- ").append(finding.substring(getModule().length() + 1));
+                }
+                getLog().warn(sb);
+            } else if (!findings.isEmpty()) {
+                getLog().info("All the " + findings.size() + " findings are on the baseline " + baselineFile);
+            }
+            if (diff.getFixed() > 0) {
+                getLog().info(String.format("%d findings of the baseline were fixed. Update the baseline with "
+                        + "-Dchecker.baseline.update=true", diff.getFixed()));
+            }
+            return !diff.getNewFindings().isEmpty();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Problem with the baseline " + baselineFile + ": " + e.getMessage(), e);
+        } finally {
+            metrics.time("baseline", start);
+        }
+    }
+
+    /**
+     * @return true if any finding so far isn't on the baseline (or there is no baseline)
+     * @throws MojoExecutionException if the baseline can't be read
+     */
+    private boolean hasNewFindings() throws MojoExecutionException {
+        if (baselineFile == null) {
+            return true;
+        }
+        // The baseline is only complete if every dependency is checked
+        if (updateBaseline) {
+            return false;
+        }
+        if (baselineFindings == null) {
+            try {
+                baselineFindings = new FindingsBaseline(baselineFile).read(getModule());
+            } catch (IOException e) {
+                throw new MojoExecutionException("Problem with the baseline " + baselineFile + ": "
+                        + e.getMessage(), e);
+            }
+        }
+        for (String finding : FindingsBaseline.findings(getModule(), nonConformantDependecies)) {
+            if (Collections.binarySearch(baselineFindings, finding) < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return groupId:artifactId of the project, identifying its findings on the baseline
+     */
+    private String getModule() {
+        return project.getGroupId() + ":" + project.getArtifactId();
+    }
+
+    /**
+     * Checks the project dependencies (or replays the last result), sending each issue to the reports
      * 
-     * @param dependency
      * @throws MojoExecutionException
      */
-    private void checkIfHasBomForIt(Dependency dependency) throws MojoExecutionException {
-        // Only check dependencies that has declared version
-        if (hasDeclaredVersion(dependency)) {
-            MavenDependency mvnDependency = new MavenDependency(dependency.getGroupId(), dependency.getArtifactId());
-            // If it has managed Dependency in any BOM
-            if (managedDependencies.get(mvnDependency) != null) {
-                StringBuilder sb = new StringBuilder("Declared version [" + dependency.getVersion() + "]. ");
-                sb.append("You should remove the version and use the following BOM: \n");
-                List<BomVersion> boms = managedDependencies.get(mvnDependency);
-                for (BomVersion bomVersion : boms) {
-                    sb.append(String.format("\t\t - %s:%s:%s", bomVersion.getBom().getGroupId(), bomVersion.getBom()
-                            .getArtifactId(), bomVersion.getVersion()));
-                    // Add 'or' until the last item
-                    if (bomVersion != boms.get(boms.size() - 1)) {
-                        sb.append("\n\t\t or \n");
-                    }
+    private void checkAndReport() throws MojoExecutionException {
+        DependencyGraph transitiveGraph = null;
+        CheckResultCache resultCache = null;
+        String fingerprint = null;
+        Map<Dependency, List<Issue>> previousResult = null;
+        // The last result can only be validated with the BOM index, which fail fast avoids loading
+        if (incremental && !failFast) {
+            if (transitive) {
+                transitiveGraph = collectTransitiveDependencies();
+            }
+            resultCache = new CheckResultCache(new File(project.getBuild().getDirectory(), CheckResultCache.STATE_FILE),
+                    getLog());
+            fingerprint = computeFingerprint(transitiveGraph);
+            previousResult = resultCache.load(fingerprint);
+        }
+        if (previousResult != null) {
+            getLog().info("Nothing has changed since the last check. Replaying its result");
+            metrics.increment("result.replayed");
+            nonConformantDependecies = previousResult;
+            for (Map.Entry<Dependency, List<Issue>> entry : previousResult.entrySet()) {
+                for (Issue issue : entry.getValue()) {
+                    writeToReports(entry.getKey(), issue);
                 }
-                addIssueToDepency(dependency, sb.toString());
+            }
+        } else {
+            // Fail fast suggests the first BOM found instead of waiting for all of them. Otherwise the BOMs are planned
+            // when the first dependency managed by some BOM is checked, so the checks don't wait for the BOMs up front
+            if (!failFast) {
+                engine.planBomsOnDemand(dependencies);
+            }
+            // Process each Dependency
+            checkDependencies(dependencies);
+            if (transitive) {
+                // Only collected after the declared dependencies pass, when not collected already
+                if (transitiveGraph == null) {
+                    transitiveGraph = collectTransitiveDependencies();
+                }
+                checkTransitiveDependencies(transitiveGraph);
+            }
+            if (resultCache != null) {
+                resultCache.store(fingerprint, nonConformantDependecies);
             }
         }
     }
 
     /**
-     * Search Model declared dependencies to see if it has a declared version
+     * Starts each configured report
      * 
-     * @param dependency dependency to check if has declared dependency
+     * @throws MojoExecutionException
+     */
+    private void openReports() throws MojoExecutionException {
+        if (reports == null || reports.trim().length() == 0 || "none".equalsIgnoreCase(reports.trim())) {
+            return;
+        }
+        File directory = new File(project.getBuild().getDirectory());
+        for (String format : reports.split(",")) {
+            ReportFormat reportFormat;
+            try {
+                reportFormat = ReportFormat.of(format);
+            } catch (IllegalArgumentException e) {
+                throw new MojoExecutionException("Unknown report format " + format + ". Use jsonl, sarif or junit");
+            }
+            try {
+                reportWriters.add(reportFormat.open(directory, project.getId(), project.getFile()));
+            } catch (IOException e) {
+                getLog().warn("Can't write the " + format + " report: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sends the issue to each report. A report that can't be written is dropped.
      * 
-     * @return true if has declared dependency
+     * @param dependency
+     * @param issue
+     */
+    private void writeToReports(Dependency dependency, Issue issue) {
+        for (Iterator<ReportWriter> it = reportWriters.iterator(); it.hasNext();) {
+            ReportWriter reportWriter = it.next();
+            try {
+                reportWriter.write(dependency, issue);
+            } catch (IOException e) {
+                getLog().warn("Can't write " + reportWriter.getFile() + ": " + e.getMessage());
+                it.remove();
+            }
+        }
+    }
+
+    private void closeReports() {
+        for (ReportWriter reportWriter : reportWriters) {
+            try {
+                reportWriter.close();
+            } catch (IOException e) {
+                getLog().warn("Can't write " + reportWriter.getFile() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Runs all checks on the given dependencies, except the excluded ones. Without fail fast the dependencies are
+     * checked in parallel, and their issues reported on the order of the dependencies.
+     * 
+     * @param toCheck
      * @throws MojoExecutionException
      */
-    private boolean hasDeclaredVersion(Dependency dependency) throws MojoExecutionException {
-        for (Dependency dep : model.getDependencies()) {
-            if (dep.getGroupId().equals(dependency.getGroupId()) && dep.getArtifactId().equals(dependency.getArtifactId())) {
-                return dep.getVersion() != null;
+    private void checkDependencies(List<Dependency> toCheck) throws MojoExecutionException {
+        if (verifySuggestions) {
+            engine.verifySuggestions(resources.getSuggestionAvailability(new RepositoryPomResolver(repositorySystem,
+                    remoteRepos, localRepository), resolverThreads), toCheck, metrics);
+        }
+        if (failFast) {
+            for (Dependency dependency : toCheck) {
+                checkDependency(dependency);
+            }
+            return;
+        }
+        List<Dependency> included = new ArrayList<Dependency>(toCheck.size());
+        for (Dependency dependency : toCheck) {
+            metrics.increment("dependencies.checked");
+            if (isExcludedDependency(dependency)) {
+                metrics.increment("dependencies.excluded");
+            } else {
+                included.add(dependency);
+            }
+        }
+        List<List<Issue>> issues = engine.checkParallel(included, threads > 0 ? threads : Runtime.getRuntime()
+                .availableProcessors());
+        for (int i = 0; i < included.size(); i++) {
+            for (Issue issue : issues.get(i)) {
+                addIssueToDepency(included.get(i), issue);
             }
         }
-        return false;
     }
 
     /**
-     * Checks if the dependency was excluded in plugin configuration groupId:artifactId
+     * Runs all checks on the given dependency, unless it was excluded, stopping on the first issue with fail fast
      * 
      * @param dependency
+     * @throws MojoExecutionException
+     */
+    private void checkDependency(Dependency dependency) throws MojoExecutionException {
+        metrics.increment("dependencies.checked");
+        if (!isExcludedDependency(dependency)) {
+            // From the cheapest to the most expensive check, so fail fast stops as soon as possible
+            for (DependencyCheck check : engine.getChecks()) {
+                for (Issue issue : engine.check(dependency, check)) {
+                    addIssueToDepency(dependency, issue);
+                }
+                stopOnIssue();
+            }
+        } else {
+            metrics.increment("dependencies.excluded");
+        }
+    }
+
+    /**
+     * Fails the build if fail fast is enabled and an issue was found
      * 
-     * @return true if was excluded
+     * @throws MojoExecutionException
      */
-    private boolean isExcludedDependency(Dependency dependency) {
-        for (String dep : excludes) {
-            String[] depsplit = dep.split(":");
-            if (dependency.getGroupId().equals(depsplit[0]) && dependency.getArtifactId().equals(depsplit[1])) {
-                getLog().warn(dependency + " will not be checked. Marked as excluded: " + dep);
+    private void stopOnIssue() throws MojoExecutionException {
+        if (failFast && nonConformantDependecies.size() > 0 && hasNewFindings()) {
+            printExecutionResult();
+            throw new MojoExecutionException("Project has non conformant Depencies (fail fast). Check the logs above.");
+        }
+    }
+
+    /**
+     * Writes the metrics report and logs it on debug level
+     */
+    private void reportMetrics() {
+        if (getLog().isDebugEnabled()) {
+            getLog().debug("Dependency checker metrics:\n" + metrics.toJson(project.getId()));
+        }
+        if (writeMetrics) {
+            File metricsFile = new File(project.getBuild().getDirectory(), METRICS_FILE);
+            try {
+                metrics.writeJson(metricsFile, project.getId());
+            } catch (IOException e) {
+                getLog().warn("Can't write " + metricsFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Collects the dependency graph of the project, including the transitive dependencies, with the Maven 3.0
+     * compatible {@link org.apache.maven.project.ProjectDependenciesResolver}. No artifact file is downloaded.
+     * 
+     * @return the graph of the project, already mediated by Maven
+     * @throws MojoExecutionException
+     */
+    private DependencyGraph collectTransitiveDependencies() throws MojoExecutionException {
+        long start = System.nanoTime();
+        try {
+            return DependencyGraph.collect(dependenciesResolver, project, session);
+        } finally {
+            metrics.time("transitive.collect", start);
+        }
+    }
+
+    /**
+     * Computes the fingerprint of everything that affects the check result: the plugin version, the pom.xml, the
+     * dependencies, the exclude list, the relocation table and the BOM index
+     * 
+     * @param transitiveGraph the graph of the project or null if only the declared dependencies are checked
+     * @return the fingerprint
+     * @throws MojoExecutionException
+     */
+    private String computeFingerprint(DependencyGraph transitiveGraph) throws MojoExecutionException {
+        Fingerprint fingerprint = new Fingerprint().add(pluginVersion);
+        try {
+            fingerprint.addContents(project.getFile());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Problem reading " + project.getFile(), e);
+        }
+        for (Dependency dependency : dependencies) {
+            fingerprint.add(dependency.getManagementKey() + ":" + dependency.getVersion());
+        }
+        fingerprint.add(String.valueOf(transitiveGraph != null));
+        fingerprint.add(String.valueOf(verifySuggestions));
+        if (transitiveGraph != null) {
+            final Fingerprint graphFingerprint = fingerprint;
+            transitiveGraph.accept(new DependencyGraph.Visitor() {
+
+                public void visit(Dependency dependency) {
+                    graphFingerprint.add(dependency.getManagementKey() + ":" + dependency.getVersion() + ":"
+                            + dependency.getScope());
+                }
+            });
+        }
+        fingerprint.add(exclusionMatcher.getFingerprint());
+        fingerprint.add(versionPolicy.toString());
+        fingerprint.add(resources.getRelocatedDependencies().getFingerprint());
+        for (DependencyCheck check : engine.getChecks()) {
+            fingerprint.add(check.getId() + ":" + check.getFingerprint());
+        }
+        // The BOMs only matter (and are only loaded) when some dependency declares its version
+        if (hasDeclaredVersions(transitiveGraph)) {
+            fingerprint.add(computeBomIndexFingerprint());
+        } else {
+            fingerprint.add("no declared versions");
+        }
+        return fingerprint.digestHex();
+    }
+
+    /**
+     * Identifies the BOM index without loading it when possible: by the index artifact or by the stacks descriptor
+     * snapshot and the cached index the BOM index loader would read
+     * 
+     * @return the fingerprint of the BOM index
+     * @throws MojoExecutionException if the index had to be loaded and it failed
+     */
+    private String computeBomIndexFingerprint() throws MojoExecutionException {
+        File indexFile = resources.getIndexFile();
+        if (indexFile != null) {
+            return new Fingerprint().add("index artifact").addIdentity(indexFile).digestHex();
+        }
+        String cachedIndex = newBomIndexLoader().computeIndexFingerprint();
+        if (cachedIndex != null) {
+            return new Fingerprint().add("cached index").add(cachedIndex).digestHex();
+        }
+        metrics.increment("fingerprint.bomIndexLoaded");
+        return engine.getBomIndex().getIndex().getFingerprint();
+    }
+
+    /**
+     * @param transitiveGraph the graph of the project or null if only the declared dependencies are checked
+     * @return true if any dependency that is checked declares its version on pom.xml
+     * @throws MojoExecutionException
+     */
+    private boolean hasDeclaredVersions(DependencyGraph transitiveGraph) throws MojoExecutionException {
+        for (Dependency dependency : dependencies) {
+            if (declaredDependencies.hasDeclaredVersion(new MavenDependency(dependency.getGroupId(), dependency
+                    .getArtifactId()))) {
                 return true;
             }
+        }
+        if (transitiveGraph != null) {
+            final boolean[] declaredVersion = new boolean[1];
+            transitiveGraph.accept(new DependencyGraph.Visitor() {
 
+                public void visit(Dependency dependency) {
+                    declaredVersion[0] |= declaredDependencies.hasDeclaredVersion(new MavenDependency(dependency
+                            .getGroupId(), dependency.getArtifactId()));
+                }
+            });
+            return declaredVersion[0];
         }
         return false;
     }
 
     /**
-     * @param dependency
+     * Checks the dependencies of the project that weren't declared on it while the graph is walked, each
+     * groupId:artifactId:version only once. With fail fast each one is checked as soon as it is visited; otherwise
+     * they are checked in parallel, {@link #TRANSITIVE_BATCH} at a time, so no copy of the whole graph is kept.
+     * 
+     * @param graph the graph of the project, as collected by {@link #collectTransitiveDependencies()}
+     * @throws MojoExecutionException
      */
-    private void checkRelocateDependency(Dependency dependency) {
-        for (Object o : relocatedDependencies.keySet()) {
-            String key = (String) o;
-            // Check the if groupdId or artifactId contains any relocated dependency
-            if ((dependency.getGroupId().contains(key) || dependency.getArtifactId().contains(key))) {
-                String relocated = relocatedDependencies.getProperty(key);
-                // if this groupdId isn't already relocated
-                if (!relocated.contains(dependency.getGroupId())) {
-                    String[] proposed = relocated.split("[|]");
-                    StringBuilder sb = new StringBuilder("You shoud replace this dependency by: \n");
-                    for (String dep : proposed) {
-                        sb.append("\t\t - " + dep);
-                        // Add 'or' until the last item
-                        if (dep != proposed[proposed.length - 1]) {
-                            sb.append("\n\t\t or \n");
-                        }
-                    }
-                    addIssueToDepency(dependency, sb.toString());
+    private void checkTransitiveDependencies(DependencyGraph graph) throws MojoExecutionException {
+        // Declared dependencies were already checked
+        final Set<String> declared = new HashSet<String>();
+        for (Dependency dependency : dependencies) {
+            declared.add(dependency.getGroupId() + ":" + dependency.getArtifactId() + ":" + dependency.getVersion());
+        }
+        final List<Dependency> batch = new ArrayList<Dependency>(TRANSITIVE_BATCH);
+        int visited = graph.accept(new DependencyGraph.Visitor() {
+
+            public void visit(Dependency dependency) throws MojoExecutionException {
+                if (declared.contains(dependency.getGroupId() + ":" + dependency.getArtifactId() + ":"
+                        + dependency.getVersion())) {
+                    return;
+                }
+                if (failFast) {
+                    checkDependency(dependency);
+                    return;
+                }
+                batch.add(dependency);
+                if (batch.size() == TRANSITIVE_BATCH) {
+                    checkDependencies(batch);
+                    batch.clear();
                 }
             }
+        });
+        if (!batch.isEmpty()) {
+            checkDependencies(batch);
         }
+        metrics.add("transitive.artifacts", visited);
     }
 
     /**
-     * Verifies if this dependency ends or not with -redhat-N
+     * Checks if the dependency was excluded in plugin configuration groupId:artifactId
      * 
      * @param dependency
+     * 
+     * @return true if was excluded
      */
-    private void checkNoRedHatRelease(Dependency dependency) {
-        if (!patternRedHat.matcher(dependency.getVersion()).matches()) {
-            addIssueToDepency(dependency, "This dependency isn't a Red Hat Release *");
+    boolean isExcludedDependency(Dependency dependency) {
+        String exclusion = engine.findExclusion(dependency);
+        if (exclusion != null) {
+            getLog().warn(dependency + " will not be checked. Marked as excluded: " + exclusion);
+            return true;
         }
+        return false;
+    }
 
+    /**
+     * @param dependency
+     */
+    void checkRelocateDependency(Dependency dependency) {
+        for (Issue issue : engine.checkRelocation(dependency)) {
+            addIssueToDepency(dependency, issue);
+        }
+    }
+
+    /**
+     * Verifies if this dependency ends or not with -redhat-N
+     * 
+     * @param dependency
+     */
+    void checkNoRedHatRelease(Dependency dependency) {
+        addIssueToDepency(dependency, engine.checkRedHatRelease(dependency));
     }
 
     /**
      * @param dependency
-     * @param string
+     * @param issue the issue found, if any
      */
-    private void addIssueToDepency(Dependency dependency, String issue) {
+    private void addIssueToDepency(Dependency dependency, Issue issue) {
+        if (issue == null) {
+            return;
+        }
         if (nonConformantDependecies.get(dependency) == null) {
-            nonConformantDependecies.put(dependency, new ArrayList<String>());
+            nonConformantDependecies.put(dependency, new ArrayList<Issue>());
         }
         nonConformantDependecies.get(dependency).add(issue);
+        metrics.increment("issues." + issue.getId());
+        writeToReports(dependency, issue);
+    }
 
+    /**
+     * @return the dependencies with problems found so far and their issues
+     */
+    Map<Dependency, List<Issue>> getNonConformantDependencies() {
+        return nonConformantDependecies;
     }
 
     /**
-     * Prints detailed infornation about non conformant dependencies and it issues
+     * Prints a summary of the issues and where their details were reported, or the details of each issue when no report
+     * was written
      */
     private void printExecutionResult() {
+        if (reportWriters.isEmpty()) {
+            printIssues();
+            return;
+        }
+        Map<IssueType, Integer> issuesByType = new EnumMap<IssueType, Integer>(IssueType.class);
+        int issues = 0;
+        for (List<Issue> dependencyIssues : nonConformantDependecies.values()) {
+            for (Issue issue : dependencyIssues) {
+                Integer count = issuesByType.get(issue.getType());
+                issuesByType.put(issue.getType(), count == null ? 1 : count + 1);
+                issues++;
+            }
+        }
         StringBuilder sb = new StringBuilder();
-        for (Dependency dependency : nonConformantDependecies.keySet()) {
-            sb.append(String.format("\n- Dependency: %s:%s:%s\n", dependency.getGroupId(), dependency.getArtifactId(),
+        sb.append(String.format("Found %d issues on %d dependencies:", issues, nonConformantDependecies.size()));
+        for (Map.Entry<IssueType, Integer> entry : issuesByType.entrySet()) {
+            sb.append(String.format("\n\t- %s: %d", entry.getKey().getDescription(), entry.getValue()));
+        }
+        sb.append("\nDetails on:");
+        for (ReportWriter reportWriter : reportWriters) {
+            sb.append("\n\t- ").append(reportWriter.getFile());
+        }
+        log(sb);
+    }
+
+    /**
+     * Prints the BOMs proposed for the project, when they were planned
+     */
+    private void printBomPlan() {
+        BomPlan bomPlan = engine.getPlannedBoms();
+        if (bomPlan == null || bomPlan.isEmpty()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder("Recommended BOMs:");
+        for (BomPlan.Suggestion suggestion : bomPlan.getSuggestions()) {
+            sb.append(String.format("\n\t- %s manages %d of the declared versions (%d on the same version)",
+                    suggestion, suggestion.getCovered(), suggestion.getSameVersion()));
+        }
+        log(sb);
+    }
+
+    /**
+     * Prints detailed infornation about non conformant dependencies and it issues, one dependency at a time
+     */
+    private void printIssues() {
+        for (Map.Entry<Dependency, List<Issue>> entry : nonConformantDependecies.entrySet()) {
+            Dependency dependency = entry.getKey();
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("- Dependency: %s:%s:%s", dependency.getGroupId(), dependency.getArtifactId(),
                     dependency.getVersion()));
-            for (String issue : nonConformantDependecies.get(dependency)) {
-                sb.append("\t- " + issue + "\n");
+            for (Issue issue : entry.getValue()) {
+                sb.append("\n\t- " + issue.getMessage());
             }
+            log(sb);
         }
         // Add instructions about Red Hat Release
-        sb.append("\n* NOTE: Red Hat release dependencies has '-redhat-N' suffix in its version number. " +
+        log("* NOTE: Red Hat release dependencies has '-redhat-N' suffix in its version number. " +
         		"You should configure a EAP Maven repository and use only those artifact versions provided by EAP Maven Repository." +
         		"\n\t - More information: https://access.redhat.com/knowledge/docs/en-US/JBoss_Enterprise_Application_Platform/6/html/Development_Guide/Configure_the_JBoss_Enterprise_Application_Platform_Maven_Repository_Using_the_Project_POM.html" +
         		"\n\t - EAP Maven Repository Download: https://access.redhat.com/jbossnetwork/restricted/listSoftware.html");
-        // choose the right log level based on failBuild property
-        if (failBuild) {
-            getLog().error(sb);
+    }
+
+    /**
+     * choose the right log level based on failBuild property
+     */
+    private void log(CharSequence message) {
+        if (failBuild || failFast) {
+            getLog().error(message);
         } else {
-            getLog().warn(sb);
+            getLog().warn(message);
         }
     }
 
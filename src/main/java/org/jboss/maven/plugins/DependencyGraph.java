@@ -0,0 +1,222 @@
+package org.jboss.maven.plugins;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Set;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.DefaultDependencyResolutionRequest;
+import org.apache.maven.project.DependencyResolutionException;
+import org.apache.maven.project.DependencyResolutionResult;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.ProjectDependenciesResolver;
+
+/**
+ * The dependency graph of a project, as collected by Maven, walked node by node instead of copied.
+ *
+ * The graph is made of Aether nodes: org.sonatype.aether on Maven 3.0 and org.eclipse.aether since Maven 3.1. Both
+ * have the same methods, so the nodes are read by reflection and the plugin runs on either. No artifact file is
+ * downloaded: the resolution filter rejects every dependency, so only the POMs needed by the graph are read.
+ *
+ */
+final class DependencyGraph {
+
+    /**
+     * Told about each dependency of the graph
+     */
+    interface Visitor {
+
+        /**
+         * @param dependency a dependency of the graph, never seen before on this walk
+         * @throws MojoExecutionException to stop the walk
+         */
+        void visit(Dependency dependency) throws MojoExecutionException;
+
+    }
+
+    /**
+     * The resolution filter, whatever the Aether version
+     */
+    private static final InvocationHandler REJECT_ALL = new InvocationHandler() {
+
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if ("equals".equals(method.getName())) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(method.getName())) {
+                return System.identityHashCode(proxy);
+            } else if ("toString".equals(method.getName())) {
+                return "reject all";
+            }
+            return Boolean.FALSE;
+        }
+    };
+
+    private final Object root;
+
+    private DependencyGraph(Object root) {
+        this.root = root;
+    }
+
+    /**
+     * Collects the dependencies of all scopes of the project, mediated like Maven does for the build
+     *
+     * @param resolver
+     * @param project
+     * @param session
+     * @return the graph of the project
+     * @throws MojoExecutionException if the graph couldn't be collected
+     */
+    static DependencyGraph collect(ProjectDependenciesResolver resolver, MavenProject project, MavenSession session)
+            throws MojoExecutionException {
+        DefaultDependencyResolutionRequest request = new DefaultDependencyResolutionRequest();
+        request.setMavenProject(project);
+        Method setRepositorySession = findMethod(request, "setRepositorySession");
+        Method setResolutionFilter = findMethod(request, "setResolutionFilter");
+        Class<?> filterType = setResolutionFilter.getParameterTypes()[0];
+        try {
+            setRepositorySession.invoke(request, invoke(session, "getRepositorySession"));
+            setResolutionFilter.invoke(request,
+                    Proxy.newProxyInstance(filterType.getClassLoader(), new Class<?>[] { filterType }, REJECT_ALL));
+            DependencyResolutionResult result = resolver.resolve(request);
+            return new DependencyGraph(invoke(result, "getDependencyGraph"));
+        } catch (DependencyResolutionException e) {
+            throw new MojoExecutionException("Problem collecting the transitive dependencies of " + project.getId(), e);
+        } catch (IllegalAccessException e) {
+            throw new MojoExecutionException("Unsupported Maven dependency resolver", e);
+        } catch (InvocationTargetException e) {
+            throw new MojoExecutionException("Problem collecting the transitive dependencies of " + project.getId(),
+                    e.getCause());
+        }
+    }
+
+    /**
+     * Walks the graph depth first, in the order the dependencies are declared. Each groupId:artifactId:version is
+     * visited (and its dependencies walked) only once.
+     *
+     * @param visitor
+     * @return how many dependencies were visited
+     * @throws MojoExecutionException if the visitor stopped the walk
+     */
+    int accept(Visitor visitor) throws MojoExecutionException {
+        Set<String> visited = new HashSet<String>();
+        Deque<Object> pending = new ArrayDeque<Object>();
+        pushChildren(pending, root);
+        while (!pending.isEmpty()) {
+            Object node = pending.pop();
+            Object nodeDependency = invoke(node, "getDependency");
+            Object artifact = invoke(nodeDependency, "getArtifact");
+            Dependency dependency = new Dependency();
+            dependency.setGroupId((String) invoke(artifact, "getGroupId"));
+            dependency.setArtifactId((String) invoke(artifact, "getArtifactId"));
+            dependency.setVersion((String) invoke(artifact, "getBaseVersion"));
+            if (visited.add(dependency.getGroupId() + ":" + dependency.getArtifactId() + ":"
+                    + dependency.getVersion())) {
+                String classifier = (String) invoke(artifact, "getClassifier");
+                dependency.setClassifier(classifier.length() > 0 ? classifier : null);
+                dependency.setType(getType(artifact));
+                dependency.setScope((String) invoke(nodeDependency, "getScope"));
+                visitor.visit(dependency);
+                pushChildren(pending, node);
+            }
+        }
+        return visited.size();
+    }
+
+    private static void pushChildren(Deque<Object> pending, Object node) throws MojoExecutionException {
+        List<?> children = (List<?>) invoke(node, "getChildren");
+        // Backwards, so they are popped in their order
+        for (ListIterator<?> i = children.listIterator(children.size()); i.hasPrevious();) {
+            pending.push(i.previous());
+        }
+    }
+
+    /**
+     * @param artifact
+     * @return the type of the dependency, kept as a property of the artifact
+     * @throws MojoExecutionException
+     */
+    private static String getType(Object artifact) throws MojoExecutionException {
+        try {
+            return (String) getMethod(artifact.getClass(), "getProperty", String.class, String.class).invoke(artifact, "type", invoke(artifact, "getExtension"));
+        } catch (Exception e) {
+            throw new MojoExecutionException("Unsupported Maven dependency graph", e);
+        }
+    }
+
+    private static Object invoke(Object target, String method) throws MojoExecutionException {
+        try {
+            return getMethod(target.getClass(), method).invoke(target);
+        } catch (Exception e) {
+            throw new MojoExecutionException("Unsupported Maven dependency graph", e);
+        }
+    }
+
+    /**
+     * Finds the method on a public type, as the implementation classes may not be public
+     *
+     * @param type
+     * @param name
+     * @param parameterTypes
+     * @return the method, declared by a public type
+     * @throws NoSuchMethodException
+     */
+    private static Method getMethod(Class<?> type, String name, Class<?>... parameterTypes)
+            throws NoSuchMethodException {
+        Method method = type.getMethod(name, parameterTypes);
+        if (Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            return method;
+        }
+        for (Class<?> superType = type; superType != null; superType = superType.getSuperclass()) {
+            for (Class<?> implemented : superType.getInterfaces()) {
+                try {
+                    return getMethod(implemented, name, parameterTypes);
+                } catch (NoSuchMethodException e) {
+                    // Declared by another interface
+                }
+            }
+        }
+        throw new NoSuchMethodException(type.getName() + "." + name + " isn't declared by a public type");
+    }
+
+    private static Method findMethod(Object target, String name) throws MojoExecutionException {
+        for (Method method : target.getClass().getMethods()) {
+            if (method.getName().equals(name) && method.getParameterTypes().length == 1) {
+                return method;
+            }
+        }
+        throw new MojoExecutionException("Unsupported Maven dependency resolver: no " + name);
+    }
+
+}
@@ -0,0 +1,297 @@
+package org.jboss.maven.plugins;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.maven.model.Dependency;
+
+/**
+ * The findings accepted on a project, so only new findings fail the build.
+ *
+ * The baseline is a text file with one finding per line: the module (groupId:artifactId), the dependency
+ * (groupId:artifactId) and the issue id, separated by spaces. Versions aren't part of a finding, so upgrading a
+ * dependency that still has the same issue isn't a new finding. The lines are kept sorted, which puts the findings of
+ * each module together: a single baseline can be shared by every module of a repository, and comparing or updating
+ * the findings of a module is a merge of the file with the (sorted) findings of the module, reading the file only
+ * once and never keeping it in memory.
+ *
+ */
+public class FindingsBaseline {
+
+    private static final String HEADER = "# dependency-checker baseline: <module> <dependency> <issue id>";
+
+    /**
+     * Modules of a parallel build updating the same baseline
+     */
+    private static final Object UPDATE_LOCK = new Object();
+
+    private final File file;
+
+    /**
+     * @param file
+     */
+    public FindingsBaseline(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @param module groupId:artifactId of the checked project
+     * @param result the dependencies with issues and their issues
+     * @return the findings of the module, sorted as on the baseline
+     */
+    public static SortedSet<String> findings(String module, Map<Dependency, List<Issue>> result) {
+        SortedSet<String> findings = new TreeSet<String>();
+        for (Map.Entry<Dependency, List<Issue>> entry : result.entrySet()) {
+            String prefix = module + " " + entry.getKey().getGroupId() + ":" + entry.getKey().getArtifactId() + " ";
+            for (Issue issue : entry.getValue()) {
+                findings.add(prefix + issue.getId());
+            }
+        }
+        return findings;
+    }
+
+    /**
+     * @return true if the baseline file exists
+     */
+    public boolean exists() {
+        return file.isFile();
+    }
+
+    /**
+     * @return the baseline file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Compares the findings of a module with the baseline
+     *
+     * @param module groupId:artifactId of the checked project
+     * @param findings the findings of the module, see {@link #findings(String, Map)}
+     * @return the findings that aren't on the baseline and the number of baseline findings that are gone
+     * @throws IOException if the baseline can't be read or isn't sorted
+     */
+    public Diff diff(String module, SortedSet<String> findings) throws IOException {
+        String prefix = module + " ";
+        List<String> newFindings = new ArrayList<String>();
+        int fixed = 0;
+        Iterator<String> current = findings.iterator();
+        String finding = next(current);
+        if (exists()) {
+            LineReader reader = new LineReader(file);
+            try {
+                for (String line = reader.next(); line != null; line = reader.next()) {
+                    if (!line.startsWith(prefix)) {
+                        if (line.compareTo(prefix) > 0) {
+                            // Past the findings of the module
+                            break;
+                        }
+                        continue;
+                    }
+                    while (finding != null && finding.compareTo(line) < 0) {
+                        newFindings.add(finding);
+                        finding = next(current);
+                    }
+                    if (line.equals(finding)) {
+                        finding = next(current);
+                    } else {
+                        fixed++;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        while (finding != null) {
+            newFindings.add(finding);
+            finding = next(current);
+        }
+        return new Diff(newFindings, fixed);
+    }
+
+    /**
+     * @param module groupId:artifactId of the checked project
+     * @return the findings of the module on the baseline, sorted
+     * @throws IOException if the baseline can't be read or isn't sorted
+     */
+    public List<String> read(String module) throws IOException {
+        String prefix = module + " ";
+        List<String> findings = new ArrayList<String>();
+        if (exists()) {
+            LineReader reader = new LineReader(file);
+            try {
+                for (String line = reader.next(); line != null && (line.startsWith(prefix) || line.compareTo(
+                        prefix) < 0); line = reader.next()) {
+                    if (line.startsWith(prefix)) {
+                        findings.add(line);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+        return findings;
+    }
+
+    /**
+     * Replaces the findings of a module on the baseline, keeping the findings of the other modules
+     *
+     * @param module groupId:artifactId of the checked project
+     * @param findings the findings of the module, see {@link #findings(String, Map)}
+     * @throws IOException if the baseline can't be read or written
+     */
+    public void update(String module, SortedSet<String> findings) throws IOException {
+        String prefix = module + " ";
+        synchronized (UPDATE_LOCK) {
+            File directory = file.getAbsoluteFile().getParentFile();
+            directory.mkdirs();
+            File updated = new File(directory, file.getName() + ".tmp");
+            Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(updated), "UTF-8"));
+            try {
+                out.write(HEADER);
+                out.write('\n');
+                Iterator<String> current = findings.iterator();
+                String finding = next(current);
+                if (exists()) {
+                    LineReader reader = new LineReader(file);
+                    try {
+                        for (String line = reader.next(); line != null; line = reader.next()) {
+                            if (line.startsWith(prefix)) {
+                                continue;
+                            }
+                            while (finding != null && finding.compareTo(line) < 0) {
+                                out.write(finding);
+                                out.write('\n');
+                                finding = next(current);
+                            }
+                            out.write(line);
+                            out.write('\n');
+                        }
+                    } finally {
+                        reader.close();
+                    }
+                }
+                while (finding != null) {
+                    out.write(finding);
+                    out.write('\n');
+                    finding = next(current);
+                }
+            } finally {
+                out.close();
+            }
+            if (!updated.renameTo(file) && !(file.delete() && updated.renameTo(file))) {
+                throw new IOException("Can't replace " + file + " by " + updated);
+            }
+        }
+    }
+
+    private static String next(Iterator<String> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    /**
+     * Reads the findings of the baseline, skipping comments and blank lines, and verifying they are sorted
+     */
+    private static class LineReader {
+
+        private final File file;
+
+        private final BufferedReader reader;
+
+        private String previous;
+
+        LineReader(File file) throws IOException {
+            this.file = file;
+            this.reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        }
+
+        String next() throws IOException {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                line = line.trim();
+                if (line.length() == 0 || line.startsWith("#")) {
+                    continue;
+                }
+                if (previous != null && previous.compareTo(line) > 0) {
+                    throw new IOException("The baseline " + file
+                            + " isn't sorted. Sort it with LC_ALL=C sort or delete it and update it again");
+                }
+                previous = line;
+                return line;
+            }
+            return null;
+        }
+
+        void close() throws IOException {
+            reader.close();
+        }
+
+    }
+
+    /**
+     * The result of comparing the findings of a module with the baseline
+     */
+    public static class Diff {
+
+        private final List<String> newFindings;
+
+        private final int fixed;
+
+        Diff(List<String> newFindings, int fixed) {
+            this.newFindings = newFindings;
+            this.fixed = fixed;
+        }
+
+        /**
+         * @return the findings that aren't on the baseline, sorted
+         */
+        public List<String> getNewFindings() {
+            return Collections.unmodifiableList(newFindings);
+        }
+
+        /**
+         * @return the number of findings on the baseline that weren't found anymore
+         */
+        public int getFixed() {
+            return fixed;
+        }
+
+    }
+
+}
@@ -0,0 +1,208 @@
+package org.jboss.maven.plugins;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.repository.RepositorySystem;
+import org.apache.maven.settings.Proxy;
+import org.jboss.maven.plugins.batch.BatchChecker;
+import org.jboss.maven.plugins.bom.LocalRepositoryPomResolver;
+import org.jboss.maven.plugins.bom.RepositoryPomResolver;
+import org.jboss.maven.plugins.fix.FixResult;
+import org.jboss.maven.plugins.fix.PomFixer;
+import org.jboss.maven.plugins.project.ProjectReader;
+import org.jboss.maven.plugins.stacks.MavenStacksConfiguration;
+import org.jboss.maven.plugins.util.Metrics;
+
+/**
+ * Fixes the pom.xml of every module of the reactor (or of every project found on a directory tree): imports the
+ * proposed BOMs, removes the versions they manage and replaces the relocated dependencies. Comments and formatting of
+ * the POMs are kept.
+ * 
+ * @goal fix
+ * 
+ * @requiresProject false
+ * 
+ * @aggregator
+ */
+public class FixMojo extends AbstractMojo {
+
+    /**
+     * @parameter expression="${session}"
+     * @readonly
+     */
+    private MavenSession session;
+
+    /**
+     * @parameter expression="${reactorProjects}"
+     * @readonly
+     */
+    private List<MavenProject> reactorProjects;
+
+    /**
+     * @component
+     */
+    private RepositorySystem repositorySystem;
+
+    /**
+     * List of Remote Repositories used by the resolver
+     * 
+     * @parameter expression="${project.remoteArtifactRepositories}"
+     * @required
+     */
+    protected java.util.List<ArtifactRepository> remoteRepos;
+
+    /**
+     * Location of the local repository.
+     * 
+     * @parameter expression="${localRepository}"
+     * @required
+     */
+    protected org.apache.maven.artifact.repository.ArtifactRepository localRepository;
+
+    /**
+     * Directory tree searched for pom.xml files. Fixes the modules of the reactor when not informed
+     * 
+     * @parameter expression="${checker.fix.directory}"
+     */
+    private File directory;
+
+    /**
+     * File listing the POM files (or directories) to be fixed, one per line. Lines starting with # are comments
+     * 
+     * @parameter expression="${checker.fix.pomList}"
+     */
+    private File pomList;
+
+    /**
+     * Number of projects fixed at the same time. Uses every available processor when not informed
+     * 
+     * @parameter expression="${checker.fix.threads}" default-value="0"
+     */
+    private int threads;
+
+    /**
+     * Only logs what would be changed, without writing the POMs
+     * 
+     * @parameter expression="${checker.fix.dryRun}" default-value="false"
+     */
+    private boolean dryRun;
+
+    /**
+     * Reuses the BOM index cached on the local repository
+     * 
+     * @parameter expression="${checker.useCache}" default-value="true"
+     */
+    private boolean useCache;
+
+    /**
+     * Number of BOMs resolved at the same time when building the BOM index
+     * 
+     * @parameter expression="${checker.resolverThreads}" default-value="4"
+     */
+    private int resolverThreads;
+
+    /**
+     * URL of the stacks descriptor. Uses the jdf-stacks default when not informed
+     * 
+     * @parameter expression="${checker.stacksUrl}"
+     */
+    private String stacksUrl;
+
+    /**
+     * For how long (in seconds) the stacks descriptor snapshot is used without checking the stacks repository for
+     * changes
+     * 
+     * @parameter expression="${checker.stacksSnapshotTtl}" default-value="86400"
+     */
+    private int stacksSnapshotTtl;
+
+    /**
+     * Proxy Host from Settings.xml
+     * 
+     * @parameter expression="${settings.proxies}"
+     * 
+     */
+    private List<Proxy> proxies;
+
+    public void execute() throws MojoExecutionException {
+        List<File> pomFiles = findPomFiles();
+        getLog().info((dryRun ? "Checking what to fix on " : "Fixing ") + pomFiles.size() + " projects");
+
+        Proxy proxy = proxies.size() == 0 ? null : proxies.get(0);
+        File localRepositoryDirectory = new File(localRepository.getBasedir());
+        MavenStacksConfiguration stacksConfiguration = BomIndexLoader.newStacksConfiguration(proxy,
+                !session.isOffline(), localRepositoryDirectory, stacksSnapshotTtl, stacksUrl);
+        BomIndexLoader bomIndexLoader = new BomIndexLoader(stacksConfiguration, new RepositoryPomResolver(
+                repositorySystem, remoteRepos, localRepository), localRepositoryDirectory, useCache, resolverThreads,
+                getLog(), new Metrics());
+        PomFixer pomFixer = new PomFixer(BatchChecker.loadResources(bomIndexLoader), new ProjectReader(
+                new LocalRepositoryPomResolver(localRepositoryDirectory), true), threads > 0 ? threads : Runtime
+                .getRuntime().availableProcessors(), dryRun, getLog());
+        FixResult result;
+        try {
+            result = pomFixer.fix(pomFiles);
+        } catch (IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+        getLog().info(result.toString());
+    }
+
+    /**
+     * @return the listed POMs, the ones found on the directory tree or the ones of the reactor, on this order
+     * @throws MojoExecutionException if the POM list can't be read
+     */
+    private List<File> findPomFiles() throws MojoExecutionException {
+        if (pomList != null) {
+            try {
+                return BatchChecker.readPomList(pomList);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Problem reading the POM list " + pomList, e);
+            }
+        }
+        if (directory != null) {
+            return BatchChecker.findPoms(directory);
+        }
+        List<File> pomFiles = new ArrayList<File>();
+        for (MavenProject project : reactorProjects) {
+            if (project.getFile() != null) {
+                pomFiles.add(project.getFile());
+            }
+        }
+        // Without a project, fixes the projects found on the current directory
+        if (pomFiles.isEmpty()) {
+            return BatchChecker.findPoms(new File(session.getExecutionRootDirectory()));
+        }
+        return pomFiles;
+    }
+
+}
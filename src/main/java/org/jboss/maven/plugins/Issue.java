@@ -0,0 +1,90 @@
+package org.jboss.maven.plugins;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+/**
+ * An issue found on a dependency
+ *
+ */
+public class Issue {
+
+    private final IssueType type;
+
+    private final String id;
+
+    private final String message;
+
+    /**
+     * @param type
+     * @param message
+     */
+    public Issue(IssueType type, String message) {
+        this.type = type;
+        this.id = type.getId();
+        this.message = message;
+    }
+
+    /**
+     * Creates an issue found by a custom check
+     *
+     * @param checkId the id of the custom check
+     * @param message
+     */
+    public Issue(String checkId, String message) {
+        this.type = IssueType.CUSTOM;
+        this.id = checkId;
+        this.message = message;
+    }
+
+    /**
+     * @return the kind of check that found the issue
+     */
+    public IssueType getType() {
+        return type;
+    }
+
+    /**
+     * @return the identifier of the check that found the issue, used on reports and metrics
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return what is wrong with the dependency and how to fix it
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return message;
+    }
+
+}
@@ -0,0 +1,74 @@
+package org.jboss.maven.plugins;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+/**
+ * The kinds of issue found by the checks
+ *
+ */
+public enum IssueType {
+
+    /**
+     * The dependency version doesn't end with -redhat-N
+     */
+    RED_HAT_RELEASE("redHatRelease", "The dependency isn't a Red Hat release"),
+
+    /**
+     * The dependency was relocated and should be replaced
+     */
+    RELOCATION("relocation", "The dependency should be replaced by a relocated one"),
+
+    /**
+     * The dependency declares a version that is managed by a BOM
+     */
+    BOM("bom", "The dependency version should be managed by a BOM"),
+
+    /**
+     * Found by a custom check, see {@link org.jboss.maven.plugins.check.DependencyCheck}
+     */
+    CUSTOM("custom", "The dependency didn't pass a custom check");
+
+    private final String id;
+
+    private final String description;
+
+    private IssueType(String id, String description) {
+        this.id = id;
+        this.description = description;
+    }
+
+    /**
+     * @return the identifier used on reports and metrics
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return a short description of the issue
+     */
+    public String getDescription() {
+        return description;
+    }
+
+}
@@ -0,0 +1,353 @@
+package org.jboss.maven.plugins.batch;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.jboss.maven.plugins.BomIndexLoader;
+import org.jboss.maven.plugins.CheckEngine;
+import org.jboss.maven.plugins.CheckerResources;
+import org.jboss.maven.plugins.bom.LazyBomIndex;
+import org.jboss.maven.plugins.bom.LocalRepositoryPomResolver;
+import org.jboss.maven.plugins.bom.PomResolver;
+import org.jboss.maven.plugins.project.CheckedProject;
+import org.jboss.maven.plugins.project.ProjectReader;
+import org.jboss.maven.plugins.report.JsonLinesReportWriter;
+import org.jboss.maven.plugins.stacks.MavenStacksConfiguration;
+import org.jboss.maven.plugins.util.ConsoleLog;
+import org.jboss.maven.plugins.util.Metrics;
+
+/**
+ * Checks many projects in a single JVM: the relocation table and the BOM index are loaded once and shared by all
+ * projects, which are checked in parallel. The issues of every project go to a single jsonl report, on the order the
+ * projects were given, no matter which one finishes first.
+ *
+ */
+public class BatchChecker {
+
+    /**
+     * Name of the consolidated report, by default
+     */
+    public static final String REPORT_FILE = "dependency-checker-batch-report.jsonl";
+
+    /**
+     * Directories that never have projects to be checked
+     */
+    private static final Set<String> SKIPPED_DIRECTORIES = new HashSet<String>(Arrays.asList("target",
+            "node_modules"));
+
+    private final CheckerResources resources;
+
+    private final ProjectReader projectReader;
+
+    private final int threads;
+
+    private final Log log;
+
+    /**
+     * @param resources the relocated dependencies and BOM index shared by all projects
+     * @param projectReader reads each checked pom.xml
+     * @param threads the number of projects checked at the same time
+     * @param log
+     */
+    public BatchChecker(CheckerResources resources, ProjectReader projectReader, int threads, Log log) {
+        this.resources = resources;
+        this.projectReader = projectReader;
+        this.threads = Math.max(1, threads);
+        this.log = log;
+    }
+
+    /**
+     * @param bomIndexLoader
+     * @return the resources shared by all projects, already loading the BOM index
+     * @throws MojoExecutionException
+     */
+    public static CheckerResources loadResources(final BomIndexLoader bomIndexLoader) throws MojoExecutionException {
+        CheckerResources resources = new CheckerResources(CheckerResources.loadRelocatedDependencies());
+        resources.getBomIndex(new Callable<LazyBomIndex>() {
+
+            public LazyBomIndex call() {
+                return bomIndexLoader.load(bomIndexLoader.fetchBomVersions());
+            }
+        });
+        return resources;
+    }
+
+    /**
+     * @param directory
+     * @return every pom.xml on the directory tree, skipping hidden and build output directories
+     */
+    public static List<File> findPoms(File directory) {
+        List<File> pomFiles = new ArrayList<File>();
+        findPoms(directory, pomFiles);
+        return pomFiles;
+    }
+
+    private static void findPoms(File directory, List<File> pomFiles) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.isDirectory()) {
+                if (!file.getName().startsWith(".") && !SKIPPED_DIRECTORIES.contains(file.getName())) {
+                    findPoms(file, pomFiles);
+                }
+            } else if ("pom.xml".equals(file.getName())) {
+                pomFiles.add(file);
+            }
+        }
+    }
+
+    /**
+     * @param listFile one POM file or directory per line. Lines starting with # are comments
+     * @return the POM files listed, and the ones found on the directories listed
+     * @throws IOException
+     */
+    public static List<File> readPomList(File listFile) throws IOException {
+        List<File> pomFiles = new ArrayList<File>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(listFile), "UTF-8"));
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                line = line.trim();
+                if (line.length() > 0 && !line.startsWith("#")) {
+                    File file = new File(line);
+                    if (file.isDirectory()) {
+                        findPoms(file, pomFiles);
+                    } else {
+                        pomFiles.add(file);
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return pomFiles;
+    }
+
+    /**
+     * Checks every given project, writing their issues to the report file
+     *
+     * @param pomFiles
+     * @param reportFile
+     * @return the totals of the batch
+     * @throws IOException if the report can't be written
+     */
+    public BatchResult check(List<File> pomFiles, File reportFile) throws IOException {
+        File directory = reportFile.getAbsoluteFile().getParentFile();
+        if (directory != null) {
+            directory.mkdirs();
+        }
+        Writer report = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(reportFile), "UTF-8"));
+        try {
+            return check(pomFiles, report);
+        } finally {
+            report.close();
+        }
+    }
+
+    /**
+     * Checks every given project, writing their issues to the report
+     *
+     * @param pomFiles
+     * @param report receives the issues as jsonl records
+     * @return the totals of the batch
+     * @throws IOException if the report can't be written
+     */
+    public BatchResult check(List<File> pomFiles, Writer report) throws IOException {
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "dependency-checker-batch");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        BatchResult result = new BatchResult();
+        try {
+            List<Future<ProjectResult>> results = new ArrayList<Future<ProjectResult>>(pomFiles.size());
+            for (final File pomFile : pomFiles) {
+                results.add(executor.submit(new Callable<ProjectResult>() {
+
+                    public ProjectResult call() {
+                        return checkProject(pomFile);
+                    }
+                }));
+            }
+            // Written on the given order, so the report is the same on every run
+            for (int i = 0; i < results.size(); i++) {
+                ProjectResult projectResult = get(results.get(i));
+                if (projectResult.error != null) {
+                    log.warn("Can't check " + pomFiles.get(i) + ": " + projectResult.error);
+                    result.addFailure(pomFiles.get(i), projectResult.error);
+                } else {
+                    report.write(projectResult.records);
+                    result.addProject(projectResult.dependencies, projectResult.issues);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        report.flush();
+        result.setMillis((System.nanoTime() - start) / 1000000);
+        return result;
+    }
+
+    /**
+     * @param pomFile
+     * @return the issues of the project, as jsonl records, or why it couldn't be checked
+     */
+    private ProjectResult checkProject(File pomFile) {
+        try {
+            CheckedProject project = projectReader.read(pomFile);
+            CheckEngine engine = new CheckEngine(resources, null, project.getDeclaredDependencies(),
+                    project.getExclusionMatcher(), project.getVersionPolicy(), false, new Metrics());
+            StringWriter records = new StringWriter();
+            int issues = engine.checkAll(project.getDependencies(), new JsonLinesReportWriter(records, project.getId()));
+            return new ProjectResult(records.toString(), project.getDependencies().size(), issues, null);
+        } catch (MojoExecutionException e) {
+            return new ProjectResult(null, 0, 0, e.getMessage());
+        } catch (IOException e) {
+            return new ProjectResult(null, 0, 0, e.getMessage());
+        } catch (RuntimeException e) {
+            return new ProjectResult(null, 0, 0, String.valueOf(e));
+        }
+    }
+
+    private static ProjectResult get(Future<ProjectResult> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while checking the projects");
+        } catch (ExecutionException e) {
+            return new ProjectResult(null, 0, 0, String.valueOf(e.getCause()));
+        }
+    }
+
+    /**
+     * Checks the projects given on the command line: directories, pom.xml files or @files listing them. Exits with 1
+     * if any issue is found and 2 if any project can't be read.
+     *
+     * @param args
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean online = true;
+        boolean debug = false;
+        String stacksUrl = null;
+        File reportFile = new File(REPORT_FILE);
+        File localRepositoryDirectory = new File(System.getProperty("user.home"), ".m2/repository");
+        List<File> pomFiles = new ArrayList<File>();
+        boolean usage = false;
+        for (int i = 0; i < args.length; i++) {
+            if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if ("--report".equals(args[i]) && i + 1 < args.length) {
+                reportFile = new File(args[++i]);
+            } else if ("--offline".equals(args[i])) {
+                online = false;
+            } else if ("--debug".equals(args[i])) {
+                debug = true;
+            } else if ("--stacks-url".equals(args[i]) && i + 1 < args.length) {
+                stacksUrl = args[++i];
+            } else if ("--local-repo".equals(args[i]) && i + 1 < args.length) {
+                localRepositoryDirectory = new File(args[++i]);
+            } else if (args[i].startsWith("--")) {
+                usage = true;
+            } else if (args[i].startsWith("@")) {
+                pomFiles.addAll(readPomList(new File(args[i].substring(1))));
+            } else if (new File(args[i]).isDirectory()) {
+                pomFiles.addAll(findPoms(new File(args[i])));
+            } else {
+                pomFiles.add(new File(args[i]));
+            }
+        }
+        if (usage || pomFiles.isEmpty()) {
+            System.err.println("Usage: BatchChecker [--threads <n>] [--report <file>] [--local-repo <directory>] "
+                    + "[--stacks-url <url>] [--offline] [--debug] <directory|pom.xml|@list>...");
+            System.exit(2);
+        }
+        Log log = new ConsoleLog(debug);
+        PomResolver pomResolver = new LocalRepositoryPomResolver(localRepositoryDirectory);
+        MavenStacksConfiguration stacksConfiguration = BomIndexLoader.newStacksConfiguration(null, online,
+                localRepositoryDirectory, 86400, stacksUrl);
+        BomIndexLoader bomIndexLoader = new BomIndexLoader(stacksConfiguration, pomResolver,
+                localRepositoryDirectory, true, 4, log, new Metrics());
+        BatchChecker batchChecker = new BatchChecker(loadResources(bomIndexLoader), new ProjectReader(pomResolver,
+                true), threads, log);
+        BatchResult result = batchChecker.check(pomFiles, reportFile);
+        log.info(result.toString());
+        log.info("Details on " + reportFile);
+        System.exit(!result.getFailures().isEmpty() ? 2 : result.getIssues() > 0 ? 1 : 0);
+    }
+
+    /**
+     * The outcome of checking one project
+     */
+    private static class ProjectResult {
+
+        private final String records;
+
+        private final int dependencies;
+
+        private final int issues;
+
+        private final String error;
+
+        ProjectResult(String records, int dependencies, int issues, String error) {
+            this.records = records;
+            this.dependencies = dependencies;
+            this.issues = issues;
+            this.error = error;
+        }
+
+    }
+
+}
@@ -0,0 +1,119 @@
+package org.jboss.maven.plugins.batch;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Totals of a batch check
+ *
+ */
+public class BatchResult {
+
+    private int projects;
+
+    private int projectsWithIssues;
+
+    private int dependencies;
+
+    private int issues;
+
+    private Map<File, String> failures = new LinkedHashMap<File, String>();
+
+    private long millis;
+
+    void addProject(int projectDependencies, int projectIssues) {
+        projects++;
+        dependencies += projectDependencies;
+        issues += projectIssues;
+        if (projectIssues > 0) {
+            projectsWithIssues++;
+        }
+    }
+
+    void addFailure(File pomFile, String message) {
+        failures.put(pomFile, message);
+    }
+
+    void setMillis(long millis) {
+        this.millis = millis;
+    }
+
+    /**
+     * @return the number of projects checked
+     */
+    public int getProjects() {
+        return projects;
+    }
+
+    /**
+     * @return the number of projects with at least one issue
+     */
+    public int getProjectsWithIssues() {
+        return projectsWithIssues;
+    }
+
+    /**
+     * @return the number of dependencies checked on all projects
+     */
+    public int getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * @return the number of issues found on all projects
+     */
+    public int getIssues() {
+        return issues;
+    }
+
+    /**
+     * @return the POMs that couldn't be read and why
+     */
+    public Map<File, String> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * @return how long the batch took
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("Checked %d projects (%d dependencies) in %.1f s, %d projects per minute: "
+                + "%d issues on %d projects, %d POMs couldn't be read", projects, dependencies, millis / 1000.0,
+                millis == 0 ? 0 : projects * 60000L / millis, issues, projectsWithIssues, failures.size());
+    }
+
+}
@@ -0,0 +1,403 @@
+package org.jboss.maven.plugins.bom;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.jdf.stacks.model.BomVersion;
+import org.jboss.maven.plugins.dependency.MavenDependency;
+import org.jboss.maven.plugins.util.Fingerprint;
+
+/**
+ * Flattened index of all managed Dependencies from each BOM (Bill of Materials).
+ *
+ * Each managed dependency is an entry of the index. The groupId and artifactId of the entries are interned (so
+ * dependencies sharing a groupId share the same String) and their hashes are kept on an open addressing table. The BOMs
+ * managing each entry are a bitset over the BOM table, so looking up a dependency or the BOMs managing it doesn't
+ * allocate any object. The version each BOM manages is kept on a flat array, on the same order of the bits.
+ *
+ * Instances are immutable and can be shared between threads.
+ *
+ */
+public class BomIndex {
+
+    private final BomVersion[] bomTable;
+
+    private final String[] groupIds;
+
+    private final String[] artifactIds;
+
+    private final int[] hashes;
+
+    /**
+     * BOM membership bitset of each entry: entry i uses the words [i * words, (i + 1) * words)
+     */
+    private final long[] membership;
+
+    private final int words;
+
+    /**
+     * Managed version of each set bit of {@link #membership}: entry i uses [versionOffsets[i], versionOffsets[i + 1])
+     */
+    private final String[] versions;
+
+    private final int[] versionOffsets;
+
+    /**
+     * Open addressing table of entry positions plus one (zero means an empty slot)
+     */
+    private final int[] table;
+
+    private volatile String fingerprint;
+
+    private BomIndex(BomVersion[] bomTable, String[] groupIds, String[] artifactIds, long[] membership,
+            String[] versions) {
+        this.bomTable = bomTable;
+        this.groupIds = groupIds;
+        this.artifactIds = artifactIds;
+        this.membership = membership;
+        this.words = wordsFor(bomTable.length);
+        this.versions = versions;
+        this.versionOffsets = new int[groupIds.length + 1];
+        for (int entry = 0; entry < groupIds.length; entry++) {
+            int bits = 0;
+            for (int word = 0; word < words; word++) {
+                bits += Long.bitCount(membership[entry * words + word]);
+            }
+            versionOffsets[entry + 1] = versionOffsets[entry] + bits;
+        }
+        this.hashes = new int[groupIds.length];
+        int capacity = Integer.highestOneBit(Math.max(2, groupIds.length * 2 - 1)) << 1;
+        this.table = new int[capacity];
+        for (int entry = 0; entry < groupIds.length; entry++) {
+            hashes[entry] = hash(groupIds[entry], artifactIds[entry]);
+            int slot = hashes[entry] & (capacity - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            table[slot] = entry + 1;
+        }
+    }
+
+    /**
+     * @return the BOMs that were indexed
+     */
+    public List<BomVersion> getBomVersions() {
+        return Collections.unmodifiableList(Arrays.asList(bomTable));
+    }
+
+    /**
+     * @param dependency
+     *
+     * @return the BOMs that manage the given dependency or null if none of them manages it
+     */
+    public List<BomVersion> getBomVersions(MavenDependency dependency) {
+        int entry = indexOf(dependency.getGroupId(), dependency.getArtifactId());
+        if (entry < 0) {
+            return null;
+        }
+        List<BomVersion> boms = new ArrayList<BomVersion>(2);
+        for (int bom = nextBom(entry, 0); bom >= 0; bom = nextBom(entry, bom + 1)) {
+            boms.add(bomTable[bom]);
+        }
+        return boms;
+    }
+
+    /**
+     * @param groupId
+     * @param artifactId
+     *
+     * @return true if any BOM manages the given dependency
+     */
+    public boolean isManaged(String groupId, String artifactId) {
+        return indexOf(groupId, artifactId) >= 0;
+    }
+
+    /**
+     * @param groupId
+     * @param artifactId
+     *
+     * @return the entry of the given dependency or -1 if no BOM manages it
+     */
+    public int indexOf(String groupId, String artifactId) {
+        if (groupId == null || artifactId == null) {
+            return -1;
+        }
+        int hash = hash(groupId, artifactId);
+        int mask = table.length - 1;
+        for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int entry = table[slot] - 1;
+            if (hashes[entry] == hash && groupIds[entry].equals(groupId) && artifactIds[entry].equals(artifactId)) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Iterates over the BOMs that manage an entry: <code>for (int bom = nextBom(entry, 0); bom >= 0; bom =
+     * nextBom(entry, bom + 1))</code>
+     *
+     * @param entry
+     * @param fromBom the first BOM position to consider
+     *
+     * @return the position (on {@link #getBomVersions()}) of the next BOM that manages the entry or -1
+     */
+    public int nextBom(int entry, int fromBom) {
+        int base = entry * words;
+        for (int word = fromBom >>> 6; word < words; word++) {
+            long bits = membership[base + word];
+            if (word == fromBom >>> 6) {
+                bits &= -1L << (fromBom & 63);
+            }
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Creates an index from its flat arrays, as stored by {@link BomIndexFile}
+     *
+     * @param bomTable
+     * @param groupIds groupId of each entry
+     * @param artifactIds artifactId of each entry
+     * @param membership the bitset of BOMs managing each entry, one entry after the other
+     * @param versions managed version of each set bit of membership, on the same order
+     * @return the index
+     */
+    static BomIndex of(BomVersion[] bomTable, String[] groupIds, String[] artifactIds, long[] membership,
+            String[] versions) {
+        return new BomIndex(bomTable, groupIds, artifactIds, membership, versions);
+    }
+
+    /**
+     * @param bomCount
+     * @return the number of membership words of each entry
+     */
+    static int wordsFor(int bomCount) {
+        return Math.max(1, (bomCount + 63) >>> 6);
+    }
+
+    /**
+     * @param entry
+     * @param bom BOM position
+     *
+     * @return the version of the entry managed by the BOM, as written on the BOM, or null if the BOM doesn't manage the
+     *         entry (or doesn't declare its version)
+     */
+    public String getManagedVersion(int entry, int bom) {
+        int base = entry * words;
+        int word = bom >>> 6;
+        if (word >= words || (membership[base + word] & (1L << (bom & 63))) == 0) {
+            return null;
+        }
+        // The version position is the number of BOMs managing the entry before this one
+        int rank = Long.bitCount(membership[base + word] & ((1L << (bom & 63)) - 1));
+        for (int i = 0; i < word; i++) {
+            rank += Long.bitCount(membership[base + i]);
+        }
+        return versions[versionOffsets[entry] + rank];
+    }
+
+    /**
+     * @param bom BOM position
+     * @return the BOM at the given position
+     */
+    public BomVersion getBomVersion(int bom) {
+        return bomTable[bom];
+    }
+
+    /**
+     * @return the number of managed dependencies
+     */
+    public int size() {
+        return groupIds.length;
+    }
+
+    /**
+     * @param entry
+     * @return the groupId of the given entry
+     */
+    public String getGroupId(int entry) {
+        return groupIds[entry];
+    }
+
+    /**
+     * @param entry
+     * @return the artifactId of the given entry
+     */
+    public String getArtifactId(int entry) {
+        return artifactIds[entry];
+    }
+
+    /**
+     * @return a fingerprint of the index contents: it changes when any BOM starts or stops managing a dependency, or
+     *         changes its managed version
+     */
+    public String getFingerprint() {
+        if (fingerprint == null) {
+            String[] entries = new String[groupIds.length];
+            for (int entry = 0; entry < entries.length; entry++) {
+                StringBuilder sb = new StringBuilder();
+                sb.append(groupIds[entry]).append(':').append(artifactIds[entry]);
+                for (int bom = nextBom(entry, 0); bom >= 0; bom = nextBom(entry, bom + 1)) {
+                    BomVersion bomVersion = bomTable[bom];
+                    sb.append('|').append(bomVersion.getBom().getGroupId()).append(':')
+                            .append(bomVersion.getBom().getArtifactId()).append(':').append(bomVersion.getVersion())
+                            .append('=').append(getManagedVersion(entry, bom));
+                }
+                entries[entry] = sb.toString();
+            }
+            Arrays.sort(entries);
+            Fingerprint result = new Fingerprint();
+            for (String entry : entries) {
+                result.add(entry);
+            }
+            fingerprint = result.digestHex();
+        }
+        return fingerprint;
+    }
+
+    private static int hash(String groupId, String artifactId) {
+        int h = 31 * groupId.hashCode() + artifactId.hashCode();
+        // spreads the high bits, as the table is indexed by the low ones
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Collects the managed dependencies of each BOM and creates the compact {@link BomIndex}
+     */
+    public static class Builder {
+
+        private final BomVersion[] bomTable;
+
+        private final int words;
+
+        private final Map<String, String> strings = new HashMap<String, String>();
+
+        private final Map<MavenDependency, Integer> entries = new HashMap<MavenDependency, Integer>();
+
+        private final List<String> groupIds = new ArrayList<String>();
+
+        private final List<String> artifactIds = new ArrayList<String>();
+
+        private long[] membership;
+
+        /**
+         * Managed versions by entry (high bits) and BOM position (low bits)
+         */
+        private final Map<Long, String> versions = new HashMap<Long, String>();
+
+        /**
+         * @param boms the BOMs to be indexed
+         */
+        public Builder(List<BomVersion> boms) {
+            this.bomTable = boms.toArray(new BomVersion[boms.size()]);
+            this.words = wordsFor(bomTable.length);
+            this.membership = new long[words * 64];
+        }
+
+        /**
+         * Records that the BOM at the given position manages the given dependency, without a known version
+         *
+         * @param groupId
+         * @param artifactId
+         * @param bom BOM position
+         * @return this builder
+         */
+        public Builder add(String groupId, String artifactId, int bom) {
+            return add(groupId, artifactId, bom, null);
+        }
+
+        /**
+         * Records that the BOM at the given position manages the given dependency
+         *
+         * @param groupId
+         * @param artifactId
+         * @param bom BOM position
+         * @param version the managed version, may be null
+         * @return this builder
+         */
+        public Builder add(String groupId, String artifactId, int bom, String version) {
+            MavenDependency key = new MavenDependency(intern(groupId), intern(artifactId));
+            Integer entry = entries.get(key);
+            if (entry == null) {
+                entry = groupIds.size();
+                entries.put(key, entry);
+                groupIds.add(key.getGroupId());
+                artifactIds.add(key.getArtifactId());
+                if ((entry + 1) * words > membership.length) {
+                    membership = Arrays.copyOf(membership, membership.length * 2);
+                }
+            }
+            membership[entry * words + (bom >>> 6)] |= 1L << (bom & 63);
+            if (version != null) {
+                versions.put(((long) entry << 32) | bom, intern(version));
+            }
+            return this;
+        }
+
+        /**
+         * @return the compact index
+         */
+        public BomIndex build() {
+            int size = groupIds.size();
+            long[] entryMembership = Arrays.copyOf(membership, size * words);
+            int managed = 0;
+            for (long word : entryMembership) {
+                managed += Long.bitCount(word);
+            }
+            // Flattened on the bit order of each entry
+            String[] entryVersions = new String[managed];
+            int position = 0;
+            for (int entry = 0; entry < size; entry++) {
+                for (int word = 0; word < words; word++) {
+                    for (long bits = entryMembership[entry * words + word]; bits != 0; bits &= bits - 1) {
+                        int bom = (word << 6) + Long.numberOfTrailingZeros(bits);
+                        entryVersions[position++] = versions.get(((long) entry << 32) | bom);
+                    }
+                }
+            }
+            return new BomIndex(bomTable, groupIds.toArray(new String[size]), artifactIds.toArray(new String[size]),
+                    entryMembership, entryVersions);
+        }
+
+        private String intern(String value) {
+            String interned = strings.get(value);
+            if (interned == null) {
+                strings.put(value, value);
+                interned = value;
+            }
+            return interned;
+        }
+
+    }
+
+}
@@ -0,0 +1,497 @@
+package org.jboss.maven.plugins.bom;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+import java.io.FileReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.jboss.jdf.stacks.model.BomVersion;
+import org.jboss.maven.plugins.dependency.MavenDependency;
+import org.jboss.maven.plugins.util.Metrics;
+
+/**
+ * Reads each BOM (with its parents and the BOMs it imports) and builds a {@link BomIndex} from their managed
+ * Dependencies.
+ *
+ * The managed Dependencies are the ones of the effective model, as Maven sees them: the entries inherited from the
+ * parents are interpolated with the properties of the BOM ({@code ${project.version}}, {@code ${version.junit}}, ...)
+ * and the {@code import} scoped entries are replaced by the managed Dependencies of the imported BOM, unless already
+ * managed. Parent and import cycles on broken POMs are reported and cut.
+ *
+ * BOMs are resolved concurrently, on daemon threads, so a {@link LazyBomIndex} can be answered while the remaining BOMs
+ * are still loading. Each POM is resolved and parsed only once, even when it is the parent of many BOMs:
+ * the first BOM reaching a POM reads it and the others wait for that same read. The effective managed Dependencies of
+ * each POM are kept by their coordinates too, so shared parents and imported BOMs are only processed once.
+ *
+ */
+public class BomIndexBuilder {
+
+    /**
+     * Protects against properties referencing each other
+     */
+    private static final int MAX_INTERPOLATION_DEPTH = 16;
+
+    private PomResolver pomResolver;
+
+    private Log log;
+
+    private int threads;
+
+    private Metrics metrics;
+
+    /**
+     * Every POM read (or being read) by this builder, by its coordinates
+     */
+    private ConcurrentMap<String, Future<PomInfo>> poms = new ConcurrentHashMap<String, Future<PomInfo>>();
+
+    /**
+     * The effective model of every POM processed by this builder, by its coordinates
+     */
+    private ConcurrentMap<String, EffectivePom> effectivePoms = new ConcurrentHashMap<String, EffectivePom>();
+
+    /**
+     * @param pomResolver
+     * @param log
+     * @param threads the number of BOMs resolved at the same time
+     */
+    public BomIndexBuilder(PomResolver pomResolver, Log log, int threads) {
+        this(pomResolver, log, threads, new Metrics());
+    }
+
+    /**
+     * @param pomResolver
+     * @param log
+     * @param threads the number of BOMs resolved at the same time
+     * @param metrics receives the POM resolution and parsing timers and counters
+     */
+    public BomIndexBuilder(PomResolver pomResolver, Log log, int threads, Metrics metrics) {
+        this.pomResolver = pomResolver;
+        this.log = log;
+        this.threads = Math.max(1, threads);
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param boms the BOMs to be indexed
+     *
+     * @return the index of all managed Dependencies
+     * @throws MojoExecutionException
+     */
+    public BomIndex build(List<BomVersion> boms) throws MojoExecutionException {
+        return start(boms, null).getIndex();
+    }
+
+    /**
+     * Starts loading every BOM in the background, returning immediately
+     *
+     * @param boms the BOMs to be indexed
+     * @param listener notified when the full index is built, may be null
+     *
+     * @return the index of all managed Dependencies, as they are loaded
+     */
+    public LazyBomIndex start(List<BomVersion> boms, LazyBomIndex.Listener listener) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, boms.size())),
+                new ThreadFactory() {
+
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "dependency-checker-bom-resolver");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        List<Future<Map<MavenDependency, String>>> results = new ArrayList<Future<Map<MavenDependency, String>>>(
+                boms.size());
+        for (final BomVersion bomVersion : boms) {
+            results.add(executor.submit(new Callable<Map<MavenDependency, String>>() {
+
+                public Map<MavenDependency, String> call() throws Exception {
+                    return readManagedDependencies(bomVersion);
+                }
+            }));
+        }
+        // The threads finish once every BOM is read
+        executor.shutdown();
+        return new LazyBomIndex(boms, results, listener);
+    }
+
+    /**
+     * @return every POM file that was read by this builder. Only complete once the index is built
+     * @throws MojoExecutionException
+     */
+    public Set<File> getSourcePoms() throws MojoExecutionException {
+        Set<File> sourcePoms = new LinkedHashSet<File>();
+        for (Future<PomInfo> pom : poms.values()) {
+            PomInfo pomInfo = get(pom);
+            if (pomInfo.file != null) {
+                sourcePoms.add(pomInfo.file);
+            }
+        }
+        return sourcePoms;
+    }
+
+    /**
+     * @return groupId:artifactId:version of every POM this builder couldn't resolve. Only complete once the index is
+     *         built
+     * @throws MojoExecutionException
+     */
+    public Set<String> getMissingPoms() throws MojoExecutionException {
+        Set<String> missingPoms = new LinkedHashSet<String>();
+        for (Map.Entry<String, Future<PomInfo>> pom : poms.entrySet()) {
+            if (get(pom.getValue()).file == null) {
+                missingPoms.add(pom.getKey());
+            }
+        }
+        return missingPoms;
+    }
+
+    /**
+     * @param bomVersion
+     * @return all Dependencies managed by the effective model of the BOM, with their managed versions
+     * @throws MojoExecutionException
+     */
+    private Map<MavenDependency, String> readManagedDependencies(BomVersion bomVersion) throws MojoExecutionException {
+        String groupId = bomVersion.getBom().getGroupId();
+        String artifactId = bomVersion.getBom().getArtifactId();
+        PomInfo pomInfo = readPom(groupId, artifactId, bomVersion.getVersion());
+        metrics.increment(pomInfo.file != null ? "boms.resolved" : "boms.missing");
+        return effectivePom(groupId, artifactId, bomVersion.getVersion(), new LinkedHashSet<String>()).managed;
+    }
+
+    /**
+     * Builds the effective model of the given POM, unless it was already built
+     *
+     * @param groupId
+     * @param artifactId
+     * @param version
+     * @param path the POMs whose effective model is being built by the current thread, to detect cycles
+     * @return the effective model or null if the POM is part of a cycle
+     * @throws MojoExecutionException
+     */
+    private EffectivePom effectivePom(String groupId, String artifactId, String version, Set<String> path)
+            throws MojoExecutionException {
+        String coordinates = String.format("%s:%s:%s", groupId, artifactId, version);
+        EffectivePom effectivePom = effectivePoms.get(coordinates);
+        if (effectivePom != null) {
+            metrics.increment("poms.effectiveReused");
+            return effectivePom;
+        }
+        if (!path.add(coordinates)) {
+            log.warn(String.format("Ignoring the cycle %s -> %s", path, coordinates));
+            metrics.increment("boms.cycles");
+            return null;
+        }
+        try {
+            PomInfo pomInfo = readPom(groupId, artifactId, version);
+            boolean complete = true;
+            Map<String, String> properties = new HashMap<String, String>();
+            List<Dependency> dependencies = new ArrayList<Dependency>(pomInfo.managedDependencies);
+            Parent p = pomInfo.parent;
+            if (p != null) {
+                metrics.increment("boms.parentsVisited");
+                EffectivePom parent = effectivePom(p.getGroupId(), p.getArtifactId(), p.getVersion(), path);
+                if (parent == null) {
+                    complete = false;
+                } else {
+                    complete = parent.complete;
+                    properties.putAll(parent.properties);
+                    // The entries of the child come first, so they win over the inherited ones
+                    dependencies.addAll(parent.dependencies);
+                }
+            }
+            properties.putAll(pomInfo.properties);
+            putProjectProperties(properties, pomInfo, groupId, artifactId, version);
+
+            Map<MavenDependency, String> managed = new LinkedHashMap<MavenDependency, String>();
+            List<Dependency> imports = new ArrayList<Dependency>();
+            for (Dependency dep : dependencies) {
+                MavenDependency key = new MavenDependency(interpolate(dep.getGroupId(), properties), interpolate(
+                        dep.getArtifactId(), properties));
+                if ("import".equals(interpolate(dep.getScope(), properties))
+                        && "pom".equals(interpolate(dep.getType(), properties))) {
+                    imports.add(dep);
+                } else if (!managed.containsKey(key)) {
+                    managed.put(key, interpolate(dep.getVersion(), properties));
+                }
+            }
+            // Imported after the inheritance, so they never override what is already managed
+            for (Dependency dep : imports) {
+                metrics.increment("boms.importsVisited");
+                EffectivePom imported = effectivePom(interpolate(dep.getGroupId(), properties),
+                        interpolate(dep.getArtifactId(), properties), interpolate(dep.getVersion(), properties), path);
+                if (imported == null) {
+                    complete = false;
+                    continue;
+                }
+                complete &= imported.complete;
+                for (Map.Entry<MavenDependency, String> entry : imported.managed.entrySet()) {
+                    if (!managed.containsKey(entry.getKey())) {
+                        managed.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            effectivePom = new EffectivePom(properties, dependencies, managed, complete);
+            // A model missing part of a cycle depends on where the cycle was entered, so it isn't reused
+            if (complete) {
+                EffectivePom existing = effectivePoms.putIfAbsent(coordinates, effectivePom);
+                if (existing != null) {
+                    return existing;
+                }
+            }
+            return effectivePom;
+        } finally {
+            path.remove(coordinates);
+        }
+    }
+
+    /**
+     * Adds the project properties of the POM, which aren't inherited
+     */
+    private static void putProjectProperties(Map<String, String> properties, PomInfo pomInfo, String groupId,
+            String artifactId, String version) {
+        for (String prefix : new String[] { "project.", "pom." }) {
+            properties.put(prefix + "groupId", groupId);
+            properties.put(prefix + "artifactId", artifactId);
+            properties.put(prefix + "version", version);
+            if (pomInfo.parent != null) {
+                properties.put(prefix + "parent.groupId", pomInfo.parent.getGroupId());
+                properties.put(prefix + "parent.artifactId", pomInfo.parent.getArtifactId());
+                properties.put(prefix + "parent.version", pomInfo.parent.getVersion());
+            }
+        }
+    }
+
+    /**
+     * Replaces the ${...} placeholders by the given properties. Unknown placeholders are kept as they are.
+     *
+     * @param value
+     * @param properties
+     * @return the interpolated value
+     */
+    static String interpolate(String value, Map<String, String> properties) {
+        String result = value;
+        for (int depth = 0; result != null && result.indexOf("${") >= 0 && depth < MAX_INTERPOLATION_DEPTH; depth++) {
+            StringBuilder sb = new StringBuilder(result.length());
+            boolean replaced = false;
+            int from = 0;
+            int start;
+            while ((start = result.indexOf("${", from)) >= 0) {
+                int end = result.indexOf('}', start + 2);
+                if (end < 0) {
+                    break;
+                }
+                String property = properties.get(result.substring(start + 2, end));
+                sb.append(result, from, start).append(property != null ? property : result.substring(start, end + 1));
+                replaced |= property != null;
+                from = end + 1;
+            }
+            if (!replaced) {
+                break;
+            }
+            result = sb.append(result, from, result.length()).toString();
+        }
+        return result;
+    }
+
+    /**
+     * Reads the given POM unless another thread already did it (or is doing it)
+     *
+     * @param groupId
+     * @param artifactId
+     * @param version
+     * @return the read POM information
+     * @throws MojoExecutionException
+     */
+    private PomInfo readPom(final String groupId, final String artifactId, final String version)
+            throws MojoExecutionException {
+        String coordinates = String.format("%s:%s:%s", groupId, artifactId, version);
+        FutureTask<PomInfo> task = new FutureTask<PomInfo>(new Callable<PomInfo>() {
+
+            public PomInfo call() throws Exception {
+                return readBOMArtifact(groupId, artifactId, version);
+            }
+        });
+        Future<PomInfo> existing = poms.putIfAbsent(coordinates, task);
+        if (existing != null) {
+            return get(existing);
+        }
+        task.run();
+        return get(task);
+    }
+
+    /**
+     * @param groupId
+     * @param artifactId
+     * @param version
+     * @throws MojoExecutionException
+     *
+     */
+    private PomInfo readBOMArtifact(String groupId, String artifactId, String version) throws MojoExecutionException {
+        long start = System.nanoTime();
+        File pomFile = pomResolver.resolvePom(groupId, artifactId, version);
+        metrics.time("pom.resolve", start);
+        try {
+            return readBOM(pomFile, String.format("%s:%s:%s", groupId, artifactId, version));
+        } catch (Exception e) {
+            throw new MojoExecutionException("Can't read the POM " + pomFile, e);
+        }
+    }
+
+    /**
+     * @param pomFile
+     * @param coordinates
+     * @throws Exception
+     */
+    private PomInfo readBOM(File pomFile, String coordinates) throws Exception {
+        if (pomFile != null && pomFile.exists()) {
+            long start = System.nanoTime();
+            MavenXpp3Reader reader = new MavenXpp3Reader();
+            FileReader fileReader = new FileReader(pomFile);
+            Model model;
+            try {
+                model = reader.read(fileReader);
+            } finally {
+                fileReader.close();
+            }
+            List<Dependency> managedDependencies = new ArrayList<Dependency>();
+            if (model.getDependencyManagement() != null) {
+                for (Dependency dep : model.getDependencyManagement().getDependencies()) {
+                    if (dep.getGroupId() != null && dep.getArtifactId() != null) {
+                        managedDependencies.add(dep);
+                    }
+                }
+            }
+            Map<String, String> properties = new HashMap<String, String>();
+            for (String name : model.getProperties().stringPropertyNames()) {
+                properties.put(name, model.getProperties().getProperty(name));
+            }
+            metrics.time("pom.parse", start);
+            metrics.increment("poms.parsed");
+            metrics.add("poms.bytesParsed", pomFile.length());
+            return new PomInfo(pomFile, model.getParent(), properties, managedDependencies);
+        } else {
+            String msg = String
+                    .format("BOM %s (from jdf-stacks) was not found. Maybe you need to setup a EAP/WFK repository on your settings.xml",
+                            coordinates);
+            log.warn(msg);
+            return new PomInfo(null, null, Collections.<String, String> emptyMap(), Collections.<Dependency> emptyList());
+        }
+    }
+
+    static <T> T get(Future<T> future) throws MojoExecutionException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while reading the BOMs", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof MojoExecutionException) {
+                throw (MojoExecutionException) e.getCause();
+            }
+            throw new MojoExecutionException("Problem reading the BOMs", e.getCause());
+        }
+    }
+
+    /**
+     * What matters from each POM to the index
+     */
+    private static class PomInfo {
+
+        private final File file;
+
+        private final Parent parent;
+
+        private final Map<String, String> properties;
+
+        /**
+         * As declared, not interpolated
+         */
+        private final List<Dependency> managedDependencies;
+
+        PomInfo(File file, Parent parent, Map<String, String> properties, List<Dependency> managedDependencies) {
+            this.file = file;
+            this.parent = parent;
+            this.properties = properties;
+            this.managedDependencies = managedDependencies;
+        }
+
+    }
+
+    /**
+     * The effective model of a POM, as far as the index is concerned
+     */
+    private static class EffectivePom {
+
+        /**
+         * Declared and inherited properties
+         */
+        private final Map<String, String> properties;
+
+        /**
+         * Declared and inherited managed Dependencies, not interpolated, the declared ones first
+         */
+        private final List<Dependency> dependencies;
+
+        /**
+         * Interpolated managed Dependencies, with the imported ones, and their versions
+         */
+        private final Map<MavenDependency, String> managed;
+
+        /**
+         * False when part of the model was left out to cut a cycle
+         */
+        private final boolean complete;
+
+        EffectivePom(Map<String, String> properties, List<Dependency> dependencies,
+                Map<MavenDependency, String> managed, boolean complete) {
+            this.properties = properties;
+            this.dependencies = dependencies;
+            this.managed = managed;
+            this.complete = complete;
+        }
+
+    }
+
+}
@@ -0,0 +1,301 @@
+package org.jboss.maven.plugins.bom;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugin.logging.Log;
+import org.jboss.jdf.stacks.model.BomVersion;
+import org.jboss.maven.plugins.util.Fingerprint;
+
+/**
+ * Stores a {@link BomIndex} on disk so it can be reused across builds.
+ *
+ * The cache is keyed by the BOMs listed on the stacks descriptor. Every POM that was read to build the index (the BOMs,
+ * their parents and imports) is validated by its size and modification date when the cache is loaded, and the POMs
+ * that couldn't be resolved are resolved again, so a valid cache is found without resolving the BOMs one by one and
+ * a cache miss starts the concurrent resolution right away.
+ *
+ */
+public class BomIndexCache {
+
+    /**
+     * Location of the cache file, relative to the local repository
+     */
+    public static final String CACHE_FILE = ".cache/dependency-checker/bom-index.bin";
+
+    private static final int MAGIC = 0x44434249;
+
+    /**
+     * Must be incremented every time the file layout changes
+     */
+    private static final int FORMAT_VERSION = 5;
+
+    private File cacheFile;
+
+    private Log log;
+
+    /**
+     * @param cacheFile
+     * @param log
+     */
+    public BomIndexCache(File cacheFile, Log log) {
+        this.cacheFile = cacheFile;
+        this.log = log;
+    }
+
+    /**
+     * Computes the cache key for the given BOMs, without resolving them
+     *
+     * @param boms the BOMs listed on the stacks descriptor
+     *
+     * @return the hex encoded key
+     */
+    public static String computeKey(List<BomVersion> boms) {
+        Fingerprint fingerprint = new Fingerprint().add(String.valueOf(FORMAT_VERSION));
+        for (BomVersion bomVersion : boms) {
+            fingerprint.add(bomVersion.getId()).add(coordinatesOf(bomVersion));
+        }
+        return fingerprint.digestHex();
+    }
+
+    /**
+     * Tells cheaply whether the given BOMs may have changed: the BOMs listed and the size and modification date of
+     * each BOM POM
+     *
+     * @param boms the BOMs listed on the stacks descriptor
+     * @param pomResolver used to locate each BOM POM
+     *
+     * @return the hex encoded identity
+     */
+    public static String computeIdentity(List<BomVersion> boms, PomResolver pomResolver) {
+        Fingerprint fingerprint = new Fingerprint();
+        for (BomVersion bomVersion : boms) {
+            fingerprint.add(bomVersion.getId()).add(coordinatesOf(bomVersion));
+            File pomFile = pomResolver.resolvePom(bomVersion.getBom().getGroupId(), bomVersion.getBom().getArtifactId(),
+                    bomVersion.getVersion());
+            if (pomFile != null && pomFile.exists()) {
+                fingerprint.addIdentity(pomFile);
+            } else {
+                fingerprint.add("missing");
+            }
+        }
+        return fingerprint.digestHex();
+    }
+
+    /**
+     * @param key the expected cache key
+     * @param boms the BOMs listed on the stacks descriptor
+     * @param pomResolver resolves again the POMs that were missing when the index was built
+     *
+     * @return the cached index or null if there is no valid cache for the given key
+     */
+    public BomIndex load(String key, List<BomVersion> boms, PomResolver pomResolver) {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+            try {
+                return read(in, key, boms, pomResolver);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            log.debug("Ignoring unreadable BOM index cache " + cacheFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Identifies the cached index without loading it: by the cache file itself (path, size and modification date) and
+     * the key it was stored with
+     *
+     * @return the identity of the cache or null if there is no cache or any POM it was built from has changed
+     */
+    public String getIdentity() {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+            try {
+                String key = readHeader(in);
+                return key == null ? null : new Fingerprint().addIdentity(cacheFile).add(key).digestHex();
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            log.debug("Ignoring unreadable BOM index cache " + cacheFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param key the cache key
+     * @param index the index to be stored
+     * @param sourcePoms every POM file that was read to build the index
+     * @param missingPoms groupId:artifactId:version of every POM that couldn't be resolved to build the index
+     * @throws IOException
+     */
+    public void store(String key, BomIndex index, Collection<File> sourcePoms, Collection<String> missingPoms)
+            throws IOException {
+        cacheFile.getParentFile().mkdirs();
+        // Writes to a temporary file first so concurrent builds never read a partial cache
+        File tmpFile = File.createTempFile("bom-index", ".tmp", cacheFile.getParentFile());
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+        try {
+            write(out, key, index, sourcePoms, missingPoms);
+        } finally {
+            out.close();
+        }
+        if (!tmpFile.renameTo(cacheFile)) {
+            cacheFile.delete();
+            if (!tmpFile.renameTo(cacheFile)) {
+                tmpFile.delete();
+                throw new IOException("Can't write " + cacheFile);
+            }
+        }
+    }
+
+    private void write(DataOutputStream out, String key, BomIndex index, Collection<File> sourcePoms,
+            Collection<String> missingPoms) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(key);
+        out.writeInt(sourcePoms.size());
+        for (File pom : sourcePoms) {
+            out.writeUTF(pom.getAbsolutePath());
+            out.writeLong(pom.length());
+            out.writeLong(pom.lastModified());
+        }
+        out.writeInt(missingPoms.size());
+        for (String pom : missingPoms) {
+            out.writeUTF(pom);
+        }
+        List<BomVersion> boms = index.getBomVersions();
+        out.writeInt(boms.size());
+        for (BomVersion bomVersion : boms) {
+            out.writeUTF(coordinatesOf(bomVersion));
+        }
+        out.writeInt(index.size());
+        for (int entry = 0; entry < index.size(); entry++) {
+            out.writeUTF(index.getGroupId(entry));
+            out.writeUTF(index.getArtifactId(entry));
+            for (int bom = index.nextBom(entry, 0); bom >= 0; bom = index.nextBom(entry, bom + 1)) {
+                out.writeShort(bom);
+                String version = index.getManagedVersion(entry, bom);
+                out.writeUTF(version == null ? "" : version);
+            }
+            out.writeShort(-1);
+        }
+    }
+
+    /**
+     * Reads the format, the key and the POMs the index was built from
+     *
+     * @return the key the cache was stored with or null if the format is unknown or any of the POMs has changed
+     * @throws IOException
+     */
+    private String readHeader(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            log.debug("BOM index cache " + cacheFile + " has an unknown format");
+            return null;
+        }
+        String key = in.readUTF();
+        int pomCount = in.readInt();
+        for (int i = 0; i < pomCount; i++) {
+            File pom = new File(in.readUTF());
+            long length = in.readLong();
+            long lastModified = in.readLong();
+            if (pom.length() != length || pom.lastModified() != lastModified) {
+                log.debug("BOM index cache " + cacheFile + " is outdated: " + pom + " has changed");
+                return null;
+            }
+        }
+        return key;
+    }
+
+    private BomIndex read(DataInputStream in, String key, List<BomVersion> boms, PomResolver pomResolver)
+            throws IOException {
+        String cachedKey = readHeader(in);
+        if (cachedKey == null) {
+            return null;
+        }
+        if (!key.equals(cachedKey)) {
+            log.debug("BOM index cache " + cacheFile + " is outdated");
+            return null;
+        }
+        int missingCount = in.readInt();
+        for (int i = 0; i < missingCount; i++) {
+            String[] coordinates = in.readUTF().split(":");
+            File pom = pomResolver.resolvePom(coordinates[0], coordinates[1], coordinates[2]);
+            if (pom != null && pom.exists()) {
+                log.debug("BOM index cache " + cacheFile + " is outdated: " + pom + " is now available");
+                return null;
+            }
+        }
+        Map<String, BomVersion> bomsByCoordinates = new HashMap<String, BomVersion>();
+        for (BomVersion bomVersion : boms) {
+            bomsByCoordinates.put(coordinatesOf(bomVersion), bomVersion);
+        }
+        int bomCount = in.readInt();
+        List<BomVersion> bomTable = new ArrayList<BomVersion>(bomCount);
+        for (int i = 0; i < bomCount; i++) {
+            BomVersion bomVersion = bomsByCoordinates.get(in.readUTF());
+            if (bomVersion == null) {
+                return null;
+            }
+            bomTable.add(bomVersion);
+        }
+        int entryCount = in.readInt();
+        BomIndex.Builder index = new BomIndex.Builder(bomTable);
+        for (int i = 0; i < entryCount; i++) {
+            String groupId = in.readUTF();
+            String artifactId = in.readUTF();
+            for (int bom = in.readShort(); bom >= 0; bom = in.readShort()) {
+                String version = in.readUTF();
+                index.add(groupId, artifactId, bom, version.length() == 0 ? null : version);
+            }
+        }
+        return index.build();
+    }
+
+    private static String coordinatesOf(BomVersion bomVersion) {
+        return String.format("%s:%s:%s", bomVersion.getBom().getGroupId(), bomVersion.getBom().getArtifactId(),
+                bomVersion.getVersion());
+    }
+
+}
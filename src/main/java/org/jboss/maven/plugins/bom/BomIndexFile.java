@@ -0,0 +1,333 @@
+package org.jboss.maven.plugins.bom;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import org.jboss.jdf.stacks.model.Bom;
+import org.jboss.jdf.stacks.model.BomVersion;
+import org.jboss.maven.plugins.dependency.RelocationMatcher;
+
+/**
+ * A pre-built BOM index and relocation table, stored on a single file that can be published as a Maven artifact, so
+ * builds don't need to fetch the stacks descriptor and resolve every BOM.
+ *
+ * The file is a header followed by fixed width sections: the membership bitsets, then every reference to a String as
+ * an int, and the UTF-8 String table at the end. Each String is stored once. The file is memory mapped and every
+ * section is read with a single bulk copy, so loading it costs little more than the copy of its bytes.
+ *
+ * <pre>
+ * header:       magic, format version, strings, BOMs, labels, entries, managed versions, relocations (ints)
+ * membership:   BOMs managing each entry (longs, as on the {@link BomIndex})
+ * strings:      end of each String on the String table (ints)
+ * BOMs:         id, bom id, name, description, groupId, artifactId, recommended version, version (String refs)
+ * labels:       BOM position, key, value (BOM labels)
+ * entries:      groupId, artifactId (String refs)
+ * versions:     managed version of each membership bit (String refs)
+ * relocations:  relocated prefix, proposed dependencies (String refs)
+ * String table: UTF-8 bytes
+ * </pre>
+ *
+ * A String ref is the String position or -1 for null.
+ *
+ */
+public class BomIndexFile {
+
+    /**
+     * Classifier of the index artifact
+     */
+    public static final String CLASSIFIER = "dependency-checker-index";
+
+    /**
+     * Type (extension) of the index artifact
+     */
+    public static final String TYPE = "bin";
+
+    private static final int MAGIC = 0x44434958;
+
+    /**
+     * Must be incremented every time the file layout changes
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_INTS = 8;
+
+    private static final int BOM_INTS = 8;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final BomIndex bomIndex;
+
+    private final RelocationMatcher relocatedDependencies;
+
+    private BomIndexFile(BomIndex bomIndex, RelocationMatcher relocatedDependencies) {
+        this.bomIndex = bomIndex;
+        this.relocatedDependencies = relocatedDependencies;
+    }
+
+    /**
+     * @return the BOM index, with the metadata of each BOM
+     */
+    public BomIndex getBomIndex() {
+        return bomIndex;
+    }
+
+    /**
+     * @return the relocation table
+     */
+    public RelocationMatcher getRelocatedDependencies() {
+        return relocatedDependencies;
+    }
+
+    /**
+     * @param file
+     * @param bomIndex
+     * @param relocatedDependencies
+     * @throws IOException
+     */
+    public static void write(File file, BomIndex bomIndex, RelocationMatcher relocatedDependencies)
+            throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+        List<BomVersion> boms = bomIndex.getBomVersions();
+        int[] bomRefs = new int[boms.size() * BOM_INTS];
+        List<Integer> labelRefs = new ArrayList<Integer>();
+        for (int i = 0; i < boms.size(); i++) {
+            BomVersion bomVersion = boms.get(i);
+            Bom bom = bomVersion.getBom();
+            String[] values = { bomVersion.getId(), bom.getId(), bom.getName(), bom.getDescription(),
+                    bom.getGroupId(), bom.getArtifactId(), bom.getRecommendedVersion(), bomVersion.getVersion() };
+            for (int j = 0; j < BOM_INTS; j++) {
+                bomRefs[i * BOM_INTS + j] = ref(strings, values[j]);
+            }
+            if (bomVersion.getLabels() != null) {
+                // Sorted so the same index always gives the same file
+                for (String key : new TreeSet<String>(bomVersion.getLabels().stringPropertyNames())) {
+                    labelRefs.add(i);
+                    labelRefs.add(ref(strings, key));
+                    labelRefs.add(ref(strings, bomVersion.getLabels().getProperty(key)));
+                }
+            }
+        }
+        int words = BomIndex.wordsFor(boms.size());
+        long[] membership = new long[bomIndex.size() * words];
+        int[] entryRefs = new int[bomIndex.size() * 2];
+        List<Integer> versionRefs = new ArrayList<Integer>();
+        for (int entry = 0; entry < bomIndex.size(); entry++) {
+            entryRefs[entry * 2] = ref(strings, bomIndex.getGroupId(entry));
+            entryRefs[entry * 2 + 1] = ref(strings, bomIndex.getArtifactId(entry));
+            for (int bom = bomIndex.nextBom(entry, 0); bom >= 0; bom = bomIndex.nextBom(entry, bom + 1)) {
+                membership[entry * words + (bom >>> 6)] |= 1L << (bom & 63);
+                versionRefs.add(ref(strings, bomIndex.getManagedVersion(entry, bom)));
+            }
+        }
+        Properties relocations = relocatedDependencies.toProperties();
+        List<Integer> relocationRefs = new ArrayList<Integer>();
+        for (String key : new TreeSet<String>(relocations.stringPropertyNames())) {
+            relocationRefs.add(ref(strings, key));
+            relocationRefs.add(ref(strings, relocations.getProperty(key)));
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(strings.size());
+            out.writeInt(boms.size());
+            out.writeInt(labelRefs.size() / 3);
+            out.writeInt(bomIndex.size());
+            out.writeInt(versionRefs.size());
+            out.writeInt(relocationRefs.size() / 2);
+            for (long word : membership) {
+                out.writeLong(word);
+            }
+            List<byte[]> encoded = new ArrayList<byte[]>(strings.size());
+            int end = 0;
+            for (String string : strings.keySet()) {
+                byte[] bytes = string.getBytes(UTF_8);
+                encoded.add(bytes);
+                end += bytes.length;
+                out.writeInt(end);
+            }
+            writeInts(out, bomRefs);
+            writeInts(out, labelRefs);
+            writeInts(out, entryRefs);
+            writeInts(out, versionRefs);
+            writeInts(out, relocationRefs);
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @param file
+     * @return the index stored on the file
+     * @throws IOException if the file can't be read or isn't an index file
+     */
+    public static BomIndexFile read(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            return read(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+        } catch (BufferUnderflowException e) {
+            throw new IOException(file + " is truncated");
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file + " is corrupted");
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException(file + " is corrupted");
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static BomIndexFile read(ByteBuffer buffer) throws IOException {
+        int[] header = readInts(buffer, HEADER_INTS);
+        if (header[0] != MAGIC || header[1] != FORMAT_VERSION) {
+            throw new IOException("Not a dependency checker index (or of an unsupported version)");
+        }
+        for (int i = 2; i < HEADER_INTS; i++) {
+            if (header[i] < 0) {
+                throw new IOException("Corrupted dependency checker index");
+            }
+        }
+        int bomCount = header[3];
+        int entryCount = header[5];
+        long[] membership = new long[checkRemaining(buffer, (long) entryCount * BomIndex.wordsFor(bomCount), 8)];
+        buffer.asLongBuffer().get(membership);
+        buffer.position(buffer.position() + membership.length * 8);
+        int[] stringEnds = readInts(buffer, header[2]);
+        int[] bomRefs = readInts(buffer, bomCount * BOM_INTS);
+        int[] labelRefs = readInts(buffer, header[4] * 3);
+        int[] entryRefs = readInts(buffer, entryCount * 2);
+        int[] versionRefs = readInts(buffer, header[6]);
+        int[] relocationRefs = readInts(buffer, header[7] * 2);
+        int stringBytes = stringEnds.length == 0 ? 0 : stringEnds[stringEnds.length - 1];
+        byte[] bytes = new byte[checkRemaining(buffer, stringBytes, 1)];
+        buffer.get(bytes);
+        String[] strings = new String[stringEnds.length];
+        for (int i = 0; i < strings.length; i++) {
+            int start = i == 0 ? 0 : stringEnds[i - 1];
+            strings[i] = new String(bytes, start, stringEnds[i] - start, UTF_8);
+        }
+
+        BomVersion[] bomTable = new BomVersion[bomCount];
+        for (int i = 0; i < bomCount; i++) {
+            Bom bom = new Bom();
+            bom.setId(string(strings, bomRefs[i * BOM_INTS + 1]));
+            bom.setName(string(strings, bomRefs[i * BOM_INTS + 2]));
+            bom.setDescription(string(strings, bomRefs[i * BOM_INTS + 3]));
+            bom.setGroupId(string(strings, bomRefs[i * BOM_INTS + 4]));
+            bom.setArtifactId(string(strings, bomRefs[i * BOM_INTS + 5]));
+            bom.setRecommendedVersion(string(strings, bomRefs[i * BOM_INTS + 6]));
+            bomTable[i] = new BomVersion();
+            bomTable[i].setId(string(strings, bomRefs[i * BOM_INTS]));
+            bomTable[i].setBom(bom);
+            bomTable[i].setVersion(string(strings, bomRefs[i * BOM_INTS + 7]));
+            bomTable[i].setLabels(new Properties());
+        }
+        for (int i = 0; i < labelRefs.length; i += 3) {
+            bomTable[labelRefs[i]].getLabels().setProperty(string(strings, labelRefs[i + 1]),
+                    string(strings, labelRefs[i + 2]));
+        }
+        String[] groupIds = new String[entryCount];
+        String[] artifactIds = new String[entryCount];
+        for (int entry = 0; entry < entryCount; entry++) {
+            groupIds[entry] = string(strings, entryRefs[entry * 2]);
+            artifactIds[entry] = string(strings, entryRefs[entry * 2 + 1]);
+        }
+        String[] versions = new String[versionRefs.length];
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = string(strings, versionRefs[i]);
+        }
+        Properties relocations = new Properties();
+        for (int i = 0; i < relocationRefs.length; i += 2) {
+            relocations.setProperty(string(strings, relocationRefs[i]), string(strings, relocationRefs[i + 1]));
+        }
+        return new BomIndexFile(BomIndex.of(bomTable, groupIds, artifactIds, membership, versions),
+                RelocationMatcher.compile(relocations));
+    }
+
+    private static int ref(Map<String, Integer> strings, String string) {
+        if (string == null) {
+            return -1;
+        }
+        Integer ref = strings.get(string);
+        if (ref == null) {
+            ref = strings.size();
+            strings.put(string, ref);
+        }
+        return ref;
+    }
+
+    private static String string(String[] strings, int ref) {
+        return ref < 0 ? null : strings[ref];
+    }
+
+    /**
+     * Protects against allocating huge arrays for corrupted files
+     */
+    private static int checkRemaining(ByteBuffer buffer, long count, int size) throws IOException {
+        if (count < 0 || count * size > buffer.remaining()) {
+            throw new IOException("Truncated dependency checker index");
+        }
+        return (int) count;
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) throws IOException {
+        int[] ints = new int[checkRemaining(buffer, count, 4)];
+        buffer.asIntBuffer().get(ints);
+        buffer.position(buffer.position() + count * 4);
+        return ints;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] ints) throws IOException {
+        for (int value : ints) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, List<Integer> ints) throws IOException {
+        for (int value : ints) {
+            out.writeInt(value);
+        }
+    }
+
+}
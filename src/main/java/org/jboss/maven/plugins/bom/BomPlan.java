@@ -0,0 +1,153 @@
+package org.jboss.maven.plugins.bom;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.jdf.stacks.model.BomVersion;
+import org.jboss.maven.plugins.dependency.MavenDependency;
+
+/**
+ * The BOMs proposed for a project by the {@link BomPlanner}: the smallest set of BOMs that manages every dependency
+ * declaring its version, and which of them each dependency should come from.
+ *
+ */
+public class BomPlan {
+
+    private static final BomPlan EMPTY = new BomPlan(Collections.<Suggestion> emptyList(),
+            Collections.<MavenDependency, Suggestion> emptyMap(), Collections.<MavenDependency, String> emptyMap());
+
+    private final List<Suggestion> suggestions;
+
+    private final Map<MavenDependency, Suggestion> suggestionsByDependency;
+
+    private final Map<MavenDependency, String> managedVersions;
+
+    BomPlan(List<Suggestion> suggestions, Map<MavenDependency, Suggestion> suggestionsByDependency,
+            Map<MavenDependency, String> managedVersions) {
+        this.suggestions = suggestions;
+        this.suggestionsByDependency = suggestionsByDependency;
+        this.managedVersions = managedVersions;
+    }
+
+    /**
+     * @return a plan with no BOM
+     */
+    public static BomPlan empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return the proposed BOMs, on the order they were chosen (the BOM covering most dependencies first)
+     */
+    public List<Suggestion> getSuggestions() {
+        return suggestions;
+    }
+
+    /**
+     * @param dependency
+     * @return the proposed BOM for the dependency or null if no BOM manages it
+     */
+    public Suggestion getSuggestion(MavenDependency dependency) {
+        return suggestionsByDependency.get(dependency);
+    }
+
+    /**
+     * @param dependency
+     * @return the version managed for the dependency by its proposed BOM, or null if unknown
+     */
+    public String getManagedVersion(MavenDependency dependency) {
+        return managedVersions.get(dependency);
+    }
+
+    /**
+     * @return true if no BOM is proposed
+     */
+    public boolean isEmpty() {
+        return suggestions.isEmpty();
+    }
+
+    /**
+     * A proposed BOM and how well it fits the project
+     */
+    public static class Suggestion {
+
+        private final BomVersion bomVersion;
+
+        private final int covered;
+
+        private final int sameVersion;
+
+        private final double alignment;
+
+        Suggestion(BomVersion bomVersion, int covered, int sameVersion, double alignment) {
+            this.bomVersion = bomVersion;
+            this.covered = covered;
+            this.sameVersion = sameVersion;
+            this.alignment = alignment;
+        }
+
+        /**
+         * @return the proposed BOM
+         */
+        public BomVersion getBomVersion() {
+            return bomVersion;
+        }
+
+        /**
+         * @return the number of dependencies that should come from this BOM
+         */
+        public int getCovered() {
+            return covered;
+        }
+
+        /**
+         * @return how many of those dependencies declare the same version managed by the BOM
+         */
+        public int getSameVersion() {
+            return sameVersion;
+        }
+
+        /**
+         * @return the sum of the version alignment of those dependencies, see {@link BomPlanner#alignment}
+         */
+        public double getAlignment() {
+            return alignment;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return String.format("%s:%s:%s", bomVersion.getBom().getGroupId(), bomVersion.getBom().getArtifactId(),
+                    bomVersion.getVersion());
+        }
+
+    }
+
+}
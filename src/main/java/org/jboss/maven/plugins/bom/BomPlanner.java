@@ -0,0 +1,228 @@
+package org.jboss.maven.plugins.bom;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.jdf.stacks.model.Bom;
+import org.jboss.maven.plugins.bom.BomPlan.Suggestion;
+import org.jboss.maven.plugins.dependency.MavenDependency;
+
+/**
+ * Proposes the smallest set of BOMs that manages the dependencies of a project.
+ *
+ * Each BOM is ranked by how many of the remaining dependencies it manages and, on a tie, by how close its managed
+ * versions are to the declared ones. The best BOM is picked until every managed dependency is covered (the greedy
+ * approximation of the set cover problem). Coverage is kept as bitsets over the project dependencies, built from the
+ * membership bits of the {@link BomIndex}, so the only work per round is a pass over the BOM bitsets.
+ *
+ * A project can import only one version of a BOM, so once a version is picked the other versions of the same BOM
+ * leave the race: the dependencies only they manage stay without a suggestion.
+ *
+ */
+public class BomPlanner {
+
+    private final BomIndex index;
+
+    /**
+     * @param index the full BOM index
+     */
+    public BomPlanner(BomIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * @param declaredVersions the dependencies of the project and the version each one declares
+     * @return the proposed BOMs
+     */
+    public BomPlan plan(Map<MavenDependency, String> declaredVersions) {
+        // Only the dependencies managed by some BOM take part
+        int[] entries = new int[declaredVersions.size()];
+        MavenDependency[] dependencies = new MavenDependency[declaredVersions.size()];
+        String[] versions = new String[declaredVersions.size()];
+        int count = 0;
+        for (Map.Entry<MavenDependency, String> declared : declaredVersions.entrySet()) {
+            int entry = index.indexOf(declared.getKey().getGroupId(), declared.getKey().getArtifactId());
+            if (entry >= 0) {
+                entries[count] = entry;
+                dependencies[count] = declared.getKey();
+                versions[count] = declared.getValue();
+                count++;
+            }
+        }
+        if (count == 0) {
+            return BomPlan.empty();
+        }
+        int words = (count + 63) >>> 6;
+        int bomCount = index.getBomVersions().size();
+        // Which dependencies each BOM covers, and how well. Only BOMs covering something are allocated
+        long[][] cover = new long[bomCount][];
+        double[][] alignments = new double[bomCount][];
+        for (int i = 0; i < count; i++) {
+            for (int bom = index.nextBom(entries[i], 0); bom >= 0; bom = index.nextBom(entries[i], bom + 1)) {
+                if (cover[bom] == null) {
+                    cover[bom] = new long[words];
+                    alignments[bom] = new double[count];
+                }
+                cover[bom][i >>> 6] |= 1L << (i & 63);
+                alignments[bom][i] = alignment(versions[i], index.getManagedVersion(entries[i], bom));
+            }
+        }
+        List<Suggestion> suggestions = new ArrayList<Suggestion>();
+        Map<MavenDependency, Suggestion> suggestionsByDependency = new HashMap<MavenDependency, Suggestion>();
+        Map<MavenDependency, String> managedVersions = new HashMap<MavenDependency, String>();
+        long[] covered = new long[words];
+        while (true) {
+            int best = -1;
+            int bestGain = 0;
+            double bestAlignment = 0;
+            for (int bom = 0; bom < bomCount; bom++) {
+                if (cover[bom] == null) {
+                    continue;
+                }
+                int gain = 0;
+                for (int word = 0; word < words; word++) {
+                    gain += Long.bitCount(cover[bom][word] & ~covered[word]);
+                }
+                if (gain == 0 || gain < bestGain) {
+                    continue;
+                }
+                double alignment = sumAlignment(cover[bom], covered, alignments[bom]);
+                // Ties keep the BOM listed first on the stacks descriptor
+                if (gain > bestGain || alignment > bestAlignment) {
+                    best = bom;
+                    bestGain = gain;
+                    bestAlignment = alignment;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            int sameVersion = 0;
+            for (int word = 0; word < words; word++) {
+                for (long bits = cover[best][word] & ~covered[word]; bits != 0; bits &= bits - 1) {
+                    if (alignments[best][(word << 6) + Long.numberOfTrailingZeros(bits)] == 1) {
+                        sameVersion++;
+                    }
+                }
+            }
+            Suggestion suggestion = new Suggestion(index.getBomVersion(best), bestGain, sameVersion, bestAlignment);
+            for (int word = 0; word < words; word++) {
+                for (long bits = cover[best][word] & ~covered[word]; bits != 0; bits &= bits - 1) {
+                    int i = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    suggestionsByDependency.put(dependencies[i], suggestion);
+                    String managedVersion = index.getManagedVersion(entries[i], best);
+                    if (managedVersion != null) {
+                        managedVersions.put(dependencies[i], managedVersion);
+                    }
+                }
+                covered[word] |= cover[best][word];
+            }
+            suggestions.add(suggestion);
+            excludeOtherVersions(best, cover);
+        }
+        return new BomPlan(suggestions, suggestionsByDependency, managedVersions);
+    }
+
+    /**
+     * Removes the other versions of the given BOM from the candidates
+     *
+     * @param picked
+     * @param cover the coverage of each candidate, null for the BOMs that aren't candidates
+     */
+    private void excludeOtherVersions(int picked, long[][] cover) {
+        Bom pickedBom = index.getBomVersion(picked).getBom();
+        for (int bom = 0; bom < cover.length; bom++) {
+            if (cover[bom] != null && bom != picked) {
+                Bom other = index.getBomVersion(bom).getBom();
+                if (pickedBom.getGroupId().equals(other.getGroupId())
+                        && pickedBom.getArtifactId().equals(other.getArtifactId())) {
+                    cover[bom] = null;
+                }
+            }
+        }
+    }
+
+    private static double sumAlignment(long[] cover, long[] covered, double[] alignments) {
+        double sum = 0;
+        for (int word = 0; word < cover.length; word++) {
+            for (long bits = cover[word] & ~covered[word]; bits != 0; bits &= bits - 1) {
+                sum += alignments[(word << 6) + Long.numberOfTrailingZeros(bits)];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * How close two versions are: 1 when they are equal, otherwise the share of their leading '.' or '-' separated
+     * parts that are equal (so 1.2.3 is closer to 1.2.4 than to 1.3.0), always below 1. Doesn't allocate any object.
+     *
+     * @param declared
+     * @param managed
+     * @return the alignment, from 0 to 1
+     */
+    public static double alignment(String declared, String managed) {
+        if (declared == null || managed == null) {
+            return 0;
+        }
+        if (declared.equals(managed)) {
+            return 1;
+        }
+        int matching = 0;
+        int i = 0;
+        int j = 0;
+        while (i <= declared.length() && j <= managed.length()) {
+            int declaredEnd = tokenEnd(declared, i);
+            int managedEnd = tokenEnd(managed, j);
+            if (declaredEnd - i != managedEnd - j || !declared.regionMatches(i, managed, j, declaredEnd - i)) {
+                break;
+            }
+            matching++;
+            i = declaredEnd + 1;
+            j = managedEnd + 1;
+        }
+        return matching / (Math.max(tokens(declared), tokens(managed)) + 1.0);
+    }
+
+    private static int tokenEnd(String version, int from) {
+        int end = from;
+        while (end < version.length() && version.charAt(end) != '.' && version.charAt(end) != '-') {
+            end++;
+        }
+        return end;
+    }
+
+    private static int tokens(String version) {
+        int tokens = 1;
+        for (int i = 0; i < version.length(); i++) {
+            if (version.charAt(i) == '.' || version.charAt(i) == '-') {
+                tokens++;
+            }
+        }
+        return tokens;
+    }
+
+}
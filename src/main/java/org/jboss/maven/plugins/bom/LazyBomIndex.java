@@ -0,0 +1,141 @@
+package org.jboss.maven.plugins.bom;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.jboss.jdf.stacks.model.BomVersion;
+import org.jboss.maven.plugins.dependency.MavenDependency;
+
+/**
+ * A {@link BomIndex} whose BOMs may still be loading in the background.
+ *
+ * Asking for the first BOM that manages a dependency only waits for the BOMs up to the one that manages it. The full
+ * index (needed to know every BOM that manages a dependency, or that none does) waits for all of them.
+ *
+ * Instances can be shared between threads.
+ *
+ */
+public class LazyBomIndex {
+
+    /**
+     * Receives the full index when it is built
+     */
+    public interface Listener {
+
+        /**
+         * @param index
+         */
+        void built(BomIndex index);
+
+    }
+
+    private final List<BomVersion> boms;
+
+    private final List<Future<Map<MavenDependency, String>>> pending;
+
+    private final Listener listener;
+
+    private volatile BomIndex index;
+
+    /**
+     * @param boms the BOMs being loaded
+     * @param pending the managed Dependencies (and their versions) of each BOM, on the same order
+     * @param listener notified when the full index is built, may be null
+     */
+    LazyBomIndex(List<BomVersion> boms, List<Future<Map<MavenDependency, String>>> pending, Listener listener) {
+        this.boms = boms;
+        this.pending = pending;
+        this.listener = listener;
+    }
+
+    /**
+     * @param index an index that is already built
+     * @return the lazy index for it
+     */
+    public static LazyBomIndex of(BomIndex index) {
+        LazyBomIndex lazyIndex = new LazyBomIndex(Collections.<BomVersion> emptyList(),
+                Collections.<Future<Map<MavenDependency, String>>> emptyList(), null);
+        lazyIndex.index = index;
+        return lazyIndex;
+    }
+
+    /**
+     * Waits only for the BOMs until the first one that manages the given dependency
+     *
+     * @param groupId
+     * @param artifactId
+     * @return the first BOM (on the stacks descriptor order) that manages the dependency or null if none of them does
+     * @throws MojoExecutionException
+     */
+    public BomVersion findFirstBom(String groupId, String artifactId) throws MojoExecutionException {
+        BomIndex built = index;
+        if (built != null) {
+            int entry = built.indexOf(groupId, artifactId);
+            return entry < 0 ? null : built.getBomVersion(built.nextBom(entry, 0));
+        }
+        MavenDependency mvnDependency = new MavenDependency(groupId, artifactId);
+        for (int i = 0; i < pending.size(); i++) {
+            if (BomIndexBuilder.get(pending.get(i)).containsKey(mvnDependency)) {
+                return boms.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Waits for every BOM
+     *
+     * @return the full index
+     * @throws MojoExecutionException
+     */
+    public BomIndex getIndex() throws MojoExecutionException {
+        BomIndex built = index;
+        if (built == null) {
+            synchronized (this) {
+                if (index == null) {
+                    // Merges on the BOM order so the index is the same no matter which BOM was resolved first
+                    BomIndex.Builder builder = new BomIndex.Builder(boms);
+                    for (int i = 0; i < boms.size(); i++) {
+                        for (Map.Entry<MavenDependency, String> managed : BomIndexBuilder.get(pending.get(i))
+                                .entrySet()) {
+                            builder.add(managed.getKey().getGroupId(), managed.getKey().getArtifactId(), i,
+                                    managed.getValue());
+                        }
+                    }
+                    index = builder.build();
+                    if (listener != null) {
+                        listener.built(index);
+                    }
+                }
+                built = index;
+            }
+        }
+        return built;
+    }
+
+}
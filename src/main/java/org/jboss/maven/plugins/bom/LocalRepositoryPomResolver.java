@@ -0,0 +1,54 @@
+package org.jboss.maven.plugins.bom;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+
+/**
+ * Finds POMs on the local repository only, without downloading anything. Used where there is no Maven session to
+ * resolve artifacts, like the check daemon.
+ *
+ */
+public class LocalRepositoryPomResolver implements PomResolver {
+
+    private File localRepositoryDirectory;
+
+    /**
+     * @param localRepositoryDirectory
+     */
+    public LocalRepositoryPomResolver(File localRepositoryDirectory) {
+        this.localRepositoryDirectory = localRepositoryDirectory;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.bom.PomResolver#resolvePom(java.lang.String, java.lang.String, java.lang.String)
+     */
+    public File resolvePom(String groupId, String artifactId, String version) {
+        String path = String.format("%s/%s/%s/%s-%s.pom", groupId.replace('.', '/'), artifactId, version, artifactId,
+                version);
+        return new File(localRepositoryDirectory, path);
+    }
+
+}
@@ -0,0 +1,70 @@
+package org.jboss.maven.plugins.bom;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactResolutionRequest;
+import org.apache.maven.repository.RepositorySystem;
+
+/**
+ * {@link PomResolver} backed by the Maven {@link RepositorySystem}
+ *
+ */
+public class RepositoryPomResolver implements PomResolver {
+
+    private RepositorySystem repositorySystem;
+
+    private List<ArtifactRepository> remoteRepos;
+
+    private ArtifactRepository localRepository;
+
+    /**
+     * @param repositorySystem
+     * @param remoteRepos
+     * @param localRepository
+     */
+    public RepositoryPomResolver(RepositorySystem repositorySystem, List<ArtifactRepository> remoteRepos,
+            ArtifactRepository localRepository) {
+        this.repositorySystem = repositorySystem;
+        this.remoteRepos = remoteRepos;
+        this.localRepository = localRepository;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.bom.PomResolver#resolvePom(java.lang.String, java.lang.String, java.lang.String)
+     */
+    public File resolvePom(String groupId, String artifactId, String version) {
+        Artifact pomArtifact = repositorySystem.createArtifact(groupId, artifactId, version, "", "pom");
+        ArtifactResolutionRequest arr = new ArtifactResolutionRequest();
+        arr.setArtifact(pomArtifact).setRemoteRepositories(remoteRepos).setLocalRepository(localRepository);
+        repositorySystem.resolve(arr);
+        return pomArtifact.getFile();
+    }
+
+}
@@ -0,0 +1,181 @@
+package org.jboss.maven.plugins.check;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.jboss.jdf.stacks.model.BomVersion;
+import org.jboss.maven.plugins.Issue;
+import org.jboss.maven.plugins.IssueType;
+import org.jboss.maven.plugins.bom.BomIndex;
+import org.jboss.maven.plugins.bom.BomPlan;
+import org.jboss.maven.plugins.bom.BomPlanner;
+import org.jboss.maven.plugins.dependency.DeclaredDependencies.DeclaredVersion;
+import org.jboss.maven.plugins.dependency.MavenDependency;
+
+/**
+ * Checks if a dependency declaring its version has a BOM (Bill of Materials) for it
+ *
+ */
+public class BomCheck implements DependencyCheck {
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.check.DependencyCheck#getId()
+     */
+    public String getId() {
+        return IssueType.BOM.getId();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.check.DependencyCheck#getFingerprint()
+     */
+    public String getFingerprint() {
+        // The BOM index is part of the context
+        return getId();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.check.DependencyCheck#check(org.apache.maven.model.Dependency,
+     * org.jboss.maven.plugins.check.CheckContext)
+     */
+    public List<Issue> check(Dependency dependency, CheckContext context) throws MojoExecutionException {
+        Issue issue = check(dependency, context, context.isFailFast());
+        return issue == null ? Collections.<Issue> emptyList() : Collections.singletonList(issue);
+    }
+
+    /**
+     * When the BOMs were planned, only the planned BOM is suggested. Otherwise every BOM managing the dependency is
+     * listed, the ones whose managed version is closer to the declared one first.
+     *
+     * @param dependency
+     * @param context
+     * @param firstBomOnly only waits for the first BOM that manages the dependency, instead of listing all of them
+     * @return the issue or null if the dependency doesn't declare its version or no BOM manages it
+     * @throws MojoExecutionException
+     */
+    public Issue check(Dependency dependency, CheckContext context, boolean firstBomOnly)
+            throws MojoExecutionException {
+        MavenDependency mvnDependency = new MavenDependency(dependency.getGroupId(), dependency.getArtifactId());
+        // Only check dependencies that has declared version
+        DeclaredVersion declaredVersion = context.getDeclaredDependencies().getDeclaredVersion(mvnDependency);
+        if (declaredVersion == null) {
+            return null;
+        }
+        // If it has managed Dependency in any BOM
+        BomPlan bomPlan = null;
+        if (!firstBomOnly) {
+            // The plan waits for every BOM, so it is only asked for when some BOM manages the dependency
+            if (context.getBomIndex().findFirstBom(dependency.getGroupId(), dependency.getArtifactId()) == null) {
+                return null;
+            }
+            bomPlan = context.getBomPlan();
+        }
+        List<BomVersion> boms;
+        List<String> managedVersions;
+        if (firstBomOnly) {
+            BomVersion bomVersion = context.getBomIndex().findFirstBom(dependency.getGroupId(),
+                    dependency.getArtifactId());
+            boms = bomVersion == null ? null : Collections.singletonList(bomVersion);
+            managedVersions = Collections.singletonList(null);
+        } else if (bomPlan != null && bomPlan.getSuggestion(mvnDependency) != null) {
+            boms = Collections.singletonList(bomPlan.getSuggestion(mvnDependency).getBomVersion());
+            managedVersions = Collections.singletonList(bomPlan.getManagedVersion(mvnDependency));
+        } else {
+            BomIndex index = context.getBomIndex().getIndex();
+            int entry = index.indexOf(dependency.getGroupId(), dependency.getArtifactId());
+            boms = entry < 0 ? null : new ArrayList<BomVersion>();
+            managedVersions = new ArrayList<String>();
+            for (int bom = entry < 0 ? -1 : index.nextBom(entry, 0); bom >= 0; bom = index.nextBom(entry, bom + 1)) {
+                String managedVersion = index.getManagedVersion(entry, bom);
+                // Closest version first, keeping the stacks descriptor order on ties
+                int position = 0;
+                while (position < managedVersions.size()
+                        && BomPlanner.alignment(dependency.getVersion(), managedVersions.get(position)) >= BomPlanner
+                                .alignment(dependency.getVersion(), managedVersion)) {
+                    position++;
+                }
+                boms.add(position, index.getBomVersion(bom));
+                managedVersions.add(position, managedVersion);
+            }
+        }
+        if (boms == null) {
+            return null;
+        }
+        SuggestionAvailability availability = context.getSuggestionAvailability();
+        StringBuilder sb = new StringBuilder("Declared version [" + dependency.getVersion() + "]");
+        appendDeclaration(sb, declaredVersion);
+        sb.append(". ");
+        sb.append("You should remove the version and use the following BOM: \n");
+        for (int i = 0; i < boms.size(); i++) {
+            BomVersion bomVersion = boms.get(i);
+            sb.append(String.format("\t\t - %s:%s:%s", bomVersion.getBom().getGroupId(), bomVersion.getBom()
+                    .getArtifactId(), bomVersion.getVersion()));
+            if (managedVersions.get(i) != null) {
+                sb.append(" (manages version ").append(managedVersions.get(i)).append(')');
+            }
+            if (availability != null) {
+                sb.append(availability.describe(bomVersion.getBom().getGroupId() + ":"
+                        + bomVersion.getBom().getArtifactId() + ":" + bomVersion.getVersion()));
+            }
+            // Add 'or' until the last item
+            if (i < boms.size() - 1) {
+                sb.append("\n\t\t or \n");
+            }
+        }
+        return new Issue(IssueType.BOM, sb.toString());
+    }
+
+    /**
+     * Tells where the version is declared, when it isn't on the project dependencies, so the developer knows which
+     * element to change
+     *
+     * @param sb
+     * @param declaredVersion
+     */
+    private static void appendDeclaration(StringBuilder sb, DeclaredVersion declaredVersion) {
+        switch (declaredVersion.getSource()) {
+            case DEPENDENCY_MANAGEMENT:
+                sb.append(" on the dependencyManagement");
+                break;
+            case PROPERTY:
+                sb.append(" as ").append(declaredVersion.getVersion());
+                break;
+            default:
+                break;
+        }
+        if (declaredVersion.getProfileId() != null) {
+            sb.append(" on the profile ").append(declaredVersion.getProfileId());
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package org.jboss.maven.plugins.check;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.jboss.maven.plugins.bom.BomPlan;
+import org.jboss.maven.plugins.bom.LazyBomIndex;
+import org.jboss.maven.plugins.dependency.DeclaredDependencies;
+import org.jboss.maven.plugins.dependency.RelocationMatcher;
+
+/**
+ * What a {@link DependencyCheck} knows about the project being checked and the shared resources
+ *
+ */
+public interface CheckContext {
+
+    /**
+     * @return the versions declared on the pom.xml of the project
+     */
+    DeclaredDependencies getDeclaredDependencies();
+
+    /**
+     * @return the relocation table
+     */
+    RelocationMatcher getRelocatedDependencies();
+
+    /**
+     * @return the vendor releases accepted on the project
+     */
+    VersionPolicy getVersionPolicy();
+
+    /**
+     * @return the BOM index, starting to load it if this is the first time it is needed
+     * @throws MojoExecutionException
+     */
+    LazyBomIndex getBomIndex() throws MojoExecutionException;
+
+    /**
+     * @return the BOMs proposed for the project, planning them if this is the first time they are needed, or null if
+     *         they aren't planned
+     * @throws MojoExecutionException
+     */
+    BomPlan getBomPlan() throws MojoExecutionException;
+
+    /**
+     * @return verifies if the suggested coordinates can be resolved, or null if the suggestions aren't verified
+     */
+    SuggestionAvailability getSuggestionAvailability();
+
+    /**
+     * @return true if the build stops on the first issue, so checks should prefer a quick answer over a thorough one
+     */
+    boolean isFailFast();
+
+}
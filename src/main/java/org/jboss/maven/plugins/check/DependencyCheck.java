@@ -0,0 +1,65 @@
+package org.jboss.maven.plugins.check;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.util.List;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.jboss.maven.plugins.Issue;
+
+/**
+ * A check run on each dependency of a project.
+ *
+ * Besides the built-in checks, custom checks (a banned license list, a CVE list, ...) are discovered with
+ * {@link java.util.ServiceLoader}: add the implementation and a
+ * {@code META-INF/services/org.jboss.maven.plugins.check.DependencyCheck} file listing it to a jar, and that jar as a
+ * dependency of the plugin.
+ *
+ * Dependencies are checked in parallel, so implementations must be thread safe. A single instance checks every project
+ * of a build (or of a daemon), so anything specific to a project must come from the {@link CheckContext}.
+ *
+ */
+public interface DependencyCheck {
+
+    /**
+     * @return the identifier of the check, used on reports and metrics
+     */
+    String getId();
+
+    /**
+     * @return a fingerprint of everything, other than the project, that affects the issues found by this check (the
+     *         contents of a file it is backed by, for instance). The last result of a project is only replayed when the
+     *         fingerprint doesn't change
+     */
+    String getFingerprint();
+
+    /**
+     * @param dependency the dependency being checked
+     * @param context the project being checked
+     * @return the issues found, empty if none
+     * @throws MojoExecutionException if the dependency can't be checked
+     */
+    List<Issue> check(Dependency dependency, CheckContext context) throws MojoExecutionException;
+
+}
@@ -0,0 +1,81 @@
+package org.jboss.maven.plugins.check;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Finds the checks to be run on each dependency
+ *
+ */
+public class DependencyChecks {
+
+    private DependencyChecks() {
+    }
+
+    /**
+     * @param classLoader where the custom checks are looked for
+     * @return the built-in checks, from the cheapest to the most expensive, followed by the custom ones ordered by id
+     * @throws MojoExecutionException if a custom check can't be loaded or two checks share the same id
+     */
+    public static List<DependencyCheck> load(ClassLoader classLoader) throws MojoExecutionException {
+        List<DependencyCheck> checks = new ArrayList<DependencyCheck>();
+        checks.add(new RedHatReleaseCheck());
+        checks.add(new RelocationCheck());
+        checks.add(new BomCheck());
+        List<DependencyCheck> customChecks = new ArrayList<DependencyCheck>();
+        try {
+            for (DependencyCheck check : ServiceLoader.load(DependencyCheck.class, classLoader)) {
+                customChecks.add(check);
+            }
+        } catch (ServiceConfigurationError e) {
+            throw new MojoExecutionException("Can't load the custom dependency checks: " + e.getMessage(), e);
+        }
+        // Sorted so the issues are always reported on the same order, whatever the classpath order
+        Collections.sort(customChecks, new Comparator<DependencyCheck>() {
+
+            public int compare(DependencyCheck check, DependencyCheck other) {
+                return check.getId().compareTo(other.getId());
+            }
+        });
+        checks.addAll(customChecks);
+        Set<String> ids = new HashSet<String>();
+        for (DependencyCheck check : checks) {
+            if (!ids.add(check.getId())) {
+                throw new MojoExecutionException("There is more than one dependency check with the id "
+                        + check.getId() + ": " + check.getClass().getName());
+            }
+        }
+        return Collections.unmodifiableList(checks);
+    }
+
+}
@@ -0,0 +1,79 @@
+package org.jboss.maven.plugins.check;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.model.Dependency;
+import org.jboss.maven.plugins.Issue;
+import org.jboss.maven.plugins.IssueType;
+
+/**
+ * Verifies if the dependency version is a vendor release, according to the {@link VersionPolicy} of the project
+ * (-redhat-N by default)
+ *
+ */
+public class RedHatReleaseCheck implements DependencyCheck {
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.check.DependencyCheck#getId()
+     */
+    public String getId() {
+        return IssueType.RED_HAT_RELEASE.getId();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.check.DependencyCheck#getFingerprint()
+     */
+    public String getFingerprint() {
+        // The rules are part of the version policy, which is fingerprinted by whoever configures it
+        return "versionPolicy";
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.check.DependencyCheck#check(org.apache.maven.model.Dependency,
+     * org.jboss.maven.plugins.check.CheckContext)
+     */
+    public List<Issue> check(Dependency dependency, CheckContext context) {
+        Issue issue = check(dependency, context.getVersionPolicy());
+        return issue == null ? Collections.<Issue> emptyList() : Collections.singletonList(issue);
+    }
+
+    /**
+     * @param dependency
+     * @param policy the accepted vendor releases
+     * @return the issue or null if it is a vendor release
+     */
+    public Issue check(Dependency dependency, VersionPolicy policy) {
+        String problem = policy.check(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion());
+        return problem == null ? null : new Issue(IssueType.RED_HAT_RELEASE, problem);
+    }
+
+}
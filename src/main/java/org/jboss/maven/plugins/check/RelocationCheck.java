@@ -0,0 +1,88 @@
+package org.jboss.maven.plugins.check;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.maven.model.Dependency;
+import org.jboss.maven.plugins.Issue;
+import org.jboss.maven.plugins.IssueType;
+import org.jboss.maven.plugins.dependency.RelocationMatcher.Relocation;
+
+/**
+ * Checks if the groupId or artifactId matches any relocated dependency
+ *
+ */
+public class RelocationCheck implements DependencyCheck {
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.check.DependencyCheck#getId()
+     */
+    public String getId() {
+        return IssueType.RELOCATION.getId();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.check.DependencyCheck#getFingerprint()
+     */
+    public String getFingerprint() {
+        // The relocation table is part of the context
+        return getId();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.check.DependencyCheck#check(org.apache.maven.model.Dependency,
+     * org.jboss.maven.plugins.check.CheckContext)
+     */
+    public List<Issue> check(Dependency dependency, CheckContext context) {
+        List<Relocation> relocations = context.getRelocatedDependencies().match(dependency.getGroupId(),
+                dependency.getArtifactId());
+        if (relocations.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Issue> issues = new ArrayList<Issue>(relocations.size());
+        SuggestionAvailability availability = context.getSuggestionAvailability();
+        for (Relocation relocation : relocations) {
+            if (availability == null) {
+                issues.add(new Issue(IssueType.RELOCATION, relocation.getMessage()));
+            } else {
+                String[] proposed = relocation.getProposed();
+                String[] notes = new String[proposed.length];
+                for (int i = 0; i < proposed.length; i++) {
+                    notes[i] = availability.describe(proposed[i]);
+                }
+                issues.add(new Issue(IssueType.RELOCATION, relocation.getMessage(notes)));
+            }
+        }
+        return issues;
+    }
+
+}
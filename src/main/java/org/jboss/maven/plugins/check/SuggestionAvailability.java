@@ -0,0 +1,172 @@
+package org.jboss.maven.plugins.check;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.jboss.maven.plugins.bom.PomResolver;
+import org.jboss.maven.plugins.util.Metrics;
+
+/**
+ * Verifies if the coordinates suggested by the checks (relocations and BOMs) can be resolved from the configured
+ * repositories, by resolving their POM.
+ *
+ * The result of each coordinate is cached, so a coordinate suggested for many dependencies or modules is resolved only
+ * once. The suggestions of a whole module are usually resolved at the same time with {@link #prefetch(Collection,
+ * Metrics)}, before the checks ask for them.
+ *
+ */
+public class SuggestionAvailability {
+
+    private final PomResolver pomResolver;
+
+    private final int threads;
+
+    private final ConcurrentMap<String, FutureTask<Boolean>> results = new ConcurrentHashMap<String, FutureTask<Boolean>>();
+
+    /**
+     * @param pomResolver resolves the POM of each suggested coordinate
+     * @param threads the number of coordinates resolved at the same time
+     */
+    public SuggestionAvailability(PomResolver pomResolver, int threads) {
+        this.pomResolver = pomResolver;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Resolves every coordinate not resolved yet, returning when all of them are known
+     *
+     * @param coordinates groupId:artifactId:version of each suggestion. May have duplicates
+     * @param metrics receives the time spent and the number of resolved coordinates
+     * @throws MojoExecutionException if interrupted
+     */
+    public void prefetch(Collection<String> coordinates, Metrics metrics) throws MojoExecutionException {
+        long start = System.nanoTime();
+        List<FutureTask<Boolean>> pending = new ArrayList<FutureTask<Boolean>>();
+        for (String coordinate : coordinates) {
+            FutureTask<Boolean> task = newTask(coordinate);
+            if (results.putIfAbsent(coordinate, task) == null) {
+                pending.add(task);
+            }
+        }
+        if (!pending.isEmpty()) {
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, pending.size()),
+                    new ThreadFactory() {
+
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "dependency-checker-suggestion-resolver");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+            try {
+                for (FutureTask<Boolean> task : pending) {
+                    executor.execute(task);
+                }
+                for (FutureTask<Boolean> task : pending) {
+                    Boolean available = get(task);
+                    if (available == null) {
+                        throw new MojoExecutionException("Interrupted while resolving the suggested dependencies");
+                    }
+                    if (!available) {
+                        metrics.increment("suggestions.unavailable");
+                    }
+                }
+            } finally {
+                // The threads finish once every pending coordinate is resolved
+                executor.shutdown();
+            }
+            metrics.add("suggestions.resolved", pending.size());
+        }
+        metrics.time("suggestions.prefetch", start);
+    }
+
+    /**
+     * @param coordinate groupId:artifactId:version
+     * @return true if its POM can be resolved, or null if interrupted before knowing it. Resolved now if it wasn't
+     *         prefetched
+     */
+    public Boolean isAvailable(String coordinate) {
+        FutureTask<Boolean> task = results.get(coordinate);
+        if (task == null) {
+            FutureTask<Boolean> newTask = newTask(coordinate);
+            task = results.putIfAbsent(coordinate, newTask);
+            if (task == null) {
+                task = newTask;
+                task.run();
+            }
+        }
+        return get(task);
+    }
+
+    /**
+     * @param coordinate groupId:artifactId:version
+     * @return the note appended to the suggestion on the issue message
+     */
+    public String describe(String coordinate) {
+        Boolean available = isAvailable(coordinate);
+        if (available == null) {
+            return "";
+        }
+        return available ? " [available]" : " [unavailable on the configured repositories]";
+    }
+
+    private FutureTask<Boolean> newTask(final String coordinate) {
+        return new FutureTask<Boolean>(new Callable<Boolean>() {
+
+            public Boolean call() {
+                String[] parts = coordinate.split(":");
+                if (parts.length != 3) {
+                    return false;
+                }
+                File pom = pomResolver.resolvePom(parts[0], parts[1], parts[2]);
+                return pom != null && pom.isFile();
+            }
+        });
+    }
+
+    private static Boolean get(FutureTask<Boolean> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            // A suggestion that can't be resolved isn't available
+            return false;
+        }
+    }
+
+}
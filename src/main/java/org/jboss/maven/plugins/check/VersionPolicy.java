@@ -0,0 +1,310 @@
+package org.jboss.maven.plugins.check;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
+import org.apache.maven.artifact.versioning.VersionRange;
+
+/**
+ * Decides if a version is a vendor release.
+ *
+ * A vendor release ends with a vendor suffix and a build number of any length, like 1.0.0-redhat-1, 1.0.0.redhat-10
+ * or 1.0.0.Final-redhat-00001. When allowed qualifiers are informed, the qualifier of the upstream version (Final,
+ * SP1, ...) must be one of them; upstream versions without qualifier are always accepted. Vendors and qualifiers are
+ * matched ignoring case (1.0.0.final-REDHAT-1 is a Red Hat release with the Final qualifier). Versions of some
+ * dependencies can also be allowed by range, whatever their suffix.
+ *
+ * The suffix and qualifier are found by a single backwards scan of the version, with no regular expression and no
+ * allocation, and the verdict of each distinct version is cached. Policies are immutable and shared between threads:
+ * {@link #compile(String, String, List)} returns the same instance for the same rules.
+ *
+ */
+public class VersionPolicy {
+
+    /**
+     * Accepts Red Hat releases (-redhat-N) with any qualifier
+     */
+    public static final VersionPolicy RED_HAT = new VersionPolicy(new String[] { "redhat" }, new String[0],
+            Collections.<AllowedVersions> emptyList());
+
+    private static final ConcurrentMap<List<Object>, VersionPolicy> POLICIES = new ConcurrentHashMap<List<Object>, VersionPolicy>();
+
+    /**
+     * Keeps the memory bounded when checking huge portfolios
+     */
+    private static final int MAX_CACHED_VERDICTS = 1 << 16;
+
+    private static final String CONFORMANT = "";
+
+    private final String[] vendors;
+
+    private final String[] qualifiers;
+
+    private final List<AllowedVersions> allowedVersions;
+
+    private final String missingSuffix;
+
+    /**
+     * The problem of each version already checked, or {@link #CONFORMANT}
+     */
+    private final ConcurrentMap<String, String> verdicts = new ConcurrentHashMap<String, String>();
+
+    private VersionPolicy(String[] vendors, String[] qualifiers, List<AllowedVersions> allowedVersions) {
+        this.vendors = vendors;
+        this.qualifiers = qualifiers;
+        this.allowedVersions = allowedVersions;
+        if (vendors.length == 1 && "redhat".equals(vendors[0])) {
+            this.missingSuffix = "This dependency isn't a Red Hat Release *";
+        } else {
+            StringBuilder sb = new StringBuilder("This dependency isn't a vendor release (");
+            for (int i = 0; i < vendors.length; i++) {
+                sb.append(i == 0 ? "" : " or ").append('-').append(vendors[i]).append("-N");
+            }
+            this.missingSuffix = sb.append(')').toString();
+        }
+    }
+
+    /**
+     * @param vendors comma separated vendor suffixes, like redhat
+     * @param qualifiers comma separated qualifiers allowed on vendor releases, like Final,GA,SP. Any qualifier is
+     *        allowed when empty
+     * @param allowedVersions groupId:artifactId:range of versions allowed without a vendor suffix, like
+     *        org.slf4j:*:[1.7,1.8). The artifactId may be *. A single version, like 1.7.5, allows only that version
+     * @return the policy
+     * @throws IllegalArgumentException if no vendor is informed or a range is malformed
+     */
+    public static VersionPolicy compile(String vendors, String qualifiers, List<String> allowedVersions) {
+        List<Object> key = Arrays.<Object> asList(split(vendors), split(qualifiers), new ArrayList<String>(
+                allowedVersions));
+        VersionPolicy policy = POLICIES.get(key);
+        if (policy == null) {
+            List<String> vendorList = split(vendors);
+            if (vendorList.isEmpty()) {
+                throw new IllegalArgumentException("At least one vendor suffix must be informed");
+            }
+            List<AllowedVersions> allowed = new ArrayList<AllowedVersions>();
+            for (String rule : allowedVersions) {
+                allowed.add(AllowedVersions.parse(rule.trim()));
+            }
+            policy = new VersionPolicy(vendorList.toArray(new String[vendorList.size()]), split(qualifiers).toArray(
+                    new String[0]), allowed);
+            VersionPolicy existing = POLICIES.putIfAbsent(key, policy);
+            if (existing != null) {
+                policy = existing;
+            }
+        }
+        return policy;
+    }
+
+    /**
+     * @param groupId
+     * @param artifactId
+     * @param version may be null, when the version is unknown
+     * @return why the version isn't accepted or null if it is accepted (or unknown)
+     */
+    public String check(String groupId, String artifactId, String version) {
+        if (version == null) {
+            return null;
+        }
+        String problem = verdicts.get(version);
+        if (problem == null) {
+            problem = scan(version);
+            if (verdicts.size() < MAX_CACHED_VERDICTS) {
+                verdicts.put(version, problem);
+            }
+        }
+        if (problem == CONFORMANT) {
+            return null;
+        }
+        // The version alone isn't accepted, but the dependency may be
+        for (AllowedVersions allowed : allowedVersions) {
+            if (allowed.matches(groupId, artifactId, version)) {
+                return null;
+            }
+        }
+        return problem;
+    }
+
+    /**
+     * Walks the version backwards: build number, vendor, then the last token of the upstream version
+     *
+     * @param version
+     * @return the problem or {@link #CONFORMANT}
+     */
+    private String scan(String version) {
+        int end = version.length();
+        int buildStart = end;
+        while (buildStart > 0 && isDigit(version.charAt(buildStart - 1))) {
+            buildStart--;
+        }
+        if (buildStart == end || buildStart < 2 || version.charAt(buildStart - 1) != '-') {
+            return missingSuffix;
+        }
+        int vendorEnd = buildStart - 1;
+        int vendorStart = vendorEnd;
+        while (vendorStart > 0 && !isSeparator(version.charAt(vendorStart - 1))) {
+            vendorStart--;
+        }
+        // There must be an upstream version before the vendor
+        if (vendorStart < 2 || !isVendor(version, vendorStart, vendorEnd)) {
+            return missingSuffix;
+        }
+        if (qualifiers.length == 0) {
+            return CONFORMANT;
+        }
+        int upstreamEnd = vendorStart - 1;
+        int qualifierStart = upstreamEnd;
+        while (qualifierStart > 0 && !isSeparator(version.charAt(qualifierStart - 1))) {
+            qualifierStart--;
+        }
+        // A qualifier is made of letters, optionally followed by a number (Final, SP1, CR2, ...)
+        int letters = qualifierStart;
+        while (letters < upstreamEnd && Character.isLetter(version.charAt(letters))) {
+            letters++;
+        }
+        if (letters == qualifierStart) {
+            return CONFORMANT;
+        }
+        int digits = letters;
+        while (digits < upstreamEnd && isDigit(version.charAt(digits))) {
+            digits++;
+        }
+        if (digits == upstreamEnd && isQualifier(version, qualifierStart, letters)) {
+            return CONFORMANT;
+        }
+        return String.format("The qualifier [%s] isn't allowed on vendor releases. Allowed qualifiers: %s",
+                version.substring(qualifierStart, upstreamEnd), Arrays.toString(qualifiers));
+    }
+
+    private boolean isVendor(String version, int start, int end) {
+        for (String vendor : vendors) {
+            if (vendor.length() == end - start && version.regionMatches(true, start, vendor, 0, vendor.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isQualifier(String version, int start, int end) {
+        for (String qualifier : qualifiers) {
+            if (qualifier.length() == end - start
+                    && version.regionMatches(true, start, qualifier, 0, qualifier.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '.' || c == '-';
+    }
+
+    private static List<String> split(String values) {
+        List<String> list = new ArrayList<String>();
+        if (values != null) {
+            for (String value : values.split(",")) {
+                if (value.trim().length() > 0) {
+                    list.add(value.trim());
+                }
+            }
+        }
+        return list;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "vendors=" + Arrays.toString(vendors) + " qualifiers=" + Arrays.toString(qualifiers)
+                + " allowedVersions=" + allowedVersions;
+    }
+
+    /**
+     * Versions of a dependency allowed without a vendor suffix
+     */
+    private static class AllowedVersions {
+
+        private final String rule;
+
+        private final String groupId;
+
+        private final String artifactId;
+
+        private final VersionRange range;
+
+        AllowedVersions(String rule, String groupId, String artifactId, VersionRange range) {
+            this.rule = rule;
+            this.groupId = groupId;
+            this.artifactId = artifactId;
+            this.range = range;
+        }
+
+        static AllowedVersions parse(String rule) {
+            String[] parts = rule.split(":", 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("The allowed versions " + rule
+                        + " should be groupId:artifactId:range");
+            }
+            // A soft requirement, like 1.7.5, would contain every version: it means the version itself
+            String spec = parts[2].startsWith("[") || parts[2].startsWith("(") ? parts[2] : "[" + parts[2] + "]";
+            try {
+                return new AllowedVersions(rule, parts[0], parts[1], VersionRange.createFromVersionSpec(spec));
+            } catch (InvalidVersionSpecificationException e) {
+                throw new IllegalArgumentException("Invalid range on the allowed versions " + rule + ": "
+                        + e.getMessage());
+            }
+        }
+
+        boolean matches(String groupId, String artifactId, String version) {
+            return this.groupId.equals(groupId) && ("*".equals(this.artifactId) || this.artifactId.equals(artifactId))
+                    && range.containsVersion(new DefaultArtifactVersion(version));
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return rule;
+        }
+
+    }
+
+}
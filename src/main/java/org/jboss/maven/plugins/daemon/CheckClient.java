@@ -0,0 +1,193 @@
+package org.jboss.maven.plugins.daemon;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.maven.plugins.util.Json;
+
+/**
+ * Sends requests to a running {@link CheckDaemon}, authenticated with the token the daemon wrote for its user. It only
+ * needs the plugin jar on the classpath, so it starts fast enough for pre-commit hooks.
+ *
+ */
+public class CheckClient {
+
+    private final int port;
+
+    private final File tokenFile;
+
+    /**
+     * @param port where the daemon listens, on the loopback interface
+     */
+    public CheckClient(int port) {
+        this(port, CheckDaemon.getTokenFile(port));
+    }
+
+    /**
+     * @param port where the daemon listens, on the loopback interface
+     * @param tokenFile where the daemon wrote its token
+     */
+    public CheckClient(int port, File tokenFile) {
+        this.port = port;
+        this.tokenFile = tokenFile;
+    }
+
+    /**
+     * @param pomFile
+     * @return one record for each issue followed by the status record
+     * @throws IOException if the daemon can't be reached
+     */
+    public List<Map<String, String>> check(File pomFile) throws IOException {
+        List<Map<String, String>> records = new ArrayList<Map<String, String>>();
+        for (String line : send("check " + pomFile.getAbsolutePath())) {
+            records.add(parse(line));
+        }
+        return records;
+    }
+
+    /**
+     * @param request
+     * @return the answer lines, the last one holding the status
+     * @throws IOException if the daemon can't be reached
+     */
+    public List<String> send(String request) throws IOException {
+        // Read on every request, as a restarted daemon writes a new token
+        String token = readToken();
+        Socket socket = new Socket(InetAddress.getByName(null), port);
+        try {
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), "UTF-8");
+            out.write("auth " + token + "\n");
+            out.write(request + "\n");
+            out.flush();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+            List<String> answer = new ArrayList<String>();
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                answer.add(line);
+                if (parse(line).containsKey("status")) {
+                    return answer;
+                }
+            }
+            throw new IOException("The daemon closed the connection without answering");
+        } finally {
+            socket.close();
+        }
+    }
+
+    private String readToken() throws IOException {
+        if (!tokenFile.isFile()) {
+            throw new IOException("There is no daemon token on " + tokenFile + ". Is the daemon running?");
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(tokenFile), "UTF-8"));
+        try {
+            String token = reader.readLine();
+            if (token == null || token.trim().length() == 0) {
+                throw new IOException("The daemon token file " + tokenFile + " is empty");
+            }
+            return token.trim();
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Checks the given pom.xml files (or the one on the current directory) from the command line. Exits with 1 if any
+     * issue is found and 2 on errors.
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        int port = CheckDaemon.DEFAULT_PORT;
+        boolean json = false;
+        List<String> requests = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--port".equals(args[i]) && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if ("--json".equals(args[i])) {
+                json = true;
+            } else if ("ping".equals(args[i]) || "stop".equals(args[i])) {
+                requests.add(args[i]);
+            } else if (args[i].startsWith("--")) {
+                System.err.println("Usage: CheckClient [--port <port>] [--json] [ping|stop|<pom.xml>...]");
+                System.exit(2);
+            } else {
+                requests.add("check " + new File(args[i]).getAbsolutePath());
+            }
+        }
+        if (requests.isEmpty()) {
+            requests.add("check " + new File("pom.xml").getAbsolutePath());
+        }
+        CheckClient client = new CheckClient(port);
+        int exitCode = 0;
+        for (String request : requests) {
+            List<String> answer;
+            Map<String, String> record = null;
+            try {
+                answer = client.send(request);
+                for (String line : answer) {
+                    record = parse(line);
+                    if (json) {
+                        System.out.println(line);
+                    } else if (record.containsKey("check")) {
+                        System.out.println(String.format("%s:%s:%s [%s]\n\t- %s", record.get("groupId"),
+                                record.get("artifactId"), record.get("version"), record.get("check"),
+                                record.get("message")));
+                    } else if ("error".equals(record.get("status"))) {
+                        System.err.println(record.get("message"));
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Can't reach the dependency checker daemon on port " + port + ": " + e.getMessage());
+                System.exit(2);
+                return;
+            }
+            // The last record holds the status
+            if ("error".equals(record.get("status"))) {
+                exitCode = 2;
+            } else if (answer.size() > 1 && exitCode == 0) {
+                exitCode = 1;
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    private static Map<String, String> parse(String line) throws IOException {
+        try {
+            return Json.parseObject(line);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid answer from the daemon: " + e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,559 @@
+package org.jboss.maven.plugins.daemon;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.jboss.jdf.stacks.model.BomVersion;
+import org.jboss.maven.plugins.BomIndexLoader;
+import org.jboss.maven.plugins.CheckEngine;
+import org.jboss.maven.plugins.CheckerResources;
+import org.jboss.maven.plugins.bom.LazyBomIndex;
+import org.jboss.maven.plugins.bom.LocalRepositoryPomResolver;
+import org.jboss.maven.plugins.bom.PomResolver;
+import org.jboss.maven.plugins.check.VersionPolicy;
+import org.jboss.maven.plugins.dependency.RelocationMatcher;
+import org.jboss.maven.plugins.project.CheckedProject;
+import org.jboss.maven.plugins.project.ProjectReader;
+import org.jboss.maven.plugins.report.JsonLinesReportWriter;
+import org.jboss.maven.plugins.stacks.MavenStacksConfiguration;
+import org.jboss.maven.plugins.util.ConsoleLog;
+import org.jboss.maven.plugins.util.Json;
+import org.jboss.maven.plugins.util.Metrics;
+
+/**
+ * Keeps the relocation table and the BOM index in memory and checks a pom.xml on each request, so IDEs and pre-commit
+ * hooks don't pay for starting Maven, fetching the stacks descriptor and indexing the BOMs on every check.
+ *
+ * The protocol has one request per line: <code>check &lt;pom.xml&gt;</code>, <code>ping</code> or <code>stop</code>.
+ * Each issue found is answered with a line on the same format of the jsonl report, and every answer ends with a line
+ * holding its <code>status</code> (<code>ok</code> or <code>error</code> and its <code>message</code>). Requests are
+ * read from a local socket or from the standard input. Socket clients must first send <code>auth &lt;token&gt;</code>,
+ * with the random token the daemon writes to a file only its owner can read (see {@link #getTokenFile(int)}), so
+ * other users of the machine can't make the daemon read their files.
+ *
+ * The BOMs are polled for changes: when the stacks descriptor or any BOM POM on the local repository changes, a new
+ * index is built in the background and replaces the old one once it is complete. The BOM POMs are only read again
+ * when their size or modification date changes.
+ *
+ */
+public class CheckDaemon {
+
+    /**
+     * Port the daemon listens on, on the loopback interface, by default
+     */
+    public static final int DEFAULT_PORT = 9876;
+
+    /**
+     * Seconds between each check for BOM changes, by default
+     */
+    public static final int DEFAULT_POLL_SECONDS = 10;
+
+    /**
+     * Directory, on the user home, holding the token of each running daemon
+     */
+    private static final String TOKEN_DIRECTORY = ".dependency-checker";
+
+    /**
+     * Clients answered at the same time. A few more wait for a free thread, the others are turned down
+     */
+    private static final int MAX_CLIENTS = 8;
+
+    /**
+     * Milliseconds a client has to send its token after connecting
+     */
+    private static final int AUTH_TIMEOUT_MILLIS = 10000;
+
+    private final BomIndexLoader bomIndexLoader;
+
+    private final ProjectReader projectReader;
+
+    private final RelocationMatcher relocatedDependencies;
+
+    private final int pollSeconds;
+
+    private final Log log;
+
+    private volatile WarmResources warm;
+
+    /**
+     * Identity of the BOMs the last time they were polled, from the size and modification date of their POMs
+     */
+    private volatile String bomsIdentity;
+
+    private volatile boolean stopped;
+
+    private ServerSocket serverSocket;
+
+    private Thread watcher;
+
+    /**
+     * @param bomIndexLoader lists the BOMs and loads their index
+     * @param projectReader reads each checked pom.xml
+     * @param relocatedDependencies
+     * @param pollSeconds seconds between each check for BOM changes, or zero to never reload the BOMs
+     * @param log
+     */
+    public CheckDaemon(BomIndexLoader bomIndexLoader, ProjectReader projectReader,
+            RelocationMatcher relocatedDependencies, int pollSeconds, Log log) {
+        this.bomIndexLoader = bomIndexLoader;
+        this.projectReader = projectReader;
+        this.relocatedDependencies = relocatedDependencies;
+        this.pollSeconds = pollSeconds;
+        this.log = log;
+    }
+
+    /**
+     * Starts loading the BOM index, in the background, and watching the BOMs for changes
+     *
+     * @throws MojoExecutionException
+     */
+    public void start() throws MojoExecutionException {
+        List<BomVersion> boms = bomIndexLoader.fetchBomVersions();
+        bomsIdentity = bomIndexLoader.computeBomsIdentity(boms);
+        warm = load(boms);
+        if (pollSeconds > 0) {
+            watcher = new Thread(new Runnable() {
+
+                public void run() {
+                    watch();
+                }
+            }, "dependency-checker-bom-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+    }
+
+    /**
+     * @param port
+     * @return the file holding the token of the daemon listening on the given port
+     */
+    public static File getTokenFile(int port) {
+        return new File(new File(System.getProperty("user.home"), TOKEN_DIRECTORY), "daemon-" + port + ".token");
+    }
+
+    /**
+     * Answers the requests of each client connecting to the given port, on the loopback interface, until the daemon is
+     * stopped. Only clients sending the token written to {@link #getTokenFile(int)} in time are answered, by a bounded
+     * pool of threads, so a flood of connections can't exhaust the daemon.
+     *
+     * @param port
+     * @throws IOException
+     */
+    public void listen(int port) throws IOException {
+        synchronized (this) {
+            serverSocket = new ServerSocket(port, 50, InetAddress.getByName(null));
+        }
+        final File tokenFile = getTokenFile(port);
+        final String token;
+        try {
+            token = writeToken(tokenFile);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+        log.info("Dependency checker daemon listening on localhost:" + port + ". Clients authenticate with the token on "
+                + tokenFile);
+        ThreadPoolExecutor clients = new ThreadPoolExecutor(MAX_CLIENTS, MAX_CLIENTS, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(MAX_CLIENTS), new ThreadFactory() {
+
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "dependency-checker-daemon-client");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        clients.allowCoreThreadTimeOut(true);
+        try {
+            while (!stopped) {
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (SocketException e) {
+                    if (stopped) {
+                        break;
+                    }
+                    throw e;
+                }
+                try {
+                    clients.execute(new Runnable() {
+
+                        public void run() {
+                            serve(socket, token);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    log.warn("Too many clients. Rejected a connection");
+                    socket.close();
+                }
+            }
+        } finally {
+            clients.shutdownNow();
+            serverSocket.close();
+            tokenFile.delete();
+        }
+    }
+
+    /**
+     * Answers each request read until the end of the input or a stop request
+     *
+     * @param in
+     * @param out
+     * @throws IOException
+     */
+    public void serve(BufferedReader in, Writer out) throws IOException {
+        for (String line = in.readLine(); line != null && !stopped; line = in.readLine()) {
+            String request = line.trim();
+            if (request.length() == 0) {
+                continue;
+            }
+            out.write(answer(request));
+            out.flush();
+            if ("stop".equals(request)) {
+                stop();
+            }
+        }
+    }
+
+    /**
+     * Stops answering requests and watching the BOMs
+     */
+    public void stop() {
+        stopped = true;
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+        synchronized (this) {
+            if (serverSocket != null) {
+                try {
+                    serverSocket.close();
+                } catch (IOException e) {
+                    log.debug("Can't close the daemon socket: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * @param request
+     * @return the answer lines
+     */
+    String answer(String request) {
+        if (request.startsWith("check ")) {
+            return check(new File(request.substring("check ".length()).trim()));
+        } else if ("ping".equals(request) || "stop".equals(request)) {
+            return "{\"status\":\"ok\"}\n";
+        }
+        return error("Unknown request: " + request + ". Use check <pom.xml>, ping or stop");
+    }
+
+    /**
+     * Checks the given pom.xml with the resources kept in memory
+     *
+     * @param pomFile
+     * @return one line for each issue followed by the status line
+     */
+    private String check(File pomFile) {
+        long start = System.nanoTime();
+        if (pomFile.isDirectory()) {
+            pomFile = new File(pomFile, "pom.xml");
+        }
+        try {
+            CheckedProject project = projectReader.read(pomFile);
+            CheckEngine engine = new CheckEngine(warm.resources, null, project.getDeclaredDependencies(),
+                    project.getExclusionMatcher(), project.getVersionPolicy(), false, new Metrics());
+            StringWriter answer = new StringWriter();
+            int issues = engine.checkAll(project.getDependencies(), new JsonLinesReportWriter(answer, project.getId()));
+            answer.write(String.format(
+                    "{\"status\":\"ok\",\"pom\":%s,\"project\":%s,\"dependencies\":%d,\"issues\":%d,\"millis\":%d}\n",
+                    Json.quote(pomFile.getAbsolutePath()), Json.quote(project.getId()), project.getDependencies()
+                            .size(), issues, (System.nanoTime() - start) / 1000000));
+            return answer.toString();
+        } catch (MojoExecutionException e) {
+            log.debug(e.getMessage(), e);
+            return error(e.getMessage());
+        } catch (IOException e) {
+            return error(e.getMessage());
+        } catch (RuntimeException e) {
+            log.warn("Problem checking " + pomFile, e);
+            return error(String.valueOf(e));
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"status\":\"error\",\"message\":" + Json.quote(message) + "}\n";
+    }
+
+    /**
+     * @param boms
+     * @return the resources with the index of the given BOMs, starting to load it
+     * @throws MojoExecutionException
+     */
+    private WarmResources load(List<BomVersion> boms) throws MojoExecutionException {
+        final LazyBomIndex bomIndex = bomIndexLoader.load(boms);
+        CheckerResources resources = new CheckerResources(relocatedDependencies);
+        resources.getBomIndex(new Callable<LazyBomIndex>() {
+
+            public LazyBomIndex call() {
+                return bomIndex;
+            }
+        });
+        return new WarmResources(resources, bomIndex);
+    }
+
+    /**
+     * Reloads the BOM index whenever the BOMs change, until the daemon is stopped
+     */
+    private void watch() {
+        while (!stopped) {
+            try {
+                Thread.sleep(pollSeconds * 1000L);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                List<BomVersion> boms = bomIndexLoader.fetchBomVersions();
+                // Only reads the BOM POMs when any of them (or the BOM list) may have changed
+                String identity = bomIndexLoader.computeBomsIdentity(boms);
+                if (identity.equals(bomsIdentity)) {
+                    continue;
+                }
+                log.info("The BOMs have changed. Reloading the BOM index");
+                // The cache is reused when the POMs it was built from are the same
+                WarmResources reloaded = load(boms);
+                // Only replaces the current index once complete, so the checks never wait for it
+                reloaded.bomIndex.getIndex();
+                warm = reloaded;
+                // A failed reload is tried again on the next poll
+                bomsIdentity = identity;
+            } catch (Exception e) {
+                log.warn("Can't reload the BOM index: " + e.getMessage());
+            }
+        }
+    }
+
+    private void serve(Socket socket, String token) {
+        try {
+            try {
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+                Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), "UTF-8"));
+                // A client that never authenticates would hold a thread of the pool
+                socket.setSoTimeout(AUTH_TIMEOUT_MILLIS);
+                if (!isAuthorized(in.readLine(), token)) {
+                    log.warn("Rejected a client without the daemon token");
+                    out.write(error("Not authorized. The first request must be auth <token>"));
+                    out.flush();
+                    return;
+                }
+                socket.setSoTimeout(0);
+                serve(in, out);
+            } finally {
+                socket.close();
+            }
+        } catch (SocketTimeoutException e) {
+            log.warn("Rejected a client that didn't send the daemon token in time");
+        } catch (IOException e) {
+            log.debug("Client connection failed: " + e.getMessage());
+        }
+    }
+
+    private static boolean isAuthorized(String request, String token) throws IOException {
+        if (request == null || !request.startsWith("auth ")) {
+            return false;
+        }
+        // Compares in constant time, so the token can't be guessed from the answer times
+        return MessageDigest.isEqual(request.substring("auth ".length()).trim().getBytes("UTF-8"),
+                token.getBytes("UTF-8"));
+    }
+
+    /**
+     * Writes a new random token to the given file, readable and writable by its owner only
+     *
+     * @param tokenFile
+     * @return the token
+     * @throws IOException if the file can't be written or its permissions can't be restricted
+     */
+    private static String writeToken(File tokenFile) throws IOException {
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        String token = String.format("%064x", new BigInteger(1, random));
+        File directory = tokenFile.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create " + directory);
+        }
+        restrictToOwner(directory);
+        // Always a new file, restricted before the token is written, so nobody else can have it open
+        if (tokenFile.exists() && !tokenFile.delete()) {
+            throw new IOException("Can't replace " + tokenFile);
+        }
+        if (!tokenFile.createNewFile()) {
+            throw new IOException("Can't create " + tokenFile);
+        }
+        try {
+            restrictToOwner(tokenFile);
+            Writer out = new OutputStreamWriter(new FileOutputStream(tokenFile), "UTF-8");
+            try {
+                out.write(token + "\n");
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            tokenFile.delete();
+            throw e;
+        }
+        return token;
+    }
+
+    /**
+     * Drops the permissions of everybody and gives them back to the owner only
+     *
+     * @param file
+     * @throws IOException if the permissions can't be changed
+     */
+    private static void restrictToOwner(File file) throws IOException {
+        if (File.separatorChar == '\\') {
+            // Windows can't take the read permission away, and the files of the user home are private already
+            return;
+        }
+        boolean restricted = file.setReadable(false, false) && file.setReadable(true, true)
+                && file.setWritable(false, false) && file.setWritable(true, true);
+        if (file.isDirectory()) {
+            restricted = restricted && file.setExecutable(false, false) && file.setExecutable(true, true);
+        }
+        if (!restricted) {
+            throw new IOException("Can't restrict the permissions of " + file + " to its owner");
+        }
+    }
+
+    /**
+     * Starts the daemon from the command line
+     *
+     * @param args
+     * @throws Exception
+     */
+    public static void main(String[] args) throws Exception {
+        int port = DEFAULT_PORT;
+        boolean stdio = false;
+        boolean online = true;
+        boolean debug = false;
+        int pollSeconds = DEFAULT_POLL_SECONDS;
+        String stacksUrl = null;
+        String vendorSuffixes = "redhat";
+        String allowedQualifiers = null;
+        List<String> allowedVersions = new ArrayList<String>();
+        File localRepositoryDirectory = new File(System.getProperty("user.home"), ".m2/repository");
+        for (int i = 0; i < args.length; i++) {
+            if ("--port".equals(args[i]) && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if ("--stdio".equals(args[i])) {
+                stdio = true;
+            } else if ("--offline".equals(args[i])) {
+                online = false;
+            } else if ("--debug".equals(args[i])) {
+                debug = true;
+            } else if ("--poll".equals(args[i]) && i + 1 < args.length) {
+                pollSeconds = Integer.parseInt(args[++i]);
+            } else if ("--stacks-url".equals(args[i]) && i + 1 < args.length) {
+                stacksUrl = args[++i];
+            } else if ("--local-repo".equals(args[i]) && i + 1 < args.length) {
+                localRepositoryDirectory = new File(args[++i]);
+            } else if ("--vendor-suffixes".equals(args[i]) && i + 1 < args.length) {
+                vendorSuffixes = args[++i];
+            } else if ("--allowed-qualifiers".equals(args[i]) && i + 1 < args.length) {
+                allowedQualifiers = args[++i];
+            } else if ("--allowed-version".equals(args[i]) && i + 1 < args.length) {
+                allowedVersions.add(args[++i]);
+            } else {
+                System.err.println("Usage: CheckDaemon [--port <port>|--stdio] [--local-repo <directory>] "
+                        + "[--stacks-url <url>] [--poll <seconds>] [--vendor-suffixes <suffixes>] "
+                        + "[--allowed-qualifiers <qualifiers>] [--allowed-version <rule>]... [--offline] [--debug]");
+                System.exit(2);
+            }
+        }
+        // The standard output is only used by the protocol
+        PrintStream protocolOut = System.out;
+        System.setOut(System.err);
+        Log log = new ConsoleLog(debug);
+        PomResolver pomResolver = new LocalRepositoryPomResolver(localRepositoryDirectory);
+        MavenStacksConfiguration stacksConfiguration = BomIndexLoader.newStacksConfiguration(null, online,
+                localRepositoryDirectory, 86400, stacksUrl);
+        BomIndexLoader bomIndexLoader = new BomIndexLoader(stacksConfiguration, pomResolver,
+                localRepositoryDirectory, true, 4, log, new Metrics());
+        // Fails on start instead of on every check when the rules are invalid
+        VersionPolicy.compile(vendorSuffixes, allowedQualifiers, allowedVersions);
+        CheckDaemon daemon = new CheckDaemon(bomIndexLoader, new ProjectReader(pomResolver, false, vendorSuffixes,
+                allowedQualifiers, allowedVersions), CheckerResources.loadRelocatedDependencies(), pollSeconds, log);
+        daemon.start();
+        if (stdio) {
+            daemon.serve(new BufferedReader(new InputStreamReader(System.in, "UTF-8")), new BufferedWriter(
+                    new OutputStreamWriter(protocolOut, "UTF-8")));
+            daemon.stop();
+        } else {
+            daemon.listen(port);
+        }
+    }
+
+    /**
+     * The resources kept in memory
+     */
+    private static class WarmResources {
+
+        private final CheckerResources resources;
+
+        private final LazyBomIndex bomIndex;
+
+        WarmResources(CheckerResources resources, LazyBomIndex bomIndex) {
+            this.resources = resources;
+            this.bomIndex = bomIndex;
+        }
+
+    }
+
+}
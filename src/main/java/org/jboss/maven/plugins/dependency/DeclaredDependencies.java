@@ -0,0 +1,157 @@
+package org.jboss.maven.plugins.dependency;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Profile;
+
+/**
+ * Index of the dependency versions declared on a POM, as written on the file (before inheritance and interpolation).
+ *
+ * The index is built in a single pass over the dependencies, the dependencyManagement and each profile of the model.
+ * When the same dependency declares a version in more than one place, the first one on that order wins.
+ *
+ */
+public class DeclaredDependencies {
+
+    /**
+     * Where a declared version came from
+     */
+    public enum Source {
+
+        /**
+         * The project dependencies
+         */
+        DEPENDENCIES,
+
+        /**
+         * The project dependencyManagement
+         */
+        DEPENDENCY_MANAGEMENT,
+
+        /**
+         * The dependencies or dependencyManagement of a profile
+         */
+        PROFILE,
+
+        /**
+         * A property expression, like ${version.junit}, on any of the above
+         */
+        PROPERTY
+    }
+
+    private Map<MavenDependency, DeclaredVersion> declaredVersions = new HashMap<MavenDependency, DeclaredVersion>();
+
+    /**
+     * @param model the model as read from the POM file (see {@link org.apache.maven.project.MavenProject#getOriginalModel()})
+     */
+    public DeclaredDependencies(Model model) {
+        index(model.getDependencies(), Source.DEPENDENCIES, null);
+        if (model.getDependencyManagement() != null) {
+            index(model.getDependencyManagement().getDependencies(), Source.DEPENDENCY_MANAGEMENT, null);
+        }
+        for (Profile profile : model.getProfiles()) {
+            index(profile.getDependencies(), Source.PROFILE, profile.getId());
+            if (profile.getDependencyManagement() != null) {
+                index(profile.getDependencyManagement().getDependencies(), Source.PROFILE, profile.getId());
+            }
+        }
+    }
+
+    /**
+     * @param dependency
+     *
+     * @return the declared version of the given dependency or null if it doesn't declare a version
+     */
+    public DeclaredVersion getDeclaredVersion(MavenDependency dependency) {
+        return declaredVersions.get(dependency);
+    }
+
+    /**
+     * @param dependency
+     *
+     * @return true if has declared version
+     */
+    public boolean hasDeclaredVersion(MavenDependency dependency) {
+        return declaredVersions.containsKey(dependency);
+    }
+
+    private void index(List<Dependency> dependencies, Source source, String profileId) {
+        for (Dependency dep : dependencies) {
+            if (dep.getVersion() == null) {
+                continue;
+            }
+            MavenDependency mvnDependency = new MavenDependency(dep.getGroupId(), dep.getArtifactId());
+            if (!declaredVersions.containsKey(mvnDependency)) {
+                Source versionSource = dep.getVersion().contains("${") ? Source.PROPERTY : source;
+                declaredVersions.put(mvnDependency, new DeclaredVersion(dep.getVersion(), versionSource, profileId));
+            }
+        }
+    }
+
+    /**
+     * A version declared on the POM
+     */
+    public static class DeclaredVersion {
+
+        private final String version;
+
+        private final Source source;
+
+        private final String profileId;
+
+        DeclaredVersion(String version, Source source, String profileId) {
+            this.version = version;
+            this.source = source;
+            this.profileId = profileId;
+        }
+
+        /**
+         * @return the version, as written on the POM
+         */
+        public String getVersion() {
+            return version;
+        }
+
+        /**
+         * @return where the version came from
+         */
+        public Source getSource() {
+            return source;
+        }
+
+        /**
+         * @return the profile that declares the version or null if it wasn't declared on a profile
+         */
+        public String getProfileId() {
+            return profileId;
+        }
+
+    }
+
+}
@@ -0,0 +1,243 @@
+package org.jboss.maven.plugins.dependency;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.jboss.maven.plugins.util.Fingerprint;
+
+/**
+ * Decides which dependencies are excluded from the checks.
+ *
+ * The exclusions are compiled once. Each one can be:
+ * <ul>
+ * <li><code>groupId:artifactId</code>: served by a hash lookup</li>
+ * <li><code>groupId:*</code>: every artifact of the group, also served by a hash lookup</li>
+ * <li>a glob, like <code>org.hibernate*:*</code> or <code>*:jboss-logging-?</code>, where * matches any sequence of
+ * characters and ? any single character</li>
+ * <li><code>regex:</code> followed by a regular expression matched against <code>groupId:artifactId</code>. Back
+ * references and named groups aren't allowed</li>
+ * </ul>
+ * All globs and regular expressions are joined in a single {@link Pattern} alternation, <code>(a)|(b)|...</code>, so
+ * each dependency is matched with one call instead of one per exclusion. That is still a backtracking match, tried
+ * alternative by alternative, not a DFA: the cost grows with the number of globs and regular expressions, but without
+ * the per exclusion matcher allocations. The capturing group of each alternative tells which exclusion matched, which
+ * is why back references and named groups, whose numbering would change once joined, are rejected.
+ *
+ * Instances are immutable and can be shared between threads.
+ *
+ */
+public class ExclusionMatcher {
+
+    private static final String REGEX_PREFIX = "regex:";
+
+    private final Map<String, String> exact;
+
+    private final Map<String, String> groups;
+
+    private final Pattern combined;
+
+    /**
+     * The exclusion of each alternative of the combined pattern, by the number of its capturing group
+     */
+    private final String[] combinedExclusions;
+
+    private final String fingerprint;
+
+    private ExclusionMatcher(Map<String, String> exact, Map<String, String> groups, Pattern combined,
+            String[] combinedExclusions, String fingerprint) {
+        this.exact = exact;
+        this.groups = groups;
+        this.combined = combined;
+        this.combinedExclusions = combinedExclusions;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * @param exclusions the exclusions, on any of the supported formats. Blank entries are ignored
+     *
+     * @return the compiled matcher
+     * @throws IllegalArgumentException if an exclusion is malformed
+     */
+    public static ExclusionMatcher compile(Collection<String> exclusions) {
+        Map<String, String> exact = new HashMap<String, String>();
+        Map<String, String> groups = new HashMap<String, String>();
+        StringBuilder combined = new StringBuilder();
+        List<String> combinedExclusions = new ArrayList<String>();
+        combinedExclusions.add(null); // group 0 is the whole match
+        Fingerprint fingerprint = new Fingerprint();
+        for (String exclusion : exclusions) {
+            String trimmed = exclusion == null ? "" : exclusion.trim();
+            if (trimmed.length() == 0) {
+                continue;
+            }
+            fingerprint.add(trimmed);
+            String regex;
+            if (trimmed.startsWith(REGEX_PREFIX)) {
+                regex = trimmed.substring(REGEX_PREFIX.length());
+                String unsupported = findUnsupportedConstruct(regex);
+                if (unsupported != null) {
+                    throw new IllegalArgumentException("Invalid exclusion '" + trimmed + "': " + unsupported
+                            + " isn't supported on exclusions");
+                }
+            } else {
+                int separator = trimmed.indexOf(':');
+                if (separator <= 0 || separator == trimmed.length() - 1 || trimmed.indexOf(':', separator + 1) >= 0) {
+                    throw new IllegalArgumentException("Invalid exclusion '" + trimmed
+                            + "'. Use groupId:artifactId, groupId:*, a glob or regex:<regular expression>");
+                }
+                String groupId = trimmed.substring(0, separator);
+                String artifactId = trimmed.substring(separator + 1);
+                if (!isGlob(groupId) && !isGlob(artifactId)) {
+                    exact.put(trimmed, trimmed);
+                    continue;
+                }
+                if (!isGlob(groupId) && "*".equals(artifactId)) {
+                    groups.put(groupId, trimmed);
+                    continue;
+                }
+                regex = globToRegex(trimmed);
+            }
+            int groupCount;
+            try {
+                groupCount = Pattern.compile(regex).matcher("").groupCount();
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid exclusion '" + trimmed + "': " + e.getDescription(), e);
+            }
+            if (combined.length() > 0) {
+                combined.append('|');
+            }
+            combined.append('(').append(regex).append(')');
+            combinedExclusions.add(trimmed);
+            // Nested groups of the regular expression are skipped when finding which alternative matched
+            for (int i = 0; i < groupCount; i++) {
+                combinedExclusions.add(null);
+            }
+        }
+        return new ExclusionMatcher(exact, groups, combined.length() == 0 ? null : Pattern.compile(combined
+                .toString()), combinedExclusions.toArray(new String[combinedExclusions.size()]),
+                fingerprint.digestHex());
+    }
+
+    /**
+     * @param groupId
+     * @param artifactId
+     *
+     * @return the exclusion that matches the given dependency or null if it isn't excluded
+     */
+    public String match(String groupId, String artifactId) {
+        if (exact.isEmpty() && groups.isEmpty() && combined == null) {
+            return null;
+        }
+        String key = groupId + ":" + artifactId;
+        String exclusion = exact.get(key);
+        if (exclusion == null) {
+            exclusion = groups.get(groupId);
+        }
+        if (exclusion == null && combined != null) {
+            Matcher matcher = combined.matcher(key);
+            if (matcher.matches()) {
+                for (int group = 1; group <= matcher.groupCount(); group++) {
+                    if (combinedExclusions[group] != null && matcher.start(group) >= 0) {
+                        return combinedExclusions[group];
+                    }
+                }
+            }
+        }
+        return exclusion;
+    }
+
+    /**
+     * @return a fingerprint of the exclusions
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    private static boolean isGlob(String value) {
+        return value.indexOf('*') >= 0 || value.indexOf('?') >= 0;
+    }
+
+    /**
+     * @param regex
+     *
+     * @return the first back reference or named group of the given regular expression, or null if there is none
+     */
+    private static String findUnsupportedConstruct(String regex) {
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            if (c == '\\' && i + 1 < regex.length()) {
+                char next = regex.charAt(i + 1);
+                if (next == 'Q') {
+                    // Quoted text runs until \E (or the end) and can't contain any construct
+                    int end = regex.indexOf("\\E", i + 2);
+                    i = end < 0 ? regex.length() : end + 2;
+                    continue;
+                }
+                if (next >= '1' && next <= '9') {
+                    return "the back reference \\" + next;
+                }
+                if (next == 'k') {
+                    return "the named back reference " + regex.substring(i, Math.min(regex.length(), i + 3)) + "...";
+                }
+                i += 2;
+                continue;
+            }
+            if (c == '(' && regex.startsWith("?<", i + 1) && i + 3 < regex.length() && regex.charAt(i + 3) != '='
+                    && regex.charAt(i + 3) != '!') {
+                return "the named group " + regex.substring(i, Math.min(regex.length(), i + 3)) + "...";
+            }
+            i++;
+        }
+        return null;
+    }
+
+    private static String globToRegex(String glob) {
+        StringBuilder sb = new StringBuilder();
+        int literalStart = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > literalStart) {
+                    sb.append(Pattern.quote(glob.substring(literalStart, i)));
+                }
+                // Wildcards never cross the groupId:artifactId separator
+                sb.append(c == '*' ? "[^:]*" : "[^:]");
+                literalStart = i + 1;
+            }
+        }
+        if (literalStart < glob.length()) {
+            sb.append(Pattern.quote(glob.substring(literalStart)));
+        }
+        return sb.toString();
+    }
+
+}
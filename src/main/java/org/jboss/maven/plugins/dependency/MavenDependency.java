@@ -28,9 +28,14 @@ package org.jboss.maven.plugins.dependency;
  */
 public class MavenDependency {
 
-    private String groupId;
+    private final String groupId;
 
-    private String artifactId;
+    private final String artifactId;
+
+    /**
+     * Instances are used as keys of large indexes, so the hash is only computed once
+     */
+    private final int hash;
 
     /**
      * @param groupId
@@ -40,6 +45,11 @@ public class MavenDependency {
         super();
         this.groupId = groupId;
         this.artifactId = artifactId;
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + ((artifactId == null) ? 0 : artifactId.hashCode());
+        result = prime * result + ((groupId == null) ? 0 : groupId.hashCode());
+        this.hash = result;
     }
 
     /**
@@ -63,11 +73,7 @@ public class MavenDependency {
      */
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((artifactId == null) ? 0 : artifactId.hashCode());
-        result = prime * result + ((groupId == null) ? 0 : groupId.hashCode());
-        return result;
+        return hash;
     }
 
     /*
@@ -84,6 +90,8 @@ public class MavenDependency {
         if (getClass() != obj.getClass())
             return false;
         MavenDependency other = (MavenDependency) obj;
+        if (hash != other.hash)
+            return false;
         if (artifactId == null) {
             if (other.artifactId != null)
                 return false;
@@ -0,0 +1,318 @@
+package org.jboss.maven.plugins.dependency;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.jboss.maven.plugins.util.Fingerprint;
+
+/**
+ * Finds which relocated dependencies apply to a given dependency.
+ *
+ * A relocation applies when its key is contained on the dependency groupId or artifactId and the dependency isn't
+ * already one of the proposed replacements. All keys are compiled into a single Aho-Corasick automaton, so each
+ * dependency is matched against the whole relocation table in a single pass over its groupId and artifactId. The
+ * proposed replacements and the issue message are prepared once, when the table is compiled.
+ *
+ * Instances are immutable and can be shared between threads.
+ *
+ */
+public class RelocationMatcher {
+
+    private static final int ROOT = 0;
+
+    private final Relocation[] relocations;
+
+    /**
+     * Transition labels of each automaton state, sorted
+     */
+    private final char[][] labels;
+
+    /**
+     * Transition targets of each automaton state, on the same order of {@link #labels}
+     */
+    private final int[][] targets;
+
+    /**
+     * Failure link of each automaton state
+     */
+    private final int[] fail;
+
+    /**
+     * Relocation whose key ends on each automaton state or -1
+     */
+    private final int[] accept;
+
+    /**
+     * Next state on the failure chain that accepts a relocation or -1
+     */
+    private final int[] output;
+
+    private final String fingerprint;
+
+    private RelocationMatcher(Relocation[] relocations, char[][] labels, int[][] targets, int[] fail, int[] accept,
+            int[] output) {
+        this.relocations = relocations;
+        Fingerprint table = new Fingerprint();
+        for (Relocation relocation : relocations) {
+            table.add(relocation.key).add(relocation.relocated);
+        }
+        this.fingerprint = table.digestHex();
+        this.labels = labels;
+        this.targets = targets;
+        this.fail = fail;
+        this.accept = accept;
+        this.output = output;
+    }
+
+    /**
+     * @param relocatedDependencies relocation table: the key is the relocated prefix and the value the proposed
+     *        dependencies (groupId:artifactId:version) separated by '|'
+     *
+     * @return the compiled matcher
+     */
+    public static RelocationMatcher compile(Properties relocatedDependencies) {
+        // Sorted so the issues are always reported on the same order
+        TreeSet<String> keys = new TreeSet<String>();
+        for (Object key : relocatedDependencies.keySet()) {
+            if (((String) key).length() > 0) {
+                keys.add((String) key);
+            }
+        }
+        Relocation[] relocations = new Relocation[keys.size()];
+        List<TreeMap<Character, Integer>> trie = new ArrayList<TreeMap<Character, Integer>>();
+        List<Integer> acceptList = new ArrayList<Integer>();
+        trie.add(new TreeMap<Character, Integer>());
+        acceptList.add(-1);
+        int index = 0;
+        for (String key : keys) {
+            relocations[index] = new Relocation(key, relocatedDependencies.getProperty(key));
+            int state = ROOT;
+            for (int i = 0; i < key.length(); i++) {
+                Integer next = trie.get(state).get(key.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<Character, Integer>());
+                    acceptList.add(-1);
+                    trie.get(state).put(key.charAt(i), next);
+                }
+                state = next;
+            }
+            acceptList.set(state, index++);
+        }
+
+        int states = trie.size();
+        char[][] labels = new char[states][];
+        int[][] targets = new int[states][];
+        int[] accept = new int[states];
+        for (int state = 0; state < states; state++) {
+            Map<Character, Integer> transitions = trie.get(state);
+            labels[state] = new char[transitions.size()];
+            targets[state] = new int[transitions.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+                labels[state][i] = transition.getKey();
+                targets[state][i++] = transition.getValue();
+            }
+            accept[state] = acceptList.get(state);
+        }
+
+        // Breadth-first computation of failure and output links
+        int[] fail = new int[states];
+        int[] output = new int[states];
+        Arrays.fill(output, -1);
+        LinkedList<Integer> queue = new LinkedList<Integer>();
+        for (int child : targets[ROOT]) {
+            fail[child] = ROOT;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.removeFirst();
+            for (int i = 0; i < labels[state].length; i++) {
+                int child = targets[state][i];
+                int f = fail[state];
+                int next;
+                while ((next = step(labels, targets, f, labels[state][i])) < 0 && f != ROOT) {
+                    f = fail[f];
+                }
+                fail[child] = next < 0 || next == child ? ROOT : next;
+                output[child] = accept[fail[child]] >= 0 ? fail[child] : output[fail[child]];
+                queue.add(child);
+            }
+        }
+        return new RelocationMatcher(relocations, labels, targets, fail, accept, output);
+    }
+
+    /**
+     * @param groupId
+     * @param artifactId
+     *
+     * @return the relocations that apply to the given dependency, on the relocation table order
+     */
+    public List<Relocation> match(String groupId, String artifactId) {
+        List<Relocation> matches = scan(groupId, groupId, null);
+        matches = scan(artifactId, groupId, matches);
+        if (matches == null) {
+            return Collections.emptyList();
+        }
+        if (matches.size() > 1) {
+            Collections.sort(matches);
+        }
+        return matches;
+    }
+
+    /**
+     * @return a fingerprint of the relocation table
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return the relocation table this matcher was compiled from
+     */
+    public Properties toProperties() {
+        Properties relocatedDependencies = new Properties();
+        for (Relocation relocation : relocations) {
+            relocatedDependencies.setProperty(relocation.key, relocation.relocated);
+        }
+        return relocatedDependencies;
+    }
+
+    /**
+     * @return the number of relocations on the table
+     */
+    public int size() {
+        return relocations.length;
+    }
+
+    private List<Relocation> scan(String text, String groupId, List<Relocation> matches) {
+        int state = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = step(labels, targets, state, c)) < 0 && state != ROOT) {
+                state = fail[state];
+            }
+            state = next < 0 ? ROOT : next;
+            for (int s = accept[state] >= 0 ? state : output[state]; s >= 0; s = output[s]) {
+                Relocation relocation = relocations[accept[s]];
+                // if this groupdId isn't already relocated
+                if (!relocation.relocated.contains(groupId)) {
+                    if (matches == null) {
+                        matches = new ArrayList<Relocation>(2);
+                    }
+                    if (!matches.contains(relocation)) {
+                        matches.add(relocation);
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static int step(char[][] labels, int[][] targets, int state, char c) {
+        int i = Arrays.binarySearch(labels[state], c);
+        return i < 0 ? -1 : targets[state][i];
+    }
+
+    /**
+     * A relocated dependency and its proposed replacements
+     */
+    public static class Relocation implements Comparable<Relocation> {
+
+        private final String key;
+
+        private final String relocated;
+
+        private final String[] proposed;
+
+        private final String message;
+
+        Relocation(String key, String relocated) {
+            this.key = key;
+            this.relocated = relocated;
+            this.proposed = relocated.split("[|]");
+            this.message = getMessage(new String[proposed.length]);
+        }
+
+        /**
+         * @return the relocated prefix
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return the proposed dependencies (groupId:artifactId:version)
+         */
+        public String[] getProposed() {
+            return proposed.clone();
+        }
+
+        /**
+         * @return the issue message for a dependency that should be relocated
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * @param notes a note appended to each proposed dependency, like its availability. Null items are skipped
+         * @return the issue message for a dependency that should be relocated
+         */
+        public String getMessage(String[] notes) {
+            StringBuilder sb = new StringBuilder("You shoud replace this dependency by: \n");
+            for (int i = 0; i < proposed.length; i++) {
+                sb.append("\t\t - " + proposed[i]);
+                if (notes[i] != null) {
+                    sb.append(notes[i]);
+                }
+                // Add 'or' until the last item
+                if (i < proposed.length - 1) {
+                    sb.append("\n\t\t or \n");
+                }
+            }
+            return sb.toString();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Comparable#compareTo(java.lang.Object)
+         */
+        public int compareTo(Relocation other) {
+            return key.compareTo(other.key);
+        }
+
+    }
+
+}
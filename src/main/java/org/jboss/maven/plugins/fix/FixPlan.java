@@ -0,0 +1,134 @@
+package org.jboss.maven.plugins.fix;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The changes to be made on a pom.xml: the BOMs to be imported, the dependencies whose version is now managed by them
+ * and the relocated dependencies. Dependencies are identified by groupId:artifactId, as written on the POM.
+ *
+ */
+public class FixPlan {
+
+    private final List<String> bomImports = new ArrayList<String>();
+
+    private final Map<String, String> managedVersions = new HashMap<String, String>();
+
+    private final Map<String, String> relocations = new LinkedHashMap<String, String>();
+
+    private final List<String> notes = new ArrayList<String>();
+
+    /**
+     * @param bom groupId:artifactId:version of a BOM to be imported
+     * @return this plan
+     */
+    public FixPlan addBomImport(String bom) {
+        if (!bomImports.contains(bom)) {
+            bomImports.add(bom);
+        }
+        return this;
+    }
+
+    /**
+     * @param groupId
+     * @param artifactId
+     * @param version the version the imported BOM manages, which is also the one the dependency declares
+     * @return this plan
+     */
+    public FixPlan addManagedDependency(String groupId, String artifactId, String version) {
+        managedVersions.put(groupId + ":" + artifactId, version);
+        return this;
+    }
+
+    /**
+     * @param groupId
+     * @param artifactId
+     * @param replacement groupId:artifactId:version of the dependency replacing it
+     * @return this plan
+     */
+    public FixPlan addRelocation(String groupId, String artifactId, String replacement) {
+        relocations.put(groupId + ":" + artifactId, replacement);
+        return this;
+    }
+
+    /**
+     * @return groupId:artifactId:version of each BOM to be imported
+     */
+    public List<String> getBomImports() {
+        return Collections.unmodifiableList(bomImports);
+    }
+
+    /**
+     * @param key groupId:artifactId
+     * @return true if its version should be removed, as an imported BOM manages it
+     */
+    public boolean isManaged(String key) {
+        return managedVersions.containsKey(key);
+    }
+
+    /**
+     * @param key groupId:artifactId
+     * @return the version the imported BOM manages or null if the dependency isn't managed by it
+     */
+    public String getManagedVersion(String key) {
+        return managedVersions.get(key);
+    }
+
+    /**
+     * @param key groupId:artifactId
+     * @return groupId:artifactId:version of the replacement or null if the dependency isn't relocated
+     */
+    public String getRelocation(String key) {
+        return relocations.get(key);
+    }
+
+    /**
+     * @param note a change the fix could make but left for the developer, as it isn't safe to make unattended
+     * @return this plan
+     */
+    public FixPlan addNote(String note) {
+        notes.add(note);
+        return this;
+    }
+
+    /**
+     * @return the changes left for the developer
+     */
+    public List<String> getNotes() {
+        return Collections.unmodifiableList(notes);
+    }
+
+    /**
+     * @return true if there is nothing to change
+     */
+    public boolean isEmpty() {
+        return bomImports.isEmpty() && managedVersions.isEmpty() && relocations.isEmpty();
+    }
+
+}
@@ -0,0 +1,143 @@
+package org.jboss.maven.plugins.fix;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Totals of a fix
+ *
+ */
+public class FixResult {
+
+    private final boolean dryRun;
+
+    private int projects;
+
+    private int projectsChanged;
+
+    private int bomImportsAdded;
+
+    private int versionsRemoved;
+
+    private int relocated;
+
+    private Map<File, String> failures = new LinkedHashMap<File, String>();
+
+    private long millis;
+
+    FixResult(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    void addProject(PomRewriter rewriter) {
+        projects++;
+        if (rewriter.isChanged()) {
+            projectsChanged++;
+        }
+        bomImportsAdded += rewriter.getBomImportsAdded();
+        versionsRemoved += rewriter.getVersionsRemoved();
+        relocated += rewriter.getRelocated();
+    }
+
+    void addFailure(File pomFile, String message) {
+        failures.put(pomFile, message);
+    }
+
+    void setMillis(long millis) {
+        this.millis = millis;
+    }
+
+    /**
+     * @return the number of projects read
+     */
+    public int getProjects() {
+        return projects;
+    }
+
+    /**
+     * @return true if the POMs weren't written
+     */
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * @return the number of pom.xml files changed
+     */
+    public int getProjectsChanged() {
+        return projectsChanged;
+    }
+
+    /**
+     * @return the number of BOM imports added on all projects
+     */
+    public int getBomImportsAdded() {
+        return bomImportsAdded;
+    }
+
+    /**
+     * @return the number of versions removed on all projects
+     */
+    public int getVersionsRemoved() {
+        return versionsRemoved;
+    }
+
+    /**
+     * @return the number of dependencies relocated on all projects
+     */
+    public int getRelocated() {
+        return relocated;
+    }
+
+    /**
+     * @return the POMs that couldn't be fixed and why
+     */
+    public Map<File, String> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * @return how long the fix took
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return String.format("%s %d of %d projects in %.1f s: %d BOM imports added, %d versions removed, "
+                + "%d dependencies relocated, %d POMs couldn't be fixed", dryRun ? "Would fix" : "Fixed",
+                projectsChanged, projects, millis / 1000.0, bomImportsAdded, versionsRemoved, relocated, failures
+                        .size());
+    }
+
+}
@@ -0,0 +1,355 @@
+package org.jboss.maven.plugins.fix;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.artifact.versioning.ComparableVersion;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.jboss.jdf.stacks.model.BomVersion;
+import org.jboss.maven.plugins.CheckEngine;
+import org.jboss.maven.plugins.CheckerResources;
+import org.jboss.maven.plugins.bom.BomPlan;
+import org.jboss.maven.plugins.dependency.MavenDependency;
+import org.jboss.maven.plugins.dependency.RelocationMatcher.Relocation;
+import org.jboss.maven.plugins.project.CheckedProject;
+import org.jboss.maven.plugins.project.ProjectReader;
+
+/**
+ * Fixes the issues the checker can fix by itself on many projects, in parallel: imports the proposed BOMs, removes the
+ * versions they manage and replaces the relocated dependencies. Each pom.xml is changed by a {@link PomRewriter}, so
+ * everything else on the file is kept as it was.
+ *
+ * Only the changes that keep what the project resolves are made. Relocations with more than one replacement, matched
+ * only on the artifactId, whose replacement is already declared or implements an older specification than the declared
+ * version are left for the developer, as are the versions that differ from the one the proposed BOM manages. Those
+ * are logged instead.
+ *
+ */
+public class PomFixer {
+
+    /**
+     * The specification version on the artifactId of a JBoss spec jar, like jboss-jaxrs-api_1.1_spec
+     */
+    private static final Pattern SPEC_VERSION = Pattern.compile(":[^:]*_(\\d+(?:\\.\\d+)*)_spec:");
+
+    private static final Pattern XML_ENCODING = Pattern.compile("^\\s*<\\?xml[^>]*encoding\\s*=\\s*[\"']([^\"']+)");
+
+    private final CheckerResources resources;
+
+    private final ProjectReader projectReader;
+
+    private final int threads;
+
+    private final boolean dryRun;
+
+    private final Log log;
+
+    /**
+     * @param resources the relocated dependencies and BOM index shared by all projects
+     * @param projectReader reads each pom.xml
+     * @param threads the number of projects fixed at the same time
+     * @param dryRun only logs what would be changed
+     * @param log
+     */
+    public PomFixer(CheckerResources resources, ProjectReader projectReader, int threads, boolean dryRun, Log log) {
+        this.resources = resources;
+        this.projectReader = projectReader;
+        this.threads = Math.max(1, threads);
+        this.dryRun = dryRun;
+        this.log = log;
+    }
+
+    /**
+     * Fixes every given project
+     *
+     * @param pomFiles
+     * @return the totals of the fix
+     * @throws IOException if interrupted
+     */
+    public FixResult fix(List<File> pomFiles) throws IOException {
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "dependency-checker-fix");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        FixResult result = new FixResult(dryRun);
+        try {
+            List<Future<ProjectFix>> results = new ArrayList<Future<ProjectFix>>(pomFiles.size());
+            for (final File pomFile : pomFiles) {
+                results.add(executor.submit(new Callable<ProjectFix>() {
+
+                    public ProjectFix call() {
+                        return fixProject(pomFile);
+                    }
+                }));
+            }
+            // Logged on the given order, no matter which project finishes first
+            for (int i = 0; i < results.size(); i++) {
+                ProjectFix projectFix = get(results.get(i));
+                if (projectFix.error == null) {
+                    PomRewriter rewriter = projectFix.rewriter;
+                    if (rewriter.isChanged()) {
+                        log.info(String.format("%s %s: %d BOM imports added, %d versions removed, "
+                                + "%d dependencies relocated", dryRun ? "Would fix" : "Fixed", pomFiles.get(i),
+                                rewriter.getBomImportsAdded(), rewriter.getVersionsRemoved(), rewriter.getRelocated()));
+                    }
+                    for (String note : projectFix.plan.getNotes()) {
+                        log.info(pomFiles.get(i) + ": " + note);
+                    }
+                    result.addProject(rewriter);
+                } else {
+                    log.warn("Can't fix " + pomFiles.get(i) + ": " + projectFix.error);
+                    result.addFailure(pomFiles.get(i), projectFix.error);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        result.setMillis((System.nanoTime() - start) / 1000000);
+        return result;
+    }
+
+    /**
+     * @param project
+     * @return the changes that fix the issues found on the project
+     * @throws MojoExecutionException if the BOM index can't be loaded
+     */
+    public FixPlan plan(CheckedProject project) throws MojoExecutionException {
+        FixPlan plan = new FixPlan();
+        CheckEngine engine = new CheckEngine(resources, null, project.getDeclaredDependencies(),
+                project.getExclusionMatcher());
+        BomPlan bomPlan = engine.planBoms(project.getDependencies());
+        Set<String> declared = new HashSet<String>();
+        for (Dependency dependency : project.getDependencies()) {
+            declared.add(dependency.getGroupId() + ":" + dependency.getArtifactId());
+        }
+        for (Dependency dependency : project.getDependencies()) {
+            if (engine.findExclusion(dependency) != null) {
+                continue;
+            }
+            String key = dependency.getGroupId() + ":" + dependency.getArtifactId();
+            List<Relocation> relocations = engine.getRelocatedDependencies().match(dependency.getGroupId(),
+                    dependency.getArtifactId());
+            if (!relocations.isEmpty()) {
+                String[] proposed = relocations.get(0).getProposed();
+                if (relocations.size() == 1 && proposed.length == 1 && proposed[0].split(":").length == 3) {
+                    String note = checkRelocation(dependency, relocations.get(0).getKey(), proposed[0], declared);
+                    if (note == null) {
+                        plan.addRelocation(dependency.getGroupId(), dependency.getArtifactId(), proposed[0]);
+                        declared.add(proposed[0].substring(0, proposed[0].lastIndexOf(':')));
+                    } else {
+                        plan.addNote(note);
+                    }
+                }
+                continue;
+            }
+            MavenDependency mavenDependency = new MavenDependency(dependency.getGroupId(), dependency.getArtifactId());
+            BomPlan.Suggestion suggestion = bomPlan.getSuggestion(mavenDependency);
+            if (suggestion != null) {
+                BomVersion bom = suggestion.getBomVersion();
+                String bomCoordinates = bom.getBom().getGroupId() + ":" + bom.getBom().getArtifactId() + ":"
+                        + bom.getVersion();
+                String managedVersion = bomPlan.getManagedVersion(mavenDependency);
+                plan.addBomImport(bomCoordinates);
+                if (managedVersion != null && managedVersion.equals(dependency.getVersion())) {
+                    plan.addManagedDependency(dependency.getGroupId(), dependency.getArtifactId(), managedVersion);
+                } else {
+                    plan.addNote(String.format("Kept the version %s of %s: %s manages %s", dependency.getVersion(),
+                            key, bomCoordinates, managedVersion == null ? "an unknown version" : managedVersion));
+                }
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * The relocation table matches its keys anywhere on the groupId or artifactId, which is fine to report an issue
+     * but not to replace a dependency unattended
+     *
+     * @param dependency
+     * @param relocationKey
+     * @param replacement groupId:artifactId:version
+     * @param declared groupId:artifactId of the dependencies declared or relocated so far
+     * @return why the dependency shouldn't be relocated by the fix, or null if it can be
+     */
+    static String checkRelocation(Dependency dependency, String relocationKey, String replacement,
+            Set<String> declared) {
+        String groupId = dependency.getGroupId();
+        String description = "Didn't relocate " + groupId + ":" + dependency.getArtifactId() + " to " + replacement;
+        if (!groupId.equals(relocationKey) && !groupId.startsWith(relocationKey + ".")) {
+            return description + ": its groupId isn't relocated";
+        }
+        if (declared.contains(replacement.substring(0, replacement.lastIndexOf(':')))) {
+            return description + ": the replacement is already declared";
+        }
+        Matcher specVersion = SPEC_VERSION.matcher(replacement);
+        if (dependency.getVersion() != null && specVersion.find()
+                && new ComparableVersion(dependency.getVersion()).compareTo(
+                        new ComparableVersion(specVersion.group(1))) > 0) {
+            return description + ": it implements the older " + specVersion.group(1) + " specification";
+        }
+        return null;
+    }
+
+    /**
+     * @param pomFile
+     * @return the rewriter that fixed the project, or why it couldn't be fixed
+     */
+    private ProjectFix fixProject(File pomFile) {
+        try {
+            FixPlan plan = plan(projectReader.read(pomFile));
+            byte[] contents = readFile(pomFile);
+            String encoding = encodingOf(contents);
+            PomRewriter rewriter = new PomRewriter(new String(contents, encoding), plan);
+            String fixed = rewriter.rewrite();
+            if (rewriter.isChanged() && !dryRun) {
+                writeFile(pomFile, fixed.getBytes(encoding));
+            }
+            return new ProjectFix(plan, rewriter, null);
+        } catch (MojoExecutionException e) {
+            return new ProjectFix(null, null, e.getMessage());
+        } catch (IOException e) {
+            return new ProjectFix(null, null, e.getMessage());
+        } catch (RuntimeException e) {
+            return new ProjectFix(null, null, String.valueOf(e));
+        }
+    }
+
+    /**
+     * @param contents
+     * @return the encoding declared on the XML declaration, UTF-8 by default
+     * @throws IOException
+     */
+    static String encodingOf(byte[] contents) throws IOException {
+        String prolog = new String(contents, 0, Math.min(contents.length, 256), "ISO-8859-1");
+        // Skips the UTF-8 byte order mark
+        if (prolog.startsWith("\u00EF\u00BB\u00BF")) {
+            prolog = prolog.substring(3);
+        }
+        Matcher matcher = XML_ENCODING.matcher(prolog);
+        return matcher.find() ? matcher.group(1) : "UTF-8";
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] contents = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int read = 0;
+            while (read < contents.length) {
+                int count = in.read(contents, read, contents.length - read);
+                if (count < 0) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+                read += count;
+            }
+        } finally {
+            in.close();
+        }
+        return contents;
+    }
+
+    /**
+     * Writes the contents next to the file first and then renames it over the file, so an interrupted fix never
+     * leaves a truncated pom.xml behind
+     *
+     * @param file
+     * @param contents
+     * @throws IOException
+     */
+    static void writeFile(File file, byte[] contents) throws IOException {
+        File updated = new File(file.getAbsoluteFile().getParentFile(), file.getName() + ".tmp");
+        boolean written = false;
+        try {
+            OutputStream out = new FileOutputStream(updated);
+            try {
+                out.write(contents);
+            } finally {
+                out.close();
+            }
+            if (!updated.renameTo(file) && !(file.delete() && updated.renameTo(file))) {
+                throw new IOException("Can't replace " + file + " by " + updated);
+            }
+            written = true;
+        } finally {
+            if (!written) {
+                updated.delete();
+            }
+        }
+    }
+
+    private static ProjectFix get(Future<ProjectFix> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fixing the projects");
+        } catch (ExecutionException e) {
+            return new ProjectFix(null, null, String.valueOf(e.getCause()));
+        }
+    }
+
+    /**
+     * The outcome of fixing one project
+     */
+    private static class ProjectFix {
+
+        private final FixPlan plan;
+
+        private final PomRewriter rewriter;
+
+        private final String error;
+
+        ProjectFix(FixPlan plan, PomRewriter rewriter, String error) {
+            this.plan = plan;
+            this.rewriter = rewriter;
+            this.error = error;
+        }
+
+    }
+
+}
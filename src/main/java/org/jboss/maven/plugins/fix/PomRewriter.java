@@ -0,0 +1,562 @@
+package org.jboss.maven.plugins.fix;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies a {@link FixPlan} to the text of a pom.xml, in a single pass over the XML.
+ *
+ * The POM isn't parsed into a model and written back: only the changed elements are touched, so comments, formatting,
+ * element order and the XML declaration are preserved. The elements inserted follow the indentation and line
+ * separator of the file.
+ *
+ * Only the dependencies of the project, of its dependencyManagement and of its profiles are changed. A version
+ * declared on the dependencyManagement of the project is removed together with its entry, unless the entry has more
+ * than the version to manage (like exclusions or a scope). The BOMs are imported on the project, so the entries of the
+ * dependencyManagement of the profiles, which would take precedence over the imports once the profile is active, keep
+ * their versions.
+ *
+ * A version is only removed when it is the one the BOM manages, written as is or, outside the profiles, through a
+ * property the plan already resolved to it.
+ *
+ * Edits that would overlap each other are rejected with an {@link IllegalStateException} instead of being spliced
+ * into a broken file.
+ *
+ */
+public class PomRewriter {
+
+    private static final List<String> PROJECT = Arrays.asList("project");
+
+    private static final List<String> PROJECT_DEPENDENCY_MANAGEMENT = Arrays.asList("project", "dependencyManagement");
+
+    private static final List<String> PROJECT_MANAGED_DEPENDENCIES = Arrays.asList("project", "dependencyManagement",
+            "dependencies");
+
+    private static final List<List<String>> DEPENDENCY_LISTS = Arrays.asList(Arrays.asList("project",
+            "dependencies"), PROJECT_MANAGED_DEPENDENCIES, Arrays.asList("project", "profiles", "profile",
+            "dependencies"), Arrays.asList("project", "profiles", "profile", "dependencyManagement", "dependencies"));
+
+    private final String xml;
+
+    private final FixPlan plan;
+
+    private final String newline;
+
+    private String indentUnit;
+
+    private final List<String> path = new ArrayList<String>();
+
+    private final List<Edit> edits = new ArrayList<Edit>();
+
+    /**
+     * groupId:artifactId of the BOMs already imported by the project
+     */
+    private final Set<String> importedBoms = new HashSet<String>();
+
+    private DependencyElement dependency;
+
+    private boolean managementFound;
+
+    private boolean importsInserted;
+
+    private int dependenciesStart = -1;
+
+    private int bomImportsAdded;
+
+    private int versionsRemoved;
+
+    private int relocated;
+
+    /**
+     * @param xml the pom.xml contents
+     * @param plan the changes to be made
+     */
+    public PomRewriter(String xml, FixPlan plan) {
+        this.xml = xml;
+        this.plan = plan;
+        this.newline = xml.indexOf("\r\n") >= 0 ? "\r\n" : "\n";
+    }
+
+    /**
+     * @return the fixed pom.xml contents
+     * @throws IllegalArgumentException if the XML is malformed
+     * @throws IllegalStateException if two changes overlap
+     */
+    public String rewrite() {
+        int pos = 0;
+        for (int lt = xml.indexOf('<'); lt >= 0; lt = xml.indexOf('<', pos)) {
+            if (xml.startsWith("<!--", lt)) {
+                pos = skip(lt, "-->");
+            } else if (xml.startsWith("<![CDATA[", lt)) {
+                pos = skip(lt, "]]>");
+            } else if (xml.startsWith("<?", lt)) {
+                pos = skip(lt, "?>");
+            } else if (xml.startsWith("<!", lt)) {
+                // A DOCTYPE, maybe with an internal subset
+                int bracket = xml.indexOf('[', lt);
+                int gt = xml.indexOf('>', lt);
+                pos = bracket >= 0 && bracket < gt ? skip(bracket, "]>") : skip(lt, ">");
+            } else {
+                int gt = tagEnd(lt);
+                if (xml.charAt(lt + 1) == '/') {
+                    endElement(tagName(lt + 2), lt, gt + 1, false);
+                } else {
+                    String name = tagName(lt + 1);
+                    startElement(name, lt, gt + 1);
+                    if (xml.charAt(gt - 1) == '/') {
+                        endElement(name, lt, gt + 1, true);
+                    }
+                }
+                pos = gt + 1;
+            }
+        }
+        if (!path.isEmpty()) {
+            throw new IllegalArgumentException("Unclosed element <" + path.get(path.size() - 1) + ">");
+        }
+        // Insertions decided at the end of the project may come before other edits
+        Collections.sort(edits);
+        StringBuilder sb = new StringBuilder(xml.length() + 256);
+        int copied = 0;
+        for (Edit edit : edits) {
+            if (edit.start < copied) {
+                throw new IllegalStateException("Overlapping edits at offset " + edit.start + " of the pom.xml");
+            }
+            sb.append(xml, copied, edit.start).append(edit.replacement);
+            copied = edit.end;
+        }
+        return sb.append(xml, copied, xml.length()).toString();
+    }
+
+    /**
+     * @return true if the pom.xml was changed
+     */
+    public boolean isChanged() {
+        return !edits.isEmpty();
+    }
+
+    /**
+     * @return the number of BOM imports added
+     */
+    public int getBomImportsAdded() {
+        return bomImportsAdded;
+    }
+
+    /**
+     * @return the number of versions removed, as they are managed by a BOM
+     */
+    public int getVersionsRemoved() {
+        return versionsRemoved;
+    }
+
+    /**
+     * @return the number of dependencies replaced by their relocation
+     */
+    public int getRelocated() {
+        return relocated;
+    }
+
+    private void startElement(String name, int start, int contentStart) {
+        if (path.size() == 1 && indentUnit == null) {
+            // The first child of the project tells the indentation of the file
+            String indent = indentOf(start);
+            indentUnit = indent.length() == 0 ? "    " : indent;
+        }
+        if (path.equals(PROJECT) && "dependencyManagement".equals(name)) {
+            managementFound = true;
+        } else if (path.equals(PROJECT) && "dependencies".equals(name) && dependenciesStart < 0) {
+            dependenciesStart = start;
+        }
+        if (dependency != null && path.size() == dependency.depth + 1) {
+            dependency.startChild(name, start, contentStart);
+        } else if (dependency == null && "dependency".equals(name) && DEPENDENCY_LISTS.contains(path)) {
+            dependency = new DependencyElement(start, path.size(), path.size() > 2
+                    && "dependencyManagement".equals(path.get(path.size() - 2)), path
+                    .equals(PROJECT_MANAGED_DEPENDENCIES), "profiles".equals(path.get(1)));
+        }
+        path.add(name);
+    }
+
+    private void endElement(String name, int start, int end, boolean empty) {
+        if (path.isEmpty() || !path.get(path.size() - 1).equals(name)) {
+            throw new IllegalArgumentException("Unexpected </" + name + "> at offset " + start);
+        }
+        path.remove(path.size() - 1);
+        if (dependency != null) {
+            if (path.size() == dependency.depth + 1) {
+                dependency.endChild(empty ? end : start, end);
+            } else if (path.size() == dependency.depth) {
+                fixDependency(dependency, end);
+                dependency = null;
+            }
+        } else if (path.equals(PROJECT_DEPENDENCY_MANAGEMENT) && "dependencies".equals(name)) {
+            String indent = indentOf(start) + indentUnit;
+            if (empty) {
+                String imports = bomImports(indent);
+                if (imports.length() > 0) {
+                    edits.add(new Edit(start, end, "<dependencies>" + imports + newline + indentOf(start)
+                            + "</dependencies>"));
+                }
+            } else {
+                insert(whitespaceStart(start), bomImports(indent));
+            }
+            importsInserted = true;
+        } else if (path.equals(PROJECT) && "dependencyManagement".equals(name) && !importsInserted) {
+            String indent = indentOf(start) + indentUnit;
+            String imports = bomImports(indent + indentUnit);
+            if (imports.length() > 0) {
+                String dependencies = "<dependencies>" + imports + newline + indent + "</dependencies>";
+                if (empty) {
+                    edits.add(new Edit(start, end, "<dependencyManagement>" + newline + indent + dependencies
+                            + newline + indentOf(start) + "</dependencyManagement>"));
+                } else {
+                    insert(whitespaceStart(start), newline + indent + dependencies);
+                }
+            }
+            importsInserted = true;
+        } else if (path.isEmpty() && "project".equals(name) && !managementFound) {
+            if (indentUnit == null) {
+                indentUnit = "    ";
+            }
+            if (dependenciesStart >= 0) {
+                // Before the dependencies, where the dependencyManagement is usually declared
+                String indent = indentOf(dependenciesStart);
+                String management = dependencyManagement(indent);
+                if (management.length() > 0) {
+                    insert(dependenciesStart, management + newline + newline + indent);
+                }
+            } else {
+                String management = dependencyManagement(indentUnit);
+                if (management.length() > 0) {
+                    insert(whitespaceStart(start), newline + newline + indentUnit + management);
+                }
+            }
+        }
+    }
+
+    private void fixDependency(DependencyElement element, int end) {
+        String groupId = element.value("groupId");
+        String artifactId = element.value("artifactId");
+        String key = groupId + ":" + artifactId;
+        if (element.management && "import".equals(element.value("scope"))) {
+            if (element.projectManagement) {
+                importedBoms.add(key);
+            }
+            return;
+        }
+        String relocation = plan.getRelocation(key);
+        Child version = element.children.get("version");
+        if (relocation != null) {
+            String[] replacement = relocation.split(":");
+            replaceContent(element.children.get("groupId"), replacement[0]);
+            replaceContent(element.children.get("artifactId"), replacement[1]);
+            if (version != null) {
+                replaceContent(version, replacement[2]);
+            } else {
+                Child artifactIdElement = element.children.get("artifactId");
+                insert(artifactIdElement.end, newline + indentOf(artifactIdElement.start) + "<version>"
+                        + escape(replacement[2]) + "</version>");
+            }
+            relocated++;
+        } else if (version != null && plan.isManaged(key) && isManagedVersion(element, version.text(), key)) {
+            if (!element.management) {
+                edits.add(new Edit(removalStart(version.start), version.end, ""));
+                versionsRemoved++;
+            } else if (element.projectManagement && element.onlyManagesVersion()) {
+                edits.add(new Edit(removalStart(element.start), end, ""));
+                versionsRemoved++;
+            }
+        }
+    }
+
+    /**
+     * @param element
+     * @param version the version written on the dependency
+     * @param key groupId:artifactId
+     * @return true if removing the version keeps the version the dependency resolves to
+     */
+    private boolean isManagedVersion(DependencyElement element, String version, String key) {
+        if (version.equals(plan.getManagedVersion(key))) {
+            return true;
+        }
+        // The plan compares the BOM with the effective version, which a profile may override
+        return version.indexOf("${") >= 0 && !element.profile;
+    }
+
+    /**
+     * @param indent the indentation of the dependencyManagement element
+     * @return the dependencyManagement importing the BOMs or an empty string if there is nothing to import
+     */
+    private String dependencyManagement(String indent) {
+        String imports = bomImports(indent + indentUnit + indentUnit);
+        if (imports.length() == 0) {
+            return "";
+        }
+        return "<dependencyManagement>" + newline + indent + indentUnit + "<dependencies>" + imports + newline
+                + indent + indentUnit + "</dependencies>" + newline + indent + "</dependencyManagement>";
+    }
+
+    /**
+     * @param indent the indentation of each dependency element
+     * @return the dependency elements importing each BOM not imported yet, each one starting on a new line
+     */
+    private String bomImports(String indent) {
+        StringBuilder sb = new StringBuilder();
+        for (String bom : plan.getBomImports()) {
+            String[] coordinates = bom.split(":");
+            if (importedBoms.contains(coordinates[0] + ":" + coordinates[1])) {
+                continue;
+            }
+            String childIndent = newline + indent + indentUnit;
+            sb.append(newline).append(indent).append("<dependency>");
+            sb.append(childIndent).append("<groupId>").append(escape(coordinates[0])).append("</groupId>");
+            sb.append(childIndent).append("<artifactId>").append(escape(coordinates[1])).append("</artifactId>");
+            sb.append(childIndent).append("<version>").append(escape(coordinates[2])).append("</version>");
+            sb.append(childIndent).append("<type>pom</type>");
+            sb.append(childIndent).append("<scope>import</scope>");
+            sb.append(newline).append(indent).append("</dependency>");
+            bomImportsAdded++;
+        }
+        return sb.toString();
+    }
+
+    private void replaceContent(Child child, String value) {
+        if (child != null && !child.text().equals(value)) {
+            edits.add(new Edit(child.contentStart, child.contentEnd, escape(value)));
+        }
+    }
+
+    private void insert(int position, String text) {
+        if (text.length() > 0) {
+            edits.add(new Edit(position, position, text));
+        }
+    }
+
+    /**
+     * @param start where an element starts
+     * @return where its removal should start, so the line it was on goes with it
+     */
+    private int removalStart(int start) {
+        int i = start;
+        while (i > 0 && (xml.charAt(i - 1) == ' ' || xml.charAt(i - 1) == '\t')) {
+            i--;
+        }
+        if (i > 0 && xml.charAt(i - 1) == '\n') {
+            i--;
+            if (i > 0 && xml.charAt(i - 1) == '\r') {
+                i--;
+            }
+            return i;
+        }
+        return start;
+    }
+
+    /**
+     * @param start where an element starts
+     * @return the position right after the content preceding the element
+     */
+    private int whitespaceStart(int start) {
+        int i = start;
+        while (i > 0 && Character.isWhitespace(xml.charAt(i - 1))) {
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * @param start where an element starts
+     * @return the spaces and tabs before the element, on the same line
+     */
+    private String indentOf(int start) {
+        int i = start;
+        while (i > 0 && (xml.charAt(i - 1) == ' ' || xml.charAt(i - 1) == '\t')) {
+            i--;
+        }
+        return xml.substring(i, start);
+    }
+
+    private int skip(int start, String terminator) {
+        int end = xml.indexOf(terminator, start);
+        if (end < 0) {
+            throw new IllegalArgumentException("Unterminated markup at offset " + start);
+        }
+        return end + terminator.length();
+    }
+
+    /**
+     * @param start the '<' of a tag
+     * @return the position of its '>', skipping quoted attribute values
+     */
+    private int tagEnd(int start) {
+        char quote = 0;
+        for (int i = start + 1; i < xml.length(); i++) {
+            char c = xml.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unterminated tag at offset " + start);
+    }
+
+    private String tagName(int start) {
+        int end = start;
+        while (end < xml.length()) {
+            char c = xml.charAt(end);
+            if (Character.isWhitespace(c) || c == '/' || c == '>') {
+                break;
+            }
+            end++;
+        }
+        return xml.substring(start, end);
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    /**
+     * Replaces the text between two positions of the original XML
+     */
+    private static class Edit implements Comparable<Edit> {
+
+        private final int start;
+
+        private final int end;
+
+        private final String replacement;
+
+        Edit(int start, int end, String replacement) {
+            this.start = start;
+            this.end = end;
+            this.replacement = replacement;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Comparable#compareTo(java.lang.Object)
+         */
+        public int compareTo(Edit other) {
+            if (start != other.start) {
+                return start < other.start ? -1 : 1;
+            }
+            // An insertion goes before a replacement starting at the same offset
+            return end < other.end ? -1 : end == other.end ? 0 : 1;
+        }
+
+    }
+
+    /**
+     * A child element of a dependency
+     */
+    private class Child {
+
+        private final int start;
+
+        private final int contentStart;
+
+        private int contentEnd;
+
+        private int end;
+
+        Child(int start, int contentStart) {
+            this.start = start;
+            this.contentStart = contentStart;
+        }
+
+        String text() {
+            return xml.substring(contentStart, contentEnd).trim();
+        }
+
+    }
+
+    /**
+     * A dependency element, with the positions of its children
+     */
+    private class DependencyElement {
+
+        private final int start;
+
+        private final int depth;
+
+        private final boolean management;
+
+        private final boolean projectManagement;
+
+        private final boolean profile;
+
+        private final Map<String, Child> children = new HashMap<String, Child>();
+
+        private Child current;
+
+        DependencyElement(int start, int depth, boolean management, boolean projectManagement, boolean profile) {
+            this.start = start;
+            this.depth = depth;
+            this.management = management;
+            this.projectManagement = projectManagement;
+            this.profile = profile;
+        }
+
+        void startChild(String name, int childStart, int contentStart) {
+            current = new Child(childStart, contentStart);
+            children.put(name, current);
+        }
+
+        void endChild(int contentEnd, int end) {
+            current.contentEnd = contentEnd;
+            current.end = end;
+        }
+
+        String value(String child) {
+            return children.containsKey(child) ? children.get(child).text() : null;
+        }
+
+        /**
+         * @return true if the entry only declares the version of a jar
+         */
+        boolean onlyManagesVersion() {
+            for (String child : children.keySet()) {
+                if (!"groupId".equals(child) && !"artifactId".equals(child) && !"version".equals(child)
+                        && !("type".equals(child) && "jar".equals(value(child)))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,99 @@
+package org.jboss.maven.plugins.project;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.util.List;
+
+import org.apache.maven.model.Dependency;
+import org.jboss.maven.plugins.check.VersionPolicy;
+import org.jboss.maven.plugins.dependency.DeclaredDependencies;
+import org.jboss.maven.plugins.dependency.ExclusionMatcher;
+
+/**
+ * What the daemon needs from a pom.xml to check it
+ *
+ */
+public class CheckedProject {
+
+    private final String id;
+
+    private final List<Dependency> dependencies;
+
+    private final DeclaredDependencies declaredDependencies;
+
+    private final ExclusionMatcher exclusionMatcher;
+
+    private final VersionPolicy versionPolicy;
+
+    /**
+     * @param id groupId:artifactId:packaging:version
+     * @param dependencies the dependencies of the effective model
+     * @param declaredDependencies versions declared on pom.xml
+     * @param exclusionMatcher the excludes configured for the plugin
+     * @param versionPolicy the vendor releases accepted by the plugin configuration
+     */
+    public CheckedProject(String id, List<Dependency> dependencies, DeclaredDependencies declaredDependencies,
+            ExclusionMatcher exclusionMatcher, VersionPolicy versionPolicy) {
+        this.id = id;
+        this.dependencies = dependencies;
+        this.declaredDependencies = declaredDependencies;
+        this.exclusionMatcher = exclusionMatcher;
+        this.versionPolicy = versionPolicy;
+    }
+
+    /**
+     * @return groupId:artifactId:packaging:version
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the dependencies of the effective model
+     */
+    public List<Dependency> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * @return versions declared on pom.xml
+     */
+    public DeclaredDependencies getDeclaredDependencies() {
+        return declaredDependencies;
+    }
+
+    /**
+     * @return the excludes configured for the plugin
+     */
+    public ExclusionMatcher getExclusionMatcher() {
+        return exclusionMatcher;
+    }
+
+    /**
+     * @return the vendor releases accepted by the plugin configuration
+     */
+    public VersionPolicy getVersionPolicy() {
+        return versionPolicy;
+    }
+
+}
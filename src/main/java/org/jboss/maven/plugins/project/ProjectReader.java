@@ -0,0 +1,299 @@
+package org.jboss.maven.plugins.project;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Parent;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.Repository;
+import org.apache.maven.model.building.DefaultModelBuilderFactory;
+import org.apache.maven.model.building.DefaultModelBuildingRequest;
+import org.apache.maven.model.building.FileModelSource;
+import org.apache.maven.model.building.ModelBuilder;
+import org.apache.maven.model.building.ModelBuildingException;
+import org.apache.maven.model.building.ModelBuildingRequest;
+import org.apache.maven.model.building.ModelBuildingResult;
+import org.apache.maven.model.building.ModelCache;
+import org.apache.maven.model.building.ModelProblem;
+import org.apache.maven.model.building.ModelSource;
+import org.apache.maven.model.resolution.ModelResolver;
+import org.apache.maven.model.resolution.UnresolvableModelException;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.jboss.maven.plugins.bom.PomResolver;
+import org.jboss.maven.plugins.check.VersionPolicy;
+import org.jboss.maven.plugins.dependency.DeclaredDependencies;
+import org.jboss.maven.plugins.dependency.ExclusionMatcher;
+
+/**
+ * Builds the effective model of a pom.xml without a Maven session. Parents and imported POMs must already be on the
+ * local repository (or on the parent directory): nothing is downloaded.
+ *
+ * Parents and imported POMs from the local repository can be cached, so projects sharing them (like the modules of
+ * a reactor, or many projects checked by a batch) only read and parse them once. Instances can be shared between
+ * threads.
+ *
+ */
+public class ProjectReader {
+
+    private static final String PLUGIN_KEY = "org.jboss.maven.plugins:dependency-checker";
+
+    private final ModelBuilder modelBuilder = new DefaultModelBuilderFactory().newInstance();
+
+    private final PomResolver pomResolver;
+
+    private final ModelCache modelCache;
+
+    private final String vendorSuffixes;
+
+    private final String allowedQualifiers;
+
+    private final List<String> allowedVersions;
+
+    /**
+     * @param pomResolver finds the parents and imported POMs
+     */
+    public ProjectReader(PomResolver pomResolver) {
+        this(pomResolver, false);
+    }
+
+    /**
+     * @param pomResolver finds the parents and imported POMs
+     * @param cacheModels reads each parent and imported POM from the local repository only once. Changes to them
+     *        aren't seen afterwards.
+     */
+    public ProjectReader(PomResolver pomResolver, boolean cacheModels) {
+        this(pomResolver, cacheModels, "redhat", null, Collections.<String> emptyList());
+    }
+
+    /**
+     * @param pomResolver finds the parents and imported POMs
+     * @param cacheModels reads each parent and imported POM from the local repository only once. Changes to them
+     *        aren't seen afterwards.
+     * @param vendorSuffixes accepted vendor suffixes, when the project doesn't configure its own
+     * @param allowedQualifiers qualifiers allowed on vendor releases, when the project doesn't configure its own
+     * @param allowedVersions versions accepted without a vendor suffix, when the project doesn't configure its own
+     */
+    public ProjectReader(PomResolver pomResolver, boolean cacheModels, String vendorSuffixes,
+            String allowedQualifiers, List<String> allowedVersions) {
+        this.pomResolver = pomResolver;
+        this.modelCache = cacheModels ? new SharedModelCache() : null;
+        this.vendorSuffixes = vendorSuffixes;
+        this.allowedQualifiers = allowedQualifiers;
+        this.allowedVersions = allowedVersions;
+    }
+
+    /**
+     * @param pomFile
+     * @return the project to be checked
+     * @throws MojoExecutionException if the effective model can't be built
+     */
+    public CheckedProject read(File pomFile) throws MojoExecutionException {
+        DefaultModelBuildingRequest request = new DefaultModelBuildingRequest();
+        request.setPomFile(pomFile);
+        request.setModelResolver(new LocalModelResolver());
+        request.setValidationLevel(ModelBuildingRequest.VALIDATION_LEVEL_MINIMAL);
+        request.setProcessPlugins(false);
+        request.setSystemProperties(System.getProperties());
+        request.setModelCache(modelCache);
+        ModelBuildingResult result;
+        try {
+            result = modelBuilder.build(request);
+        } catch (ModelBuildingException e) {
+            StringBuilder sb = new StringBuilder("Can't read " + pomFile);
+            for (ModelProblem problem : e.getProblems()) {
+                if (problem.getSeverity() != ModelProblem.Severity.WARNING) {
+                    sb.append("\n\t- ").append(problem.getMessage());
+                }
+            }
+            throw new MojoExecutionException(sb.toString(), e);
+        }
+        Model model = result.getEffectiveModel();
+        Xpp3Dom configuration = getConfiguration(model);
+        ExclusionMatcher exclusionMatcher;
+        VersionPolicy versionPolicy;
+        try {
+            exclusionMatcher = ExclusionMatcher.compile(readList(configuration, "excludes",
+                    Collections.<String> emptyList()));
+            versionPolicy = VersionPolicy.compile(readValue(configuration, "vendorSuffixes", vendorSuffixes),
+                    readValue(configuration, "allowedQualifiers", allowedQualifiers), readList(configuration,
+                            "allowedVersions", allowedVersions));
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException("Invalid configuration on " + pomFile + ": " + e.getMessage(), e);
+        }
+        // Uses the model as read from pom.xml to determine what version has been informed or not
+        return new CheckedProject(model.getId(), model.getDependencies(), new DeclaredDependencies(
+                result.getRawModel()), exclusionMatcher, versionPolicy);
+    }
+
+    /**
+     * @param model
+     * @return the configuration of this plugin on the model or null if it isn't configured
+     */
+    private static Xpp3Dom getConfiguration(Model model) {
+        Plugin plugin = model.getBuild() == null ? null : model.getBuild().getPluginsAsMap().get(PLUGIN_KEY);
+        return plugin != null && plugin.getConfiguration() instanceof Xpp3Dom ? (Xpp3Dom) plugin.getConfiguration()
+                : null;
+    }
+
+    /**
+     * @param configuration may be null
+     * @param name
+     * @param defaultValue
+     * @return the value of the given parameter or the default value if it isn't configured
+     */
+    private static String readValue(Xpp3Dom configuration, String name, String defaultValue) {
+        Xpp3Dom parameter = configuration == null ? null : configuration.getChild(name);
+        return parameter == null || parameter.getValue() == null ? defaultValue : parameter.getValue();
+    }
+
+    /**
+     * @param configuration may be null
+     * @param name
+     * @param defaultValues
+     * @return the values of the given list parameter or the default values if it isn't configured
+     */
+    private static List<String> readList(Xpp3Dom configuration, String name, List<String> defaultValues) {
+        Xpp3Dom parameter = configuration == null ? null : configuration.getChild(name);
+        if (parameter == null) {
+            return defaultValues;
+        }
+        List<String> values = new ArrayList<String>();
+        for (Xpp3Dom value : parameter.getChildren()) {
+            if (value.getValue() != null) {
+                values.add(value.getValue());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Models cached by the model builder, shared by every project read
+     */
+    private static class SharedModelCache implements ModelCache {
+
+        private final ConcurrentMap<String, Object> models = new ConcurrentHashMap<String, Object>();
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see org.apache.maven.model.building.ModelCache#put(java.lang.String, java.lang.String, java.lang.String,
+         * java.lang.String, java.lang.Object)
+         */
+        public void put(String groupId, String artifactId, String version, String tag, Object data) {
+            models.put(key(groupId, artifactId, version, tag), data);
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see org.apache.maven.model.building.ModelCache#get(java.lang.String, java.lang.String, java.lang.String,
+         * java.lang.String)
+         */
+        public Object get(String groupId, String artifactId, String version, String tag) {
+            return models.get(key(groupId, artifactId, version, tag));
+        }
+
+        private static String key(String groupId, String artifactId, String version, String tag) {
+            return groupId + ':' + artifactId + ':' + version + ':' + tag;
+        }
+
+    }
+
+    /**
+     * Resolves parents and imported POMs through the {@link PomResolver}. Also implements the methods added to
+     * {@link ModelResolver} by newer Maven versions, which are the ones running the daemon goal.
+     */
+    private class LocalModelResolver implements ModelResolver {
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see org.apache.maven.model.resolution.ModelResolver#resolveModel(java.lang.String, java.lang.String,
+         * java.lang.String)
+         */
+        public ModelSource resolveModel(String groupId, String artifactId, String version)
+                throws UnresolvableModelException {
+            File pomFile = pomResolver.resolvePom(groupId, artifactId, version);
+            if (pomFile == null || !pomFile.isFile()) {
+                throw new UnresolvableModelException("Not found on the local repository", groupId, artifactId,
+                        version);
+            }
+            return new FileModelSource(pomFile);
+        }
+
+        /**
+         * @param parent
+         * @return the parent POM
+         * @throws UnresolvableModelException
+         */
+        public ModelSource resolveModel(Parent parent) throws UnresolvableModelException {
+            return resolveModel(parent.getGroupId(), parent.getArtifactId(), parent.getVersion());
+        }
+
+        /**
+         * @param dependency
+         * @return the imported POM
+         * @throws UnresolvableModelException
+         */
+        public ModelSource resolveModel(Dependency dependency) throws UnresolvableModelException {
+            return resolveModel(dependency.getGroupId(), dependency.getArtifactId(), dependency.getVersion());
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see org.apache.maven.model.resolution.ModelResolver#addRepository(org.apache.maven.model.Repository)
+         */
+        public void addRepository(Repository repository) {
+            // Only the local repository is used
+        }
+
+        /**
+         * @param repository
+         * @param replace
+         */
+        public void addRepository(Repository repository, boolean replace) {
+            // Only the local repository is used
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see org.apache.maven.model.resolution.ModelResolver#newCopy()
+         */
+        public ModelResolver newCopy() {
+            return this;
+        }
+
+    }
+
+}
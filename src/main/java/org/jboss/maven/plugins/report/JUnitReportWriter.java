@@ -0,0 +1,146 @@
+package org.jboss.maven.plugins.report;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+
+import org.apache.maven.model.Dependency;
+import org.codehaus.plexus.util.IOUtil;
+import org.jboss.maven.plugins.Issue;
+
+/**
+ * Writes a JUnit XML report with one failed test case per issue, so CI servers show the issues as test failures.
+ *
+ * The test suite element carries the number of test cases, which is only known at the end. So the test cases are
+ * streamed to a temporary file and copied into the report by {@link #close()}.
+ *
+ */
+public class JUnitReportWriter implements ReportWriter {
+
+    private File file;
+
+    private String project;
+
+    private File testCasesFile;
+
+    private Writer testCases;
+
+    private int count;
+
+    /**
+     * @param file
+     * @param project the checked project (groupId:artifactId:version), used as the test suite name
+     * @throws IOException
+     */
+    public JUnitReportWriter(File file, String project) throws IOException {
+        this.file = file;
+        this.project = project;
+        this.testCasesFile = File.createTempFile("junit", ".tmp", file.getParentFile());
+        this.testCases = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(testCasesFile), "UTF-8"));
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.report.ReportWriter#write(org.apache.maven.model.Dependency,
+     * org.jboss.maven.plugins.Issue)
+     */
+    public void write(Dependency dependency, Issue issue) throws IOException {
+        count++;
+        testCases.write("  <testcase classname=\"" + escape(dependency.getGroupId() + ":" + dependency.getArtifactId())
+                + "\" name=\"" + escape(issue.getId() + " [" + dependency.getVersion() + "]") + "\">\n");
+        testCases.write("    <failure type=\"" + escape(issue.getId()) + "\" message=\""
+                + escape(issue.getType().getDescription()) + "\">" + escape(issue.getMessage()) + "</failure>\n");
+        testCases.write("  </testcase>\n");
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.report.ReportWriter#close()
+     */
+    public void close() throws IOException {
+        testCases.close();
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+            try {
+                writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+                writer.write("<testsuite name=\"" + escape("dependency-checker " + project) + "\" tests=\"" + count
+                        + "\" failures=\"" + count + "\" errors=\"0\" skipped=\"0\">\n");
+                Reader reader = new InputStreamReader(new FileInputStream(testCasesFile), "UTF-8");
+                try {
+                    IOUtil.copy(reader, writer);
+                } finally {
+                    reader.close();
+                }
+                writer.write("</testsuite>\n");
+            } finally {
+                writer.close();
+            }
+        } finally {
+            testCasesFile.delete();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.report.ReportWriter#getFile()
+     */
+    public File getFile() {
+        return file;
+    }
+
+    private static String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,110 @@
+package org.jboss.maven.plugins.report;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.apache.maven.model.Dependency;
+import org.jboss.maven.plugins.Issue;
+import org.jboss.maven.plugins.util.Json;
+
+/**
+ * Writes one JSON object per line for each issue
+ *
+ */
+public class JsonLinesReportWriter implements ReportWriter {
+
+    private File file;
+
+    private String project;
+
+    private Writer writer;
+
+    /**
+     * @param file
+     * @param project the checked project (groupId:artifactId:version)
+     * @throws IOException
+     */
+    public JsonLinesReportWriter(File file, String project) throws IOException {
+        this.file = file;
+        this.project = project;
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+    }
+
+    /**
+     * Writes the records to a stream instead of a file, like the answers of the check daemon
+     *
+     * @param writer
+     * @param project the checked project (groupId:artifactId:version)
+     */
+    public JsonLinesReportWriter(Writer writer, String project) {
+        this.project = project;
+        this.writer = writer;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.report.ReportWriter#write(org.apache.maven.model.Dependency,
+     * org.jboss.maven.plugins.Issue)
+     */
+    public void write(Dependency dependency, Issue issue) throws IOException {
+        writer.write("{\"project\":");
+        writer.write(Json.quote(project));
+        writer.write(",\"groupId\":");
+        writer.write(Json.quote(dependency.getGroupId()));
+        writer.write(",\"artifactId\":");
+        writer.write(Json.quote(dependency.getArtifactId()));
+        writer.write(",\"version\":");
+        writer.write(Json.quote(dependency.getVersion()));
+        writer.write(",\"check\":");
+        writer.write(Json.quote(issue.getId()));
+        writer.write(",\"message\":");
+        writer.write(Json.quote(issue.getMessage()));
+        writer.write("}\n");
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.report.ReportWriter#close()
+     */
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.report.ReportWriter#getFile()
+     */
+    public File getFile() {
+        return file;
+    }
+
+}
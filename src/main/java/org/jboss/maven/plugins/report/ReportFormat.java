@@ -0,0 +1,94 @@
+package org.jboss.maven.plugins.report;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * The report formats and the file written for each one, inside the project build directory
+ *
+ */
+public enum ReportFormat {
+
+    /**
+     * One JSON object per issue and line
+     */
+    JSONL("dependency-checker-report.jsonl"),
+
+    /**
+     * Static Analysis Results Interchange Format 2.1.0
+     */
+    SARIF("dependency-checker-report.sarif"),
+
+    /**
+     * JUnit XML, with one failed test case per issue
+     */
+    JUNIT("TEST-dependency-checker.xml");
+
+    private final String fileName;
+
+    private ReportFormat(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * @return the name of the report file
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Starts a new report
+     *
+     * @param directory where the report is written
+     * @param project the checked project (groupId:artifactId:version)
+     * @param pomFile the checked pom.xml
+     * @return the report writer
+     * @throws IOException
+     */
+    public ReportWriter open(File directory, String project, File pomFile) throws IOException {
+        directory.mkdirs();
+        File file = new File(directory, fileName);
+        switch (this) {
+            case SARIF:
+                return new SarifReportWriter(file, pomFile);
+            case JUNIT:
+                return new JUnitReportWriter(file, project);
+            default:
+                return new JsonLinesReportWriter(file, project);
+        }
+    }
+
+    /**
+     * @param name the format name, in any case
+     * @return the format
+     * @throws IllegalArgumentException if there is no format with the given name
+     */
+    public static ReportFormat of(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ENGLISH));
+    }
+
+}
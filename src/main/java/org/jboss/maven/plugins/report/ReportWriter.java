@@ -0,0 +1,56 @@
+package org.jboss.maven.plugins.report;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.maven.model.Dependency;
+import org.jboss.maven.plugins.Issue;
+
+/**
+ * Writes each issue to a report file as soon as it is found, so the report never needs to be kept in memory
+ *
+ */
+public interface ReportWriter {
+
+    /**
+     * @param dependency the dependency that has the issue
+     * @param issue
+     * @throws IOException
+     */
+    void write(Dependency dependency, Issue issue) throws IOException;
+
+    /**
+     * Finishes the report. No issue can be written after it.
+     *
+     * @throws IOException
+     */
+    void close() throws IOException;
+
+    /**
+     * @return the report file, or null if the report isn't written to a file
+     */
+    File getFile();
+
+}
@@ -0,0 +1,116 @@
+package org.jboss.maven.plugins.report;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.apache.maven.model.Dependency;
+import org.jboss.maven.plugins.Issue;
+import org.jboss.maven.plugins.IssueType;
+import org.jboss.maven.plugins.util.Json;
+
+/**
+ * Writes a SARIF 2.1.0 log with one result per issue. The results are streamed, so only the document closing is
+ * written by {@link #close()}.
+ *
+ */
+public class SarifReportWriter implements ReportWriter {
+
+    private File file;
+
+    private String pomUri;
+
+    private Writer writer;
+
+    private boolean first = true;
+
+    /**
+     * @param file
+     * @param pomFile the checked pom.xml, used as the location of every result
+     * @throws IOException
+     */
+    public SarifReportWriter(File file, File pomFile) throws IOException {
+        this.file = file;
+        this.pomUri = pomFile == null ? "pom.xml" : pomFile.toURI().toString();
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        writer.write("{\n  \"version\": \"2.1.0\",\n");
+        writer.write("  \"$schema\": \"https://json.schemastore.org/sarif-2.1.0.json\",\n");
+        writer.write("  \"runs\": [ {\n    \"tool\": { \"driver\": {\n");
+        writer.write("      \"name\": \"dependency-checker\",\n");
+        writer.write("      \"informationUri\": \"https://github.com/jboss/maven-dependency-checker\",\n");
+        writer.write("      \"rules\": [");
+        IssueType[] types = IssueType.values();
+        for (int i = 0; i < types.length; i++) {
+            writer.write(i == 0 ? "\n" : ",\n");
+            writer.write("        { \"id\": " + Json.quote(types[i].getId()) + ", \"shortDescription\": { \"text\": "
+                    + Json.quote(types[i].getDescription()) + " } }");
+        }
+        writer.write("\n      ]\n    } },\n    \"results\": [");
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.report.ReportWriter#write(org.apache.maven.model.Dependency,
+     * org.jboss.maven.plugins.Issue)
+     */
+    public void write(Dependency dependency, Issue issue) throws IOException {
+        writer.write(first ? "\n" : ",\n");
+        first = false;
+        String coordinates = String.format("%s:%s:%s", dependency.getGroupId(), dependency.getArtifactId(),
+                dependency.getVersion());
+        writer.write("      { \"ruleId\": " + Json.quote(issue.getId()) + ", \"level\": \"warning\",");
+        writer.write(" \"message\": { \"text\": " + Json.quote(coordinates + ": " + issue.getMessage()) + " },");
+        writer.write(" \"locations\": [ { \"physicalLocation\": { \"artifactLocation\": { \"uri\": "
+                + Json.quote(pomUri) + " } } } ],");
+        writer.write(" \"properties\": { \"dependency\": " + Json.quote(coordinates) + " } }");
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.report.ReportWriter#close()
+     */
+    public void close() throws IOException {
+        try {
+            writer.write(first ? "]\n  } ]\n}\n" : "\n    ]\n  } ]\n}\n");
+        } finally {
+            writer.close();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.jboss.maven.plugins.report.ReportWriter#getFile()
+     */
+    public File getFile() {
+        return file;
+    }
+
+}
@@ -22,6 +22,8 @@
 
 package org.jboss.maven.plugins.stacks;
 
+import java.io.File;
+
 import org.apache.maven.settings.Proxy;
 import org.jboss.jdf.stacks.client.DefaultStacksClientConfiguration;
 import org.jboss.jdf.stacks.client.StacksClientConfiguration;
@@ -34,6 +36,10 @@ public class MavenStacksConfiguration extends DefaultStacksClientConfiguration i
 
     private Proxy proxy;
 
+    private File snapshotDirectory;
+
+    private int snapshotTtlSeconds;
+
     /**
      * @param proxy
      */
@@ -54,7 +60,7 @@ public class MavenStacksConfiguration extends DefaultStacksClientConfiguration i
      */
     @Override
     public int getProxyPort() {
-        return proxy == null?null:proxy.getPort();
+        return proxy == null?0:proxy.getPort();
     }
     
     /* (non-Javadoc)
@@ -73,5 +79,34 @@ public class MavenStacksConfiguration extends DefaultStacksClientConfiguration i
         return proxy == null?null:proxy.getPassword();
     }
 
+    /**
+     * @return the directory where the last good stacks descriptor is kept or null to disable the snapshot
+     */
+    public File getSnapshotDirectory() {
+        return snapshotDirectory;
+    }
+
+    /**
+     * @param snapshotDirectory the directory where the last good stacks descriptor is kept
+     */
+    public void setSnapshotDirectory(File snapshotDirectory) {
+        this.snapshotDirectory = snapshotDirectory;
+    }
+
+    /**
+     * @return for how long (in seconds) the snapshot is used without checking the stacks repository for changes
+     */
+    public int getSnapshotTtlSeconds() {
+        return snapshotTtlSeconds;
+    }
+
+    /**
+     * @param snapshotTtlSeconds for how long (in seconds) the snapshot is used without checking the stacks
+     *        repository for changes
+     */
+    public void setSnapshotTtlSeconds(int snapshotTtlSeconds) {
+        this.snapshotTtlSeconds = snapshotTtlSeconds;
+    }
+
     
 }
@@ -0,0 +1,396 @@
+package org.jboss.maven.plugins.stacks;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.codehaus.plexus.util.Base64;
+import org.jboss.jdf.stacks.client.StacksClient;
+import org.jboss.jdf.stacks.client.messages.StacksMessages;
+import org.jboss.jdf.stacks.model.Bom;
+import org.jboss.jdf.stacks.model.BomVersion;
+import org.jboss.jdf.stacks.model.Stacks;
+import org.jboss.jdf.stacks.parser.Parser;
+import org.jboss.maven.plugins.util.Fingerprint;
+import org.jboss.maven.plugins.util.Metrics;
+
+/**
+ * Keeps the last good stacks descriptor (and the BOMs listed on it) on disk.
+ *
+ * The snapshot is used as is while it is younger than the configured TTL or when the build is offline. After that,
+ * the stacks repository is asked for changes with a conditional request (ETag / Last-Modified) and the snapshot is only
+ * downloaded again if it has changed. If the stacks repository can't be reached the snapshot is used no matter its age.
+ *
+ * A snapshot taken from another URL than the configured one is ignored. The metadata, written last, holds the checksum
+ * of the BOM list, so a BOM list that doesn't match its metadata (like one left by a build that died while writing the
+ * snapshot) is ignored too.
+ *
+ */
+public class StacksSnapshot {
+
+    private static final String STACKS_FILE = "stacks.yaml";
+
+    private static final String BOMS_FILE = "boms.txt";
+
+    private static final String METADATA_FILE = "stacks.properties";
+
+    private static final int TIMEOUT_MILLIS = 10000;
+
+    private MavenStacksConfiguration configuration;
+
+    private StacksMessages messages;
+
+    private Metrics metrics;
+
+    /**
+     * @param configuration
+     * @param messages
+     */
+    public StacksSnapshot(MavenStacksConfiguration configuration, StacksMessages messages) {
+        this(configuration, messages, new Metrics());
+    }
+
+    /**
+     * @param configuration
+     * @param messages
+     * @param metrics receives where the descriptor came from and the download timer
+     */
+    public StacksSnapshot(MavenStacksConfiguration configuration, StacksMessages messages, Metrics metrics) {
+        this.configuration = configuration;
+        this.messages = messages;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return all BOMs listed on the stacks descriptor
+     */
+    public List<BomVersion> getAvailableBomVersions() {
+        File directory = configuration.getSnapshotDirectory();
+        if (directory == null) {
+            metrics.increment("stacks.fromStacksClient");
+            return new StacksClient(configuration, messages).getStacks().getAvailableBomVersions();
+        }
+        Properties metadata = readMetadata(directory);
+        List<BomVersion> snapshot = null;
+        if (isTakenFromConfiguredUrl(metadata)) {
+            snapshot = readBomVersions(directory, metadata);
+        } else if (metadata.getProperty("url") != null) {
+            messages.showDebugMessage("Ignoring the stacks snapshot from " + metadata.getProperty("url") + " on "
+                    + directory);
+        }
+        if (snapshot != null) {
+            if (!configuration.isOnline()) {
+                messages.showDebugMessage("Offline: using the stacks snapshot from " + directory);
+                metrics.increment("stacks.fromSnapshot");
+                return snapshot;
+            }
+            if (isFresh(metadata)) {
+                messages.showDebugMessage("Using the stacks snapshot from " + directory);
+                metrics.increment("stacks.fromSnapshot");
+                return snapshot;
+            }
+        }
+        if (configuration.isOnline()) {
+            long start = System.nanoTime();
+            try {
+                List<BomVersion> refreshed = refresh(directory, snapshot == null ? new Properties() : metadata);
+                metrics.increment(refreshed == null ? "stacks.notModified" : "stacks.downloaded");
+                return refreshed == null ? snapshot : refreshed;
+            } catch (Exception e) {
+                metrics.increment("stacks.refreshFailures");
+                if (snapshot != null) {
+                    messages.showWarnMessage("It was not possible to refresh the stacks descriptor from "
+                            + configuration.getUrl() + ". Using the snapshot from " + directory + ". Cause: " + e);
+                    metrics.increment("stacks.fromSnapshot");
+                    return snapshot;
+                }
+                messages.showDebugMessage("It was not possible to download the stacks descriptor: " + e);
+            } finally {
+                metrics.time("stacks.refresh", start);
+            }
+        }
+        // No snapshot available: let stacks-client use its own cache or embedded descriptor
+        metrics.increment("stacks.fromStacksClient");
+        return new StacksClient(configuration, messages).getStacks().getAvailableBomVersions();
+    }
+
+    /**
+     * Identifies the BOMs {@link #getAvailableBomVersions()} would return, without parsing the snapshot
+     *
+     * @return the fingerprint of the snapshot or null if the BOMs wouldn't come from it as is: there is no snapshot, it
+     *         was taken from another URL or it is due for a refresh
+     */
+    public String getFingerprint() {
+        File directory = configuration.getSnapshotDirectory();
+        if (directory == null) {
+            return null;
+        }
+        Properties metadata = readMetadata(directory);
+        File file = new File(directory, BOMS_FILE);
+        if (!file.isFile() || metadata.getProperty("fetched") == null || !isTakenFromConfiguredUrl(metadata)) {
+            return null;
+        }
+        if (configuration.isOnline() && !isFresh(metadata)) {
+            return null;
+        }
+        if (!isConsistent(file, metadata)) {
+            return null;
+        }
+        return new Fingerprint().add(metadata.getProperty("url")).add(metadata.getProperty("boms")).digestHex();
+    }
+
+    /**
+     * @return true if the BOM list matches the checksum recorded on the metadata
+     */
+    private boolean isConsistent(File bomsFile, Properties metadata) {
+        try {
+            if (new Fingerprint().addContents(bomsFile).digestHex().equals(metadata.getProperty("boms"))) {
+                return true;
+            }
+            messages.showDebugMessage("Ignoring the stacks snapshot " + bomsFile + ": it doesn't match its metadata");
+        } catch (IOException e) {
+            messages.showDebugMessage("Ignoring unreadable stacks snapshot " + bomsFile + ": " + e);
+        }
+        return false;
+    }
+
+    private boolean isTakenFromConfiguredUrl(Properties metadata) {
+        return configuration.getUrl().toString().equals(metadata.getProperty("url"));
+    }
+
+    private boolean isFresh(Properties metadata) {
+        long age = System.currentTimeMillis() - Long.parseLong(metadata.getProperty("fetched", "0"));
+        return age >= 0 && age < configuration.getSnapshotTtlSeconds() * 1000L;
+    }
+
+    /**
+     * Downloads the stacks descriptor if it has changed since the snapshot was taken
+     *
+     * @return the BOMs from the new descriptor or null if it hasn't changed
+     * @throws IOException
+     */
+    private List<BomVersion> refresh(File directory, Properties metadata) throws IOException {
+        URL url = configuration.getUrl();
+        URLConnection connection = openConnection(url);
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        if (url.toString().equals(metadata.getProperty("url"))) {
+            if (metadata.getProperty("etag") != null) {
+                connection.setRequestProperty("If-None-Match", metadata.getProperty("etag"));
+            }
+            if (metadata.getProperty("lastModified") != null) {
+                connection.setRequestProperty("If-Modified-Since", metadata.getProperty("lastModified"));
+            }
+        }
+        if (connection instanceof HttpURLConnection) {
+            int status = ((HttpURLConnection) connection).getResponseCode();
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                messages.showDebugMessage("Stacks descriptor not modified since the last snapshot");
+                metadata.setProperty("fetched", String.valueOf(System.currentTimeMillis()));
+                writeMetadata(directory, metadata);
+                return null;
+            }
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + status + " from " + url);
+            }
+        }
+        byte[] descriptor = readFully(connection.getInputStream());
+        metrics.add("stacks.bytesDownloaded", descriptor.length);
+        // Only a descriptor that can be parsed is kept
+        Stacks stacks = new Parser().parse(new ByteArrayInputStream(descriptor));
+        List<BomVersion> boms = stacks.getAvailableBomVersions();
+
+        Properties newMetadata = new Properties();
+        newMetadata.setProperty("url", url.toString());
+        newMetadata.setProperty("fetched", String.valueOf(System.currentTimeMillis()));
+        if (connection.getHeaderField("ETag") != null) {
+            newMetadata.setProperty("etag", connection.getHeaderField("ETag"));
+        }
+        if (connection.getHeaderField("Last-Modified") != null) {
+            newMetadata.setProperty("lastModified", connection.getHeaderField("Last-Modified"));
+        }
+        try {
+            directory.mkdirs();
+            writeFile(new File(directory, STACKS_FILE), descriptor);
+            File bomsFile = new File(directory, BOMS_FILE);
+            writeBomVersions(bomsFile, boms);
+            // Written last, so it only describes a complete snapshot
+            newMetadata.setProperty("boms", new Fingerprint().addContents(bomsFile).digestHex());
+            writeMetadata(directory, newMetadata);
+        } catch (IOException e) {
+            messages.showWarnMessage("Can't write the stacks snapshot on " + directory + ": " + e.getMessage());
+        }
+        return boms;
+    }
+
+    private URLConnection openConnection(URL url) throws IOException {
+        if (configuration.getProxyHost() != null && !"file".equals(url.getProtocol())) {
+            java.net.Proxy proxy = new java.net.Proxy(java.net.Proxy.Type.HTTP, new InetSocketAddress(
+                    configuration.getProxyHost(), configuration.getProxyPort()));
+            URLConnection connection = url.openConnection(proxy);
+            if (configuration.getProxyUser() != null) {
+                String credentials = configuration.getProxyUser() + ":"
+                        + (configuration.getProxyPassword() == null ? "" : configuration.getProxyPassword());
+                connection.setRequestProperty("Proxy-Authorization",
+                        "Basic " + new String(Base64.encodeBase64(credentials.getBytes("UTF-8")), "US-ASCII"));
+            }
+            return connection;
+        }
+        return url.openConnection();
+    }
+
+    private Properties readMetadata(File directory) {
+        Properties metadata = new Properties();
+        File file = new File(directory, METADATA_FILE);
+        if (file.isFile()) {
+            try {
+                InputStream in = new FileInputStream(file);
+                try {
+                    metadata.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                messages.showDebugMessage("Ignoring unreadable " + file + ": " + e.getMessage());
+            }
+        }
+        return metadata;
+    }
+
+    private void writeMetadata(File directory, Properties metadata) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        metadata.store(out, "Stacks descriptor snapshot");
+        writeFile(new File(directory, METADATA_FILE), out.toByteArray());
+    }
+
+    /**
+     * @return the BOMs from the snapshot or null if there is no usable snapshot
+     */
+    private List<BomVersion> readBomVersions(File directory, Properties metadata) {
+        File file = new File(directory, BOMS_FILE);
+        if (!file.isFile() || metadata.getProperty("fetched") == null || !isConsistent(file, metadata)) {
+            return null;
+        }
+        try {
+            List<BomVersion> boms = new ArrayList<BomVersion>();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = line.split("\t", -1);
+                    Bom bom = new Bom();
+                    bom.setId(fields[2]);
+                    bom.setGroupId(fields[3]);
+                    bom.setArtifactId(fields[4]);
+                    bom.setRecommendedVersion(emptyToNull(fields[5]));
+                    bom.setName(emptyToNull(fields[6]));
+                    BomVersion bomVersion = new BomVersion();
+                    bomVersion.setId(fields[0]);
+                    bomVersion.setVersion(fields[1]);
+                    bomVersion.setBom(bom);
+                    boms.add(bomVersion);
+                }
+            } finally {
+                reader.close();
+            }
+            return boms;
+        } catch (Exception e) {
+            messages.showDebugMessage("Ignoring unreadable stacks snapshot " + file + ": " + e);
+            return null;
+        }
+    }
+
+    private void writeBomVersions(File file, List<BomVersion> boms) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Writer writer = new OutputStreamWriter(out, "UTF-8");
+        for (BomVersion bomVersion : boms) {
+            Bom bom = bomVersion.getBom();
+            writer.write(String.format("%s\t%s\t%s\t%s\t%s\t%s\t%s\n", nullToEmpty(bomVersion.getId()),
+                    bomVersion.getVersion(), nullToEmpty(bom.getId()), bom.getGroupId(), bom.getArtifactId(),
+                    nullToEmpty(bom.getRecommendedVersion()), nullToEmpty(bom.getName())));
+        }
+        writer.close();
+        writeFile(file, out.toByteArray());
+    }
+
+    /**
+     * Writes to a temporary file first so concurrent builds never read a partial snapshot
+     */
+    private static void writeFile(File file, byte[] content) throws IOException {
+        File tmpFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        OutputStream out = new FileOutputStream(tmpFile);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+        if (!tmpFile.renameTo(file)) {
+            file.delete();
+            if (!tmpFile.renameTo(file)) {
+                tmpFile.delete();
+                throw new IOException("Can't write " + file);
+            }
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ');
+    }
+
+    private static String emptyToNull(String value) {
+        return value.length() == 0 ? null : value;
+    }
+
+}
@@ -0,0 +1,200 @@
+package org.jboss.maven.plugins.util;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.PrintStream;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Logs to the standard error, so the standard output is left to the command line entry points (the daemon protocol
+ * and the batch checker)
+ *
+ */
+public class ConsoleLog implements Log {
+
+    private final PrintStream out = System.err;
+
+    private final boolean debug;
+
+    /**
+     * @param debug logs the debug messages too
+     */
+    public ConsoleLog(boolean debug) {
+        this.debug = debug;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.maven.plugin.logging.Log#isDebugEnabled()
+     */
+    public boolean isDebugEnabled() {
+        return debug;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.maven.plugin.logging.Log#debug(java.lang.CharSequence)
+     */
+    public void debug(CharSequence content) {
+        debug(content, null);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.maven.plugin.logging.Log#debug(java.lang.CharSequence, java.lang.Throwable)
+     */
+    public void debug(CharSequence content, Throwable error) {
+        if (debug) {
+            print("DEBUG", content, error);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.maven.plugin.logging.Log#debug(java.lang.Throwable)
+     */
+    public void debug(Throwable error) {
+        debug(null, error);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.maven.plugin.logging.Log#isInfoEnabled()
+     */
+    public boolean isInfoEnabled() {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.maven.plugin.logging.Log#info(java.lang.CharSequence)
+     */
+    public void info(CharSequence content) {
+        print("INFO", content, null);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.maven.plugin.logging.Log#info(java.lang.CharSequence, java.lang.Throwable)
+     */
+    public void info(CharSequence content, Throwable error) {
+        print("INFO", content, error);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.maven.plugin.logging.Log#info(java.lang.Throwable)
+     */
+    public void info(Throwable error) {
+        print("INFO", null, error);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.maven.plugin.logging.Log#isWarnEnabled()
+     */
+    public boolean isWarnEnabled() {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.maven.plugin.logging.Log#warn(java.lang.CharSequence)
+     */
+    public void warn(CharSequence content) {
+        print("WARNING", content, null);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.maven.plugin.logging.Log#warn(java.lang.CharSequence, java.lang.Throwable)
+     */
+    public void warn(CharSequence content, Throwable error) {
+        print("WARNING", content, error);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.maven.plugin.logging.Log#warn(java.lang.Throwable)
+     */
+    public void warn(Throwable error) {
+        print("WARNING", null, error);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.maven.plugin.logging.Log#isErrorEnabled()
+     */
+    public boolean isErrorEnabled() {
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.maven.plugin.logging.Log#error(java.lang.CharSequence)
+     */
+    public void error(CharSequence content) {
+        print("ERROR", content, null);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.maven.plugin.logging.Log#error(java.lang.CharSequence, java.lang.Throwable)
+     */
+    public void error(CharSequence content, Throwable error) {
+        print("ERROR", content, error);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see org.apache.maven.plugin.logging.Log#error(java.lang.Throwable)
+     */
+    public void error(Throwable error) {
+        print("ERROR", null, error);
+    }
+
+    private synchronized void print(String level, CharSequence content, Throwable error) {
+        out.println("[" + level + "] " + (content != null ? content : error));
+        if (error != null && debug) {
+            error.printStackTrace(out);
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+package org.jboss.maven.plugins.util;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-1 digest of strings and file contents, rendered as hex by {@link #digestHex()}. Nothing can be added once the
+ * digest is computed.
+ *
+ */
+public class Fingerprint {
+
+    private MessageDigest digest;
+
+    /**
+     * The digest, once computed
+     */
+    private String hex;
+
+    public Fingerprint() {
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Adds the given value, followed by a separator, to the fingerprint
+     *
+     * @param value may be null
+     * @return this fingerprint
+     */
+    public Fingerprint add(String value) {
+        try {
+            digest().update(String.valueOf(value).getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update((byte) 0);
+        return this;
+    }
+
+    /**
+     * Adds the contents of the given file to the fingerprint
+     *
+     * @param file
+     * @return this fingerprint
+     * @throws IOException
+     */
+    public Fingerprint addContents(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest().update(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        digest.update((byte) 0);
+        return this;
+    }
+
+    /**
+     * Adds the identity of the given file (its path, size and modification date) to the fingerprint, without reading
+     * it
+     *
+     * @param file
+     * @return this fingerprint
+     */
+    public Fingerprint addIdentity(File file) {
+        return add(file.getAbsolutePath()).add(String.valueOf(file.length())).add(String.valueOf(file.lastModified()));
+    }
+
+    /**
+     * Completes the fingerprint: nothing else can be added afterwards
+     *
+     * @return the hex encoded fingerprint
+     */
+    public String digestHex() {
+        if (hex == null) {
+            hex = toHex(digest.digest());
+        }
+        return hex;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        if (hex != null) {
+            return hex;
+        }
+        // Digests a copy, so the fingerprint can still be added to
+        try {
+            return toHex(((MessageDigest) digest.clone()).digest());
+        } catch (CloneNotSupportedException e) {
+            return "SHA-1 fingerprint in progress";
+        }
+    }
+
+    private MessageDigest digest() {
+        if (hex != null) {
+            throw new IllegalStateException("The fingerprint was already computed");
+        }
+        return digest;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param file
+     * @return the hex encoded fingerprint of the file contents
+     * @throws IOException
+     */
+    public static String of(File file) throws IOException {
+        return new Fingerprint().addContents(file).digestHex();
+    }
+
+}
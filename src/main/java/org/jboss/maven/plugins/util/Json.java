@@ -0,0 +1,187 @@
+package org.jboss.maven.plugins.util;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Helpers to write (and read back the flat objects written by this plugin) JSON without any JSON library
+ *
+ */
+public class Json {
+
+    private Json() {
+    }
+
+    /**
+     * @param value
+     * @return the value as a JSON string literal, or null
+     */
+    public static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                    sb.append('\\').append(c);
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Reads a flat JSON object: its values must be strings, numbers, booleans or null
+     *
+     * @param json
+     * @return the values by name, numbers and booleans as written
+     * @throws IllegalArgumentException if it isn't a flat JSON object
+     */
+    public static Map<String, String> parseObject(String json) {
+        Map<String, String> values = new LinkedHashMap<String, String>();
+        int[] pos = { skipSpaces(json, 0) };
+        expect(json, pos, '{');
+        if (peek(json, pos) == '}') {
+            return values;
+        }
+        do {
+            pos[0] = skipSpaces(json, pos[0]);
+            String name = parseString(json, pos);
+            expect(json, pos, ':');
+            pos[0] = skipSpaces(json, pos[0]);
+            if (peek(json, pos) == '"') {
+                values.put(name, parseString(json, pos));
+            } else {
+                int start = pos[0];
+                while (pos[0] < json.length() && ",} \t\r\n".indexOf(json.charAt(pos[0])) < 0) {
+                    pos[0]++;
+                }
+                String literal = json.substring(start, pos[0]);
+                if (literal.length() == 0) {
+                    throw new IllegalArgumentException("Unsupported JSON value at " + start + ": " + json);
+                }
+                values.put(name, "null".equals(literal) ? null : literal);
+            }
+        } while (next(json, pos) == ',');
+        if (json.charAt(pos[0] - 1) != '}') {
+            throw new IllegalArgumentException("Unterminated JSON object: " + json);
+        }
+        return values;
+    }
+
+    private static String parseString(String json, int[] pos) {
+        expect(json, pos, '"');
+        StringBuilder sb = new StringBuilder();
+        while (pos[0] < json.length()) {
+            char c = json.charAt(pos[0]++);
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c == '\\' && pos[0] < json.length()) {
+                c = json.charAt(pos[0]++);
+                switch (c) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'u':
+                        if (pos[0] + 4 > json.length()) {
+                            throw new IllegalArgumentException("Invalid JSON escape: " + json);
+                        }
+                        sb.append((char) Integer.parseInt(json.substring(pos[0], pos[0] + 4), 16));
+                        pos[0] += 4;
+                        break;
+                    default:
+                        sb.append(c);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        throw new IllegalArgumentException("Unterminated JSON string: " + json);
+    }
+
+    private static void expect(String json, int[] pos, char expected) {
+        if (next(json, pos) != expected) {
+            throw new IllegalArgumentException("Expected '" + expected + "' at " + (pos[0] - 1) + ": " + json);
+        }
+    }
+
+    /**
+     * @return the next char that isn't a space, consuming it
+     */
+    private static char next(String json, int[] pos) {
+        pos[0] = skipSpaces(json, pos[0]);
+        if (pos[0] >= json.length()) {
+            throw new IllegalArgumentException("Unexpected end of JSON: " + json);
+        }
+        return json.charAt(pos[0]++);
+    }
+
+    /**
+     * @return the next char that isn't a space, without consuming it
+     */
+    private static char peek(String json, int[] pos) {
+        pos[0] = skipSpaces(json, pos[0]);
+        return pos[0] < json.length() ? json.charAt(pos[0]) : 0;
+    }
+
+    private static int skipSpaces(String json, int pos) {
+        while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+}
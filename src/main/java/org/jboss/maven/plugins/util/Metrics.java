@@ -0,0 +1,144 @@
+package org.jboss.maven.plugins.util;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Named timers and counters of a check. Timers keep how many times they were recorded and their total time.
+ *
+ * Instances can be updated from many threads at the same time.
+ *
+ */
+public class Metrics {
+
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+
+    private final ConcurrentMap<String, AtomicLong[]> timers = new ConcurrentHashMap<String, AtomicLong[]>();
+
+    /**
+     * @param counter
+     */
+    public void increment(String counter) {
+        add(counter, 1);
+    }
+
+    /**
+     * @param counter
+     * @param delta
+     */
+    public void add(String counter, long delta) {
+        AtomicLong value = counters.get(counter);
+        if (value == null) {
+            AtomicLong existing = counters.putIfAbsent(counter, value = new AtomicLong());
+            if (existing != null) {
+                value = existing;
+            }
+        }
+        value.addAndGet(delta);
+    }
+
+    /**
+     * Records the time elapsed since start
+     *
+     * @param timer
+     * @param start the {@link System#nanoTime()} when the timed operation started
+     */
+    public void time(String timer, long start) {
+        long elapsed = System.nanoTime() - start;
+        AtomicLong[] value = timers.get(timer);
+        if (value == null) {
+            AtomicLong[] existing = timers.putIfAbsent(timer, value = new AtomicLong[] { new AtomicLong(),
+                    new AtomicLong() });
+            if (existing != null) {
+                value = existing;
+            }
+        }
+        value[0].incrementAndGet();
+        value[1].addAndGet(elapsed);
+    }
+
+    /**
+     * @param counter
+     * @return the current value of the counter
+     */
+    public long get(String counter) {
+        AtomicLong value = counters.get(counter);
+        return value == null ? 0 : value.get();
+    }
+
+    /**
+     * Renders the metrics as a JSON object. Names are sorted, so reports of different builds can be compared line by
+     * line.
+     *
+     * @param project the checked project (groupId:artifactId:version)
+     * @return the JSON text
+     */
+    public String toJson(String project) {
+        StringBuilder sb = new StringBuilder("{\n");
+        sb.append("  \"project\": ").append(Json.quote(project)).append(",\n");
+        sb.append("  \"timers\": {");
+        String separator = "\n";
+        for (Entry<String, AtomicLong[]> timer : new TreeMap<String, AtomicLong[]>(timers).entrySet()) {
+            sb.append(separator).append("    ").append(Json.quote(timer.getKey())).append(": { \"count\": ")
+                    .append(timer.getValue()[0].get()).append(", \"totalNanos\": ").append(timer.getValue()[1].get())
+                    .append(" }");
+            separator = ",\n";
+        }
+        sb.append(timers.isEmpty() ? "},\n" : "\n  },\n");
+        sb.append("  \"counters\": {");
+        separator = "\n";
+        for (Entry<String, AtomicLong> counter : new TreeMap<String, AtomicLong>(counters).entrySet()) {
+            sb.append(separator).append("    ").append(Json.quote(counter.getKey())).append(": ")
+                    .append(counter.getValue().get());
+            separator = ",\n";
+        }
+        sb.append(counters.isEmpty() ? "}\n" : "\n  }\n");
+        return sb.append("}\n").toString();
+    }
+
+    /**
+     * @param file
+     * @param project the checked project (groupId:artifactId:version)
+     * @throws IOException
+     */
+    public void writeJson(File file, String project) throws IOException {
+        file.getParentFile().mkdirs();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(toJson(project));
+        } finally {
+            writer.close();
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+package org.jboss.maven.plugins;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Stores and replays check results with {@link CheckResultCache}
+ *
+ */
+public class CheckResultCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replaysTheStoredResult() throws Exception {
+        CheckResultCache cache = new CheckResultCache(new File(folder.getRoot(), CheckResultCache.STATE_FILE),
+                new SystemStreamLog());
+        Map<Dependency, List<Issue>> result = new LinkedHashMap<Dependency, List<Issue>>();
+        result.put(dependency("1.0.0.Final"), Arrays.asList(new Issue(IssueType.RED_HAT_RELEASE, "not a release"),
+                new Issue("custom", "custom issue")));
+        result.put(dependency(null), Collections.singletonList(new Issue(IssueType.BOM, "managed by a BOM")));
+        cache.store("fingerprint", result);
+
+        Iterator<Entry<Dependency, List<Issue>>> replayed = cache.load("fingerprint").entrySet().iterator();
+        Entry<Dependency, List<Issue>> entry = replayed.next();
+        assertEquals("org.jboss.logging:jboss-logging:jar:1.0.0.Final", entry.getKey().getManagementKey() + ":"
+                + entry.getKey().getVersion());
+        assertEquals(2, entry.getValue().size());
+        assertEquals(IssueType.RED_HAT_RELEASE, entry.getValue().get(0).getType());
+        assertEquals("custom", entry.getValue().get(1).getId());
+        assertEquals("custom issue", entry.getValue().get(1).getMessage());
+        entry = replayed.next();
+        assertNull(entry.getKey().getVersion());
+        assertEquals(IssueType.BOM, entry.getValue().get(0).getType());
+    }
+
+    @Test
+    public void ignoresAnotherFingerprint() throws Exception {
+        CheckResultCache cache = new CheckResultCache(new File(folder.getRoot(), CheckResultCache.STATE_FILE),
+                new SystemStreamLog());
+        assertNull(cache.load("fingerprint"));
+        cache.store("fingerprint", new LinkedHashMap<Dependency, List<Issue>>());
+        assertEquals(0, cache.load("fingerprint").size());
+        assertNull(cache.load("other fingerprint"));
+    }
+
+    private static Dependency dependency(String version) {
+        Dependency dependency = new Dependency();
+        dependency.setGroupId("org.jboss.logging");
+        dependency.setArtifactId("jboss-logging");
+        dependency.setVersion(version);
+        return dependency;
+    }
+
+}
@@ -0,0 +1,172 @@
+package org.jboss.maven.plugins;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.maven.model.Dependency;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Compares and updates the findings of modules sharing a {@link FindingsBaseline}
+ *
+ */
+public class FindingsBaselineTest {
+
+    private static final String MODULE = "org.example:app";
+
+    private static final String OTHER_MODULE = "org.example:app-ear";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FindingsBaseline baseline;
+
+    @Before
+    public void setUp() throws IOException {
+        baseline = new FindingsBaseline(new File(folder.getRoot(), "baseline.txt"));
+        write("# dependency-checker baseline: <module> <dependency> <issue id>",
+                MODULE + " javax.servlet:servlet-api redHatRelease",
+                MODULE + " javax.servlet:servlet-api relocation",
+                MODULE + " junit:junit bom",
+                "",
+                OTHER_MODULE + " junit:junit redHatRelease");
+    }
+
+    @Test
+    public void findsOnlyTheNewFindings() throws IOException {
+        FindingsBaseline.Diff diff = baseline.diff(MODULE, findings(MODULE + " javax.servlet:servlet-api relocation",
+                MODULE + " commons-logging:commons-logging redHatRelease", MODULE + " junit:junit bom"));
+        assertEquals(Arrays.asList(MODULE + " commons-logging:commons-logging redHatRelease"), diff.getNewFindings());
+        assertEquals(1, diff.getFixed());
+    }
+
+    @Test
+    public void acceptsTheUnchangedFindings() throws IOException {
+        FindingsBaseline.Diff diff = baseline.diff(MODULE, new TreeSet<String>(baseline.read(MODULE)));
+        assertTrue(diff.getNewFindings().isEmpty());
+        assertEquals(0, diff.getFixed());
+        // The findings of another module aren't mixed with the ones of the module
+        diff = baseline.diff(OTHER_MODULE, findings(OTHER_MODULE + " junit:junit redHatRelease"));
+        assertTrue(diff.getNewFindings().isEmpty());
+        assertEquals(0, diff.getFixed());
+    }
+
+    @Test
+    public void countsTheFixedFindings() throws IOException {
+        FindingsBaseline.Diff diff = baseline.diff(MODULE, new TreeSet<String>());
+        assertTrue(diff.getNewFindings().isEmpty());
+        assertEquals(3, diff.getFixed());
+    }
+
+    @Test
+    public void reportsEveryFindingWithoutBaseline() throws IOException {
+        FindingsBaseline missing = new FindingsBaseline(new File(folder.getRoot(), "missing.txt"));
+        assertFalse(missing.exists());
+        FindingsBaseline.Diff diff = missing.diff(MODULE, findings(MODULE + " junit:junit bom"));
+        assertEquals(Arrays.asList(MODULE + " junit:junit bom"), diff.getNewFindings());
+        assertEquals(0, diff.getFixed());
+    }
+
+    @Test
+    public void updatesOnlyTheFindingsOfTheModule() throws IOException {
+        baseline.update(MODULE, findings(MODULE + " commons-logging:commons-logging redHatRelease"));
+        assertEquals(Arrays.asList(MODULE + " commons-logging:commons-logging redHatRelease"), baseline.read(MODULE));
+        assertEquals(Arrays.asList(OTHER_MODULE + " junit:junit redHatRelease"), baseline.read(OTHER_MODULE));
+        baseline.update("org.example:a", findings("org.example:a junit:junit bom"));
+        assertEquals(Arrays.asList("org.example:a junit:junit bom"), baseline.read("org.example:a"));
+        assertEquals(1, baseline.read(MODULE).size());
+        assertFalse(new File(folder.getRoot(), "baseline.txt.tmp").exists());
+    }
+
+    @Test
+    public void rejectsAnUnsortedBaseline() throws IOException {
+        write(MODULE + " junit:junit bom", MODULE + " javax.servlet:servlet-api relocation");
+        try {
+            baseline.diff(MODULE, findings(MODULE + " junit:junit bom"));
+            fail("An unsorted baseline can't be merged");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("isn't sorted"));
+        }
+        try {
+            baseline.read(MODULE);
+            fail("An unsorted baseline can't be merged");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("isn't sorted"));
+        }
+    }
+
+    @Test
+    public void ignoresTheVersions() {
+        Map<Dependency, List<Issue>> result = new LinkedHashMap<Dependency, List<Issue>>();
+        result.put(dependency("junit", "junit", "4.10"), Arrays.asList(new Issue(IssueType.BOM, "bom"), new Issue(
+                IssueType.RED_HAT_RELEASE, "release")));
+        result.put(dependency("javax.servlet", "servlet-api", "2.5"), Collections.singletonList(new Issue("custom",
+                "custom")));
+        assertEquals(findings(MODULE + " javax.servlet:servlet-api custom", MODULE + " junit:junit bom", MODULE
+                + " junit:junit redHatRelease"), FindingsBaseline.findings(MODULE, result));
+    }
+
+    private void write(String... lines) throws IOException {
+        Writer out = new OutputStreamWriter(new FileOutputStream(baseline.getFile()), "UTF-8");
+        try {
+            for (String line : lines) {
+                out.write(line);
+                out.write('\n');
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static SortedSet<String> findings(String... findings) {
+        return new TreeSet<String>(Arrays.asList(findings));
+    }
+
+    private static Dependency dependency(String groupId, String artifactId, String version) {
+        Dependency dependency = new Dependency();
+        dependency.setGroupId(groupId);
+        dependency.setArtifactId(artifactId);
+        dependency.setVersion(version);
+        return dependency;
+    }
+
+}
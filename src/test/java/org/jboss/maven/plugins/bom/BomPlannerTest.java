@@ -0,0 +1,139 @@
+package org.jboss.maven.plugins.bom;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.jdf.stacks.model.Bom;
+import org.jboss.jdf.stacks.model.BomVersion;
+import org.jboss.maven.plugins.dependency.MavenDependency;
+import org.junit.Test;
+
+/**
+ * Plans the BOMs of a project over a small hand-made {@link BomIndex}
+ *
+ */
+public class BomPlannerTest {
+
+    private static final MavenDependency SERVLET = new MavenDependency("org.jboss.spec.javax.servlet",
+            "jboss-servlet-api_3.0_spec");
+
+    private static final MavenDependency EJB = new MavenDependency("org.jboss.spec.javax.ejb",
+            "jboss-ejb-api_3.1_spec");
+
+    private static final MavenDependency JSF = new MavenDependency("org.jboss.spec.javax.faces",
+            "jboss-jsf-api_2.1_spec");
+
+    /**
+     * Only managed by the older version of the BOM
+     */
+    private static final MavenDependency DROPPED = new MavenDependency("org.richfaces.ui", "richfaces-components-ui");
+
+    @Test
+    public void picksTheBomCoveringMostDependencies() {
+        BomIndex index = new BomIndex.Builder(Arrays.asList(bom("javaee", "1.0.4"), bom("tools", "1.0.4")))
+                .add(SERVLET.getGroupId(), SERVLET.getArtifactId(), 0, "1.0.1.Final")
+                .add(EJB.getGroupId(), EJB.getArtifactId(), 0, "1.0.2.Final")
+                .add(SERVLET.getGroupId(), SERVLET.getArtifactId(), 1, "1.0.1.Final").build();
+        BomPlan plan = new BomPlanner(index).plan(declared(SERVLET, "1.0.1.Final", EJB, "1.0.0.Final"));
+        assertEquals(1, plan.getSuggestions().size());
+        BomPlan.Suggestion suggestion = plan.getSuggestions().get(0);
+        assertEquals("javaee", suggestion.getBomVersion().getBom().getArtifactId());
+        assertEquals(2, suggestion.getCovered());
+        assertEquals(1, suggestion.getSameVersion());
+        assertEquals("1.0.2.Final", plan.getManagedVersion(EJB));
+    }
+
+    @Test
+    public void neverProposesTwoVersionsOfTheSameBom() {
+        BomIndex index = new BomIndex.Builder(Arrays.asList(bom("javaee", "1.0.4"), bom("javaee", "1.0.0")))
+                .add(SERVLET.getGroupId(), SERVLET.getArtifactId(), 0, "1.0.1.Final")
+                .add(EJB.getGroupId(), EJB.getArtifactId(), 0, "1.0.2.Final")
+                .add(SERVLET.getGroupId(), SERVLET.getArtifactId(), 1, "1.0.0.Final")
+                .add(DROPPED.getGroupId(), DROPPED.getArtifactId(), 1, "4.2.0.Final").build();
+        BomPlan plan = new BomPlanner(index).plan(declared(SERVLET, "1.0.1.Final", EJB, "1.0.2.Final", DROPPED,
+                "4.2.0.Final"));
+        assertEquals(1, plan.getSuggestions().size());
+        assertEquals("1.0.4", plan.getSuggestions().get(0).getBomVersion().getVersion());
+        assertNull(plan.getSuggestion(DROPPED));
+        assertNull(plan.getManagedVersion(DROPPED));
+    }
+
+    @Test
+    public void coversWhatTheOtherVersionsDroppedWithAnotherBom() {
+        BomIndex index = new BomIndex.Builder(Arrays.asList(bom("javaee", "1.0.4"), bom("javaee", "1.0.0"),
+                bom("richfaces", "1.0.4")))
+                .add(SERVLET.getGroupId(), SERVLET.getArtifactId(), 0, "1.0.1.Final")
+                .add(EJB.getGroupId(), EJB.getArtifactId(), 0, "1.0.2.Final")
+                .add(JSF.getGroupId(), JSF.getArtifactId(), 0, "2.0.2.Final")
+                .add(SERVLET.getGroupId(), SERVLET.getArtifactId(), 1, "1.0.0.Final")
+                .add(DROPPED.getGroupId(), DROPPED.getArtifactId(), 1, "4.2.0.Final")
+                .add(DROPPED.getGroupId(), DROPPED.getArtifactId(), 2, "4.2.3.Final").build();
+        BomPlan plan = new BomPlanner(index).plan(declared(SERVLET, "1.0.1.Final", EJB, "1.0.2.Final", JSF,
+                "2.0.2.Final", DROPPED, "4.2.0.Final"));
+        List<BomPlan.Suggestion> suggestions = plan.getSuggestions();
+        assertEquals(2, suggestions.size());
+        assertEquals("javaee:1.0.4", key(suggestions.get(0).getBomVersion()));
+        assertEquals("richfaces:1.0.4", key(suggestions.get(1).getBomVersion()));
+        assertEquals("4.2.3.Final", plan.getManagedVersion(DROPPED));
+    }
+
+    @Test
+    public void alignsVersionsOnTheirLeadingParts() {
+        assertEquals(1, BomPlanner.alignment("1.2.3", "1.2.3"), 0);
+        assertEquals(0, BomPlanner.alignment(null, "1.2.3"), 0);
+        assertTrue(BomPlanner.alignment("1.2.3", "1.2.4") > BomPlanner.alignment("1.2.3", "1.3.0"));
+    }
+
+    private static String key(BomVersion bomVersion) {
+        return bomVersion.getBom().getArtifactId() + ":" + bomVersion.getVersion();
+    }
+
+    private static Map<MavenDependency, String> declared(Object... dependenciesAndVersions) {
+        Map<MavenDependency, String> declared = new LinkedHashMap<MavenDependency, String>();
+        for (int i = 0; i < dependenciesAndVersions.length; i += 2) {
+            declared.put((MavenDependency) dependenciesAndVersions[i], (String) dependenciesAndVersions[i + 1]);
+        }
+        return declared;
+    }
+
+    private static BomVersion bom(String artifactId, String version) {
+        Bom bom = new Bom();
+        bom.setId(artifactId);
+        bom.setGroupId("org.jboss.bom");
+        bom.setArtifactId(artifactId);
+        BomVersion bomVersion = new BomVersion();
+        bomVersion.setId(artifactId + "-" + version);
+        bomVersion.setBom(bom);
+        bomVersion.setVersion(version);
+        return bomVersion;
+    }
+
+}
@@ -0,0 +1,209 @@
+package org.jboss.maven.plugins.check;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.maven.plugins.bom.LocalRepositoryPomResolver;
+import org.jboss.maven.plugins.bom.PomResolver;
+import org.jboss.maven.plugins.util.Metrics;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Runs {@link SuggestionAvailability} against a local repository on a temporary directory
+ *
+ */
+public class SuggestionAvailabilityTest {
+
+    private static final String AVAILABLE = "org.jboss.spec:jboss-javaee-6.0:3.0.2.Final-redhat-4";
+
+    private static final String MISSING = "org.jboss.spec:jboss-javaee-6.0:9.9.9.Final-redhat-1";
+
+    private static final String UNRESOLVABLE = "org.broken:broken:1.0.0.redhat-1";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private CountingPomResolver pomResolver;
+
+    @Before
+    public void createRepository() throws IOException {
+        File repository = temporaryFolder.newFolder("repository");
+        File pom = new LocalRepositoryPomResolver(repository).resolvePom("org.jboss.spec", "jboss-javaee-6.0",
+                "3.0.2.Final-redhat-4");
+        pom.getParentFile().mkdirs();
+        pom.createNewFile();
+        pomResolver = new CountingPomResolver(new LocalRepositoryPomResolver(repository));
+    }
+
+    @Test
+    public void aCoordinateWithItsPomOnTheRepositoryIsAvailable() {
+        SuggestionAvailability availability = new SuggestionAvailability(pomResolver, 1);
+
+        assertEquals(Boolean.TRUE, availability.isAvailable(AVAILABLE));
+        assertEquals(" [available]", availability.describe(AVAILABLE));
+    }
+
+    @Test
+    public void aCoordinateWithoutItsPomIsUnavailable() {
+        SuggestionAvailability availability = new SuggestionAvailability(pomResolver, 1);
+
+        assertEquals(Boolean.FALSE, availability.isAvailable(MISSING));
+        assertEquals(" [unavailable on the configured repositories]", availability.describe(MISSING));
+    }
+
+    @Test
+    public void aCoordinateThatCanNotBeResolvedIsUnavailable() {
+        SuggestionAvailability availability = new SuggestionAvailability(pomResolver, 1);
+
+        assertEquals(Boolean.FALSE, availability.isAvailable(UNRESOLVABLE));
+        assertEquals(Boolean.FALSE, availability.isAvailable("org.jboss.spec:jboss-javaee-6.0"));
+        assertEquals(1, pomResolver.resolutions());
+    }
+
+    @Test
+    public void prefetchResolvesEachCoordinateOnce() throws Exception {
+        SuggestionAvailability availability = new SuggestionAvailability(pomResolver, 4);
+        Metrics metrics = new Metrics();
+
+        availability.prefetch(Arrays.asList(AVAILABLE, MISSING, AVAILABLE, UNRESOLVABLE, MISSING), metrics);
+        assertEquals(3, metrics.get("suggestions.resolved"));
+        assertEquals(2, metrics.get("suggestions.unavailable"));
+
+        // Already known: neither the checks nor the next module resolve them again
+        assertTrue(availability.isAvailable(AVAILABLE));
+        assertFalse(availability.isAvailable(MISSING));
+        availability.prefetch(Arrays.asList(AVAILABLE, MISSING), metrics);
+        assertEquals(3, metrics.get("suggestions.resolved"));
+        assertEquals(3, pomResolver.resolutions());
+    }
+
+    @Test
+    public void prefetchResolvesTheCoordinatesInParallel() throws Exception {
+        final CyclicBarrier allResolving = new CyclicBarrier(4);
+        final Map<Thread, Boolean> threads = new ConcurrentHashMap<Thread, Boolean>();
+        SuggestionAvailability availability = new SuggestionAvailability(new PomResolver() {
+
+            public File resolvePom(String groupId, String artifactId, String version) {
+                threads.put(Thread.currentThread(), Boolean.TRUE);
+                try {
+                    // Only passes if the 4 coordinates are being resolved at the same time
+                    allResolving.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return pomResolver.resolvePom(groupId, artifactId, version);
+            }
+        }, 4);
+        List<String> coordinates = new ArrayList<String>();
+        for (int i = 0; i < 4; i++) {
+            coordinates.add("org.jboss.spec:jboss-javaee-6.0:3.0." + i + ".Final-redhat-1");
+        }
+
+        availability.prefetch(coordinates, new Metrics());
+        assertEquals(0, allResolving.getNumberWaiting());
+        assertFalse(allResolving.isBroken());
+        assertEquals(4, threads.size());
+        for (Thread thread : threads.keySet()) {
+            assertEquals("dependency-checker-suggestion-resolver", thread.getName());
+        }
+    }
+
+    @Test
+    public void threadsAskingForTheSameCoordinateShareOneResolution() throws Exception {
+        final SuggestionAvailability availability = new SuggestionAvailability(pomResolver, 1);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger available = new AtomicInteger();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(new Runnable() {
+
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (availability.isAvailable(AVAILABLE)) {
+                        available.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(8, available.get());
+        assertEquals(1, pomResolver.resolutions());
+    }
+
+    /**
+     * Counts the resolutions and fails the ones of {@link SuggestionAvailabilityTest#UNRESOLVABLE}, like a repository
+     * that can't be reached
+     */
+    private static class CountingPomResolver implements PomResolver {
+
+        private final PomResolver pomResolver;
+
+        private final AtomicInteger resolutions = new AtomicInteger();
+
+        CountingPomResolver(PomResolver pomResolver) {
+            this.pomResolver = pomResolver;
+        }
+
+        public File resolvePom(String groupId, String artifactId, String version) {
+            resolutions.incrementAndGet();
+            if (UNRESOLVABLE.equals(groupId + ":" + artifactId + ":" + version)) {
+                throw new IllegalStateException("Can't reach the repository");
+            }
+            return pomResolver.resolvePom(groupId, artifactId, version);
+        }
+
+        int resolutions() {
+            return resolutions.get();
+        }
+
+    }
+
+}
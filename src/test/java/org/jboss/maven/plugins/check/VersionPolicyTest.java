@@ -0,0 +1,113 @@
+package org.jboss.maven.plugins.check;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Checks the vendor suffix and qualifier scan of {@link VersionPolicy} and its allowed versions
+ *
+ */
+public class VersionPolicyTest {
+
+    private static final List<String> NO_ALLOWED_VERSIONS = Collections.emptyList();
+
+    @Test
+    public void acceptsBuildNumbersOfAnyLength() {
+        assertNull(check(VersionPolicy.RED_HAT, "1.0.0.Final-redhat-1"));
+        assertNull(check(VersionPolicy.RED_HAT, "1.0.0.Final-redhat-10"));
+        assertNull(check(VersionPolicy.RED_HAT, "1.0.0.redhat-1"));
+        assertNull(check(VersionPolicy.RED_HAT, "1.0.0.redhat-00001"));
+        assertNull(check(VersionPolicy.RED_HAT, "1.0.0-redhat-1"));
+    }
+
+    @Test
+    public void rejectsVersionsWithoutSuffix() {
+        assertNotNull(check(VersionPolicy.RED_HAT, "1.0.0.Final"));
+        assertNotNull(check(VersionPolicy.RED_HAT, "1.0.0.Final-redhat"));
+        assertNotNull(check(VersionPolicy.RED_HAT, "1.0.0.Final-redhat-"));
+        assertNotNull(check(VersionPolicy.RED_HAT, "1.0.0.Final-redhat.1"));
+        assertNotNull(check(VersionPolicy.RED_HAT, "1.0.0.Final-redhatx-1"));
+        assertNotNull(check(VersionPolicy.RED_HAT, "1.0.0.Final-eap-1"));
+        assertNotNull(check(VersionPolicy.RED_HAT, "redhat-1"));
+        assertNull(check(VersionPolicy.RED_HAT, null));
+    }
+
+    @Test
+    public void matchesVendorsIgnoringCase() {
+        VersionPolicy policy = VersionPolicy.compile("redhat,eap", "", NO_ALLOWED_VERSIONS);
+        assertNull(check(policy, "1.0.0.Final-REDHAT-1"));
+        assertNull(check(policy, "1.0.0.Final-eap-2"));
+        assertNotNull(check(policy, "1.0.0.Final-jdf-1"));
+    }
+
+    @Test
+    public void checksTheQualifier() {
+        VersionPolicy policy = VersionPolicy.compile("redhat", "Final,GA,SP", NO_ALLOWED_VERSIONS);
+        assertNull(check(policy, "1.0.0.Final-redhat-1"));
+        assertNull(check(policy, "1.0.0.final-redhat-1"));
+        assertNull(check(policy, "1.0.0.SP2-redhat-1"));
+        assertNull(check(policy, "1.0.0.GA.redhat-1"));
+        assertNull(check(policy, "1.0.0-redhat-1"));
+        assertEquals("The qualifier [CR1] isn't allowed on vendor releases. Allowed qualifiers: [Final, GA, SP]",
+                check(policy, "1.0.0.CR1-redhat-1"));
+        assertNotNull(check(policy, "1.0.0.Beta1x-redhat-1"));
+    }
+
+    @Test
+    public void allowsVersionRanges() {
+        VersionPolicy policy = VersionPolicy.compile("redhat", "",
+                Arrays.asList("org.slf4j:*:[1.7,1.8)", "org.jboss.logging:jboss-logging:3.1.0.GA"));
+        assertNull(policy.check("org.slf4j", "slf4j-api", "1.7.5"));
+        assertNotNull(policy.check("org.slf4j", "slf4j-api", "1.8.0"));
+        assertNotNull(policy.check("org.slf4j.ext", "slf4j-api", "1.7.5"));
+        assertNull(policy.check("org.jboss.logging", "jboss-logging", "3.1.0.GA"));
+        assertNotNull(policy.check("org.jboss.logging", "jboss-logging", "3.1.1.GA"));
+        assertNotNull(policy.check("org.jboss.logging", "jboss-logging", "2.0.0.GA"));
+        assertNotNull(policy.check("org.jboss.logging", "jboss-logging-processor", "3.1.0.GA"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedRanges() {
+        VersionPolicy.compile("redhat", "", Arrays.asList("org.slf4j:*:[1.7,1.8"));
+    }
+
+    @Test
+    public void sharesPoliciesWithTheSameRules() {
+        assertSame(VersionPolicy.compile("redhat", "Final", NO_ALLOWED_VERSIONS),
+                VersionPolicy.compile(" redhat", "Final,", NO_ALLOWED_VERSIONS));
+    }
+
+    private static String check(VersionPolicy policy, String version) {
+        return policy.check("org.jboss", "jboss-parent", version);
+    }
+
+}
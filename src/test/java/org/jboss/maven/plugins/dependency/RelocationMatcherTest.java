@@ -0,0 +1,133 @@
+package org.jboss.maven.plugins.dependency;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.jboss.maven.plugins.dependency.RelocationMatcher.Relocation;
+import org.junit.Test;
+
+/**
+ * Compares {@link RelocationMatcher} with the original check, which looped over the relocation table testing if the
+ * groupId or artifactId contained each key
+ *
+ */
+public class RelocationMatcherTest {
+
+    @Test
+    public void matchesLikeTheTableLoopOnTheBundledTable() throws Exception {
+        Properties table = new Properties();
+        InputStream in = getClass().getResourceAsStream("/mavenrelocated.properties");
+        try {
+            table.load(in);
+        } finally {
+            in.close();
+        }
+        Set<String> groupIds = new LinkedHashSet<String>(Arrays.asList("javax", "javax.x", "org.glassfish",
+                "org.jboss.spec", "junit"));
+        Set<String> artifactIds = new LinkedHashSet<String>(Arrays.asList("api", "servlet-api", "javax.el",
+                "jboss-servlet-api_3.0_spec", "javax.xml.ws-api", "junit"));
+        for (String key : table.stringPropertyNames()) {
+            groupIds.add(key);
+            groupIds.add(key + ".api");
+            groupIds.add("org." + key);
+            artifactIds.add(key);
+            artifactIds.add(key + "-api");
+            artifactIds.add(key.substring(key.indexOf('.') + 1) + "-api");
+            for (String proposed : table.getProperty(key).split("[|]")) {
+                groupIds.add(proposed.split(":")[0]);
+                artifactIds.add(proposed.split(":")[1]);
+            }
+        }
+        assertSameMatches(table, groupIds, artifactIds);
+    }
+
+    @Test
+    public void matchesLikeTheTableLoopWithOverlappingKeys() {
+        Properties table = new Properties();
+        table.setProperty("javax", "org.jboss.spec:jboss-javaee-6.0:3.0.2.Final");
+        table.setProperty("javax.servlet", "org.jboss.spec.javax.servlet:jboss-servlet-api_3.0_spec:1.0.1.Final");
+        table.setProperty("servlet", "org.apache.tomcat:tomcat-servlet-api:7.0.30");
+        table.setProperty("servlet-api", "org.jboss.spec.javax.servlet:jboss-servlet-api_3.0_spec:1.0.1.Final");
+        table.setProperty("api", "org.example:api:1.0|org.example.x:api:1.0");
+        table.setProperty("x.s", "org.example:xs:1.0");
+        table.setProperty("ss", "org.example:ss:1.0");
+        table.setProperty("a", "a:a:1.0");
+        List<String> values = Arrays.asList("javax", "javax.servlet", "javax.servlet.jsp", "servlet-api", "servlet",
+                "jsp-api", "org.example", "org.example.x", "a", "class", "xss", "tomcat-servlet-api",
+                "org.apache.tomcat", "jboss-servlet-api_3.0_spec", "org.jboss.spec.javax.servlet", "");
+        assertSameMatches(table, values, values);
+    }
+
+    @Test
+    public void skipsDependenciesAlreadyRelocated() {
+        Properties table = new Properties();
+        table.setProperty("javax.servlet", "org.jboss.spec.javax.servlet:jboss-servlet-api_3.0_spec:1.0.1.Final");
+        RelocationMatcher matcher = RelocationMatcher.compile(table);
+        assertEquals(Arrays.asList("javax.servlet"), keys(matcher.match("org.glassfish", "javax.servlet-api")));
+        // The proposed groupId contains the relocated one
+        assertTrue(matcher.match("javax.servlet", "servlet-api").isEmpty());
+        assertTrue(matcher.match("org.jboss.spec.javax.servlet", "jboss-servlet-api_3.0_spec").isEmpty());
+    }
+
+    private static void assertSameMatches(Properties table, Iterable<String> groupIds, Iterable<String> artifactIds) {
+        RelocationMatcher matcher = RelocationMatcher.compile(table);
+        for (String groupId : groupIds) {
+            for (String artifactId : artifactIds) {
+                assertEquals(groupId + ":" + artifactId, loop(table, groupId, artifactId),
+                        keys(matcher.match(groupId, artifactId)));
+            }
+        }
+    }
+
+    /**
+     * The original check, sorted like the matcher reports
+     */
+    private static List<String> loop(Properties table, String groupId, String artifactId) {
+        Set<String> keys = new TreeSet<String>();
+        for (String key : table.stringPropertyNames()) {
+            if ((groupId.contains(key) || artifactId.contains(key)) && !table.getProperty(key).contains(groupId)) {
+                keys.add(key);
+            }
+        }
+        return new ArrayList<String>(keys);
+    }
+
+    private static List<String> keys(List<Relocation> relocations) {
+        List<String> keys = new ArrayList<String>();
+        for (Relocation relocation : relocations) {
+            keys.add(relocation.getKey());
+        }
+        return keys;
+    }
+
+}
@@ -0,0 +1,149 @@
+package org.jboss.maven.plugins.fix;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Model;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.jboss.jdf.stacks.model.Bom;
+import org.jboss.jdf.stacks.model.BomVersion;
+import org.jboss.maven.plugins.CheckerResources;
+import org.jboss.maven.plugins.bom.BomIndex;
+import org.jboss.maven.plugins.check.VersionPolicy;
+import org.jboss.maven.plugins.dependency.DeclaredDependencies;
+import org.jboss.maven.plugins.dependency.ExclusionMatcher;
+import org.jboss.maven.plugins.dependency.RelocationMatcher;
+import org.jboss.maven.plugins.project.CheckedProject;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Plans the fix of a project with a small relocation table and a one BOM index, checking that only the changes
+ * that keep what the project resolves are planned
+ *
+ */
+public class PomFixerTest {
+
+    private static final String BOM = "org.jboss.bom:jboss-javaee-6.0-with-tools:1.0.4.Final-redhat-4";
+
+    private PomFixer fixer;
+
+    @Before
+    public void createFixer() throws MojoExecutionException {
+        Bom bom = new Bom();
+        bom.setId("jboss-javaee-6.0-with-tools");
+        bom.setGroupId("org.jboss.bom");
+        bom.setArtifactId("jboss-javaee-6.0-with-tools");
+        BomVersion bomVersion = new BomVersion();
+        bomVersion.setId("jboss-javaee-6.0-with-tools-1.0.4");
+        bomVersion.setBom(bom);
+        bomVersion.setVersion("1.0.4.Final-redhat-4");
+        BomIndex index = new BomIndex.Builder(Arrays.asList(bomVersion))
+                .add("org.hibernate", "hibernate-validator", 0, "4.2.0.Final")
+                .add("org.jboss.spec.javax.ejb", "jboss-ejb-api_3.1_spec", 0, "1.0.2.Final").build();
+        // The replacements live on other groupIds, so the matcher reports the relocated groupIds themselves
+        Properties relocatedDependencies = new Properties();
+        relocatedDependencies.setProperty("javax.annotation",
+                "org.jboss.spec.annotation:jboss-annotations-api_1.1_spec:1.0.1.Final");
+        relocatedDependencies.setProperty("javax.el", "org.jboss.spec.el:jboss-el-api_2.2_spec:1.0.1.Final");
+        relocatedDependencies.setProperty("javax.ws.rs", "org.jboss.spec.jaxrs:jboss-jaxrs-api_1.1_spec:1.0.1.Final");
+        relocatedDependencies.setProperty("javax.servlet",
+                "org.jboss.spec.servlet:jboss-servlet-api_2.5_spec:1.0.1.Final"
+                        + "|org.jboss.spec.servlet:jboss-servlet-api_3.0_spec:1.0.1.Final");
+        fixer = new PomFixer(new CheckerResources(RelocationMatcher.compile(relocatedDependencies), index), null, 1,
+                true, new SystemStreamLog());
+    }
+
+    @Test
+    public void removesOnlyVersionsEqualToTheManagedOne() throws MojoExecutionException {
+        FixPlan plan = fixer.plan(project(dependency("org.hibernate", "hibernate-validator",
+                "4.2.0.Final"), dependency("org.jboss.spec.javax.ejb", "jboss-ejb-api_3.1_spec", "1.0.0.Final")));
+        assertEquals(Arrays.asList(BOM), plan.getBomImports());
+        assertEquals("4.2.0.Final", plan.getManagedVersion("org.hibernate:hibernate-validator"));
+        assertFalse(plan.isManaged("org.jboss.spec.javax.ejb:jboss-ejb-api_3.1_spec"));
+        assertEquals(Arrays.asList("Kept the version 1.0.0.Final of org.jboss.spec.javax.ejb:jboss-ejb-api_3.1_spec: "
+                + BOM + " manages 1.0.2.Final"), plan.getNotes());
+    }
+
+    @Test
+    public void relocatesOnlyRelocatedGroupIds() throws MojoExecutionException {
+        FixPlan plan = fixer.plan(project(dependency("org.glassfish", "javax.el", "3.0.0"), dependency("javax.el",
+                "el-api", "2.2")));
+        assertNull(plan.getRelocation("org.glassfish:javax.el"));
+        assertEquals("org.jboss.spec.el:jboss-el-api_2.2_spec:1.0.1.Final", plan.getRelocation("javax.el:el-api"));
+        assertEquals(1, plan.getNotes().size());
+        assertTrue(plan.getNotes().get(0).endsWith(": its groupId isn't relocated"));
+    }
+
+    @Test
+    public void neverRelocatesToAnOlderSpecification() throws MojoExecutionException {
+        FixPlan plan = fixer.plan(project(dependency("javax.ws.rs", "javax.ws.rs-api", "2.1")));
+        assertNull(plan.getRelocation("javax.ws.rs:javax.ws.rs-api"));
+        assertTrue(plan.getNotes().get(0).endsWith(": it implements the older 1.1 specification"));
+    }
+
+    @Test
+    public void neverRelocatesTwoDependenciesToTheSameOne() throws MojoExecutionException {
+        FixPlan plan = fixer.plan(project(dependency("javax.annotation", "jsr250-api", "1.0"), dependency(
+                "javax.annotation", "javax.annotation-api", "1.1")));
+        assertEquals("org.jboss.spec.annotation:jboss-annotations-api_1.1_spec:1.0.1.Final",
+                plan.getRelocation("javax.annotation:jsr250-api"));
+        assertNull(plan.getRelocation("javax.annotation:javax.annotation-api"));
+        assertTrue(plan.getNotes().get(0).endsWith(": the replacement is already declared"));
+    }
+
+    @Test
+    public void leavesMultipleReplacementsForTheDeveloper() throws MojoExecutionException {
+        FixPlan plan = fixer.plan(project(dependency("javax.servlet", "servlet-api", "2.5")));
+        assertTrue(plan.isEmpty());
+    }
+
+    private static CheckedProject project(Dependency... dependencies) {
+        Model model = new Model();
+        model.setGroupId("org.example");
+        model.setArtifactId("example");
+        model.setVersion("1.0.0");
+        model.setDependencies(Arrays.asList(dependencies));
+        return new CheckedProject(model.getId(), model.getDependencies(), new DeclaredDependencies(model),
+                ExclusionMatcher.compile(Collections.<String> emptyList()), VersionPolicy.RED_HAT);
+    }
+
+    private static Dependency dependency(String groupId, String artifactId, String version) {
+        Dependency dependency = new Dependency();
+        dependency.setGroupId(groupId);
+        dependency.setArtifactId(artifactId);
+        dependency.setVersion(version);
+        return dependency;
+    }
+
+}
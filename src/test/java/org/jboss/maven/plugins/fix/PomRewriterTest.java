@@ -0,0 +1,181 @@
+package org.jboss.maven.plugins.fix;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Applies a {@link FixPlan} to the pom.xml files under fix/ on the test resources and compares the result, byte by
+ * byte, with the expected file next to each one
+ *
+ */
+public class PomRewriterTest {
+
+    private static final String BOM = "org.jboss.bom:jboss-javaee-6.0-with-tools:1.0.4.Final-redhat-4";
+
+    private static final String SERVLET_GROUP_ID = "org.jboss.spec.javax.servlet";
+
+    private static final String SERVLET_ARTIFACT_ID = "jboss-servlet-api_3.0_spec";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void keepsCommentsAndCdata() throws IOException {
+        PomRewriter rewriter = assertRewritten("comments-cdata", bomPlan());
+        assertEquals(1, rewriter.getBomImportsAdded());
+        assertEquals(1, rewriter.getVersionsRemoved());
+    }
+
+    @Test
+    public void expandsSelfClosingDependencies() throws IOException {
+        PomRewriter rewriter = assertRewritten("self-closing", bomPlan());
+        assertEquals(1, rewriter.getBomImportsAdded());
+        assertEquals(1, rewriter.getVersionsRemoved());
+    }
+
+    @Test
+    public void addsMissingDependencyManagement() throws IOException {
+        PomRewriter rewriter = assertRewritten("missing-management", bomPlan());
+        assertEquals(1, rewriter.getBomImportsAdded());
+        assertEquals(1, rewriter.getVersionsRemoved());
+    }
+
+    @Test
+    public void keepsDependencyManagementOfProfiles() throws IOException {
+        PomRewriter rewriter = assertRewritten("profiles", bomPlan().addBomImport("org.jboss.bom:legacy-bom:1.0.0"));
+        // The import of the profile doesn't count as an import of the project
+        assertEquals(2, rewriter.getBomImportsAdded());
+        // Only the entry of the project: the profile dependency declares another version
+        assertEquals(1, rewriter.getVersionsRemoved());
+    }
+
+    @Test
+    public void removesOnlyTheManagedVersion() throws IOException {
+        PomRewriter rewriter = assertRewritten("managed-version", bomPlan().addManagedDependency(
+                "org.jboss.spec.javax.ejb", "jboss-ejb-api_3.1_spec", "1.0.2.Final").addManagedDependency(
+                "org.jboss.spec.javax.faces", "jboss-jsf-api_2.1_spec", "2.0.2.Final"));
+        // The literal managed version and the property, not the older literal version
+        assertEquals(2, rewriter.getVersionsRemoved());
+    }
+
+    @Test
+    public void keepsCrlfLineSeparators() throws IOException {
+        assertRewritten("crlf", bomPlan());
+    }
+
+    @Test
+    public void keepsDeclaredEncoding() throws IOException {
+        byte[] contents = read("latin1.xml");
+        assertEquals("ISO-8859-1", PomFixer.encodingOf(contents));
+        assertRewritten("latin1", bomPlan());
+    }
+
+    @Test
+    public void relocatesWithAndWithoutVersion() throws IOException {
+        FixPlan plan = new FixPlan().addRelocation("javax.servlet", "servlet-api",
+                "org.jboss.spec.javax.servlet:jboss-servlet-api_2.5_spec:1.0.1.Final").addRelocation(
+                "javax.annotation", "jsr250-api",
+                "org.jboss.spec.javax.annotation:jboss-annotations-api_1.1_spec:1.0.1.Final");
+        PomRewriter rewriter = assertRewritten("relocation", plan);
+        assertEquals(2, rewriter.getRelocated());
+    }
+
+    @Test
+    public void leavesUnplannedPomUnchanged() throws IOException {
+        byte[] contents = read("profiles.xml");
+        PomRewriter rewriter = new PomRewriter(new String(contents, "UTF-8"), new FixPlan());
+        assertEquals(new String(contents, "UTF-8"), rewriter.rewrite());
+        assertFalse(rewriter.isChanged());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedXml() {
+        new PomRewriter("<project><dependencies></project>", bomPlan()).rewrite();
+    }
+
+    @Test
+    public void replacesFileThroughTemporaryFile() throws IOException {
+        File pom = temporaryFolder.newFile("pom.xml");
+        byte[] contents = read("latin1-expected.xml");
+        PomFixer.writeFile(pom, contents);
+        assertArrayEquals(contents, read(pom));
+        assertFalse(new File(pom.getParentFile(), "pom.xml.tmp").exists());
+    }
+
+    private static FixPlan bomPlan() {
+        return new FixPlan().addBomImport(BOM).addManagedDependency(SERVLET_GROUP_ID, SERVLET_ARTIFACT_ID,
+                "1.0.1.Final");
+    }
+
+    /**
+     * Rewrites fix/name.xml on its declared encoding and compares it with fix/name-expected.xml
+     */
+    private static PomRewriter assertRewritten(String name, FixPlan plan) throws IOException {
+        byte[] contents = read(name + ".xml");
+        String encoding = PomFixer.encodingOf(contents);
+        PomRewriter rewriter = new PomRewriter(new String(contents, encoding), plan);
+        String fixed = rewriter.rewrite();
+        assertEquals(new String(read(name + "-expected.xml"), encoding), fixed);
+        assertArrayEquals(read(name + "-expected.xml"), fixed.getBytes(encoding));
+        return rewriter;
+    }
+
+    private static byte[] read(String resource) throws IOException {
+        InputStream in = PomRewriterTest.class.getResourceAsStream("/fix/" + resource);
+        if (in == null) {
+            throw new IOException("Missing test resource fix/" + resource);
+        }
+        return read(in);
+    }
+
+    private static byte[] read(File file) throws IOException {
+        return read(new FileInputStream(file));
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int count = in.read(buffer); count >= 0; count = in.read(buffer)) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+}
@@ -0,0 +1,267 @@
+package org.jboss.maven.plugins.stacks;
+
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2012, Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.jboss.jdf.stacks.model.BomVersion;
+import org.jboss.maven.plugins.util.Metrics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs {@link StacksSnapshot} against a stacks repository served by a local HTTP server
+ *
+ */
+public class StacksSnapshotTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HttpServer server;
+
+    private DescriptorHandler stacks;
+
+    private DescriptorHandler otherStacks;
+
+    private File snapshotDirectory;
+
+    private Metrics metrics;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stacks = new DescriptorHandler(descriptor("1.0.0.Final-redhat-1"), "\"v1\"");
+        otherStacks = new DescriptorHandler(descriptor("2.0.0.Final-redhat-1", "3.0.0.Final-redhat-1"), "\"other\"");
+        server.createContext("/stacks.yaml", stacks);
+        server.createContext("/other.yaml", otherStacks);
+        server.start();
+        snapshotDirectory = new File(temporaryFolder.getRoot(), "stacks");
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void downloadsTheDescriptorWhenThereIsNoSnapshot() throws Exception {
+        assertEquals(versions("1.0.0.Final-redhat-1"), versionsOf(snapshot("/stacks.yaml", 3600, true)));
+        assertEquals(1, metrics.get("stacks.downloaded"));
+        assertEquals(1, stacks.requests.get());
+    }
+
+    @Test
+    public void usesAFreshSnapshotWithoutAskingTheStacksRepository() throws Exception {
+        snapshot("/stacks.yaml", 3600, true).getAvailableBomVersions();
+
+        assertEquals(versions("1.0.0.Final-redhat-1"), versionsOf(snapshot("/stacks.yaml", 3600, true)));
+        assertEquals(1, metrics.get("stacks.fromSnapshot"));
+        assertEquals(1, stacks.requests.get());
+    }
+
+    @Test
+    public void keepsAnExpiredSnapshotThatWasNotModified() throws Exception {
+        snapshot("/stacks.yaml", 0, true).getAvailableBomVersions();
+
+        assertEquals(versions("1.0.0.Final-redhat-1"), versionsOf(snapshot("/stacks.yaml", 0, true)));
+        assertEquals(1, metrics.get("stacks.notModified"));
+        assertEquals(2, stacks.requests.get());
+        assertEquals("\"v1\"", stacks.lastIfNoneMatch);
+    }
+
+    @Test
+    public void replacesAnExpiredSnapshotThatWasModified() throws Exception {
+        snapshot("/stacks.yaml", 0, true).getAvailableBomVersions();
+        stacks.change(descriptor("1.0.0.Final-redhat-2"), "\"v2\"");
+
+        assertEquals(versions("1.0.0.Final-redhat-2"), versionsOf(snapshot("/stacks.yaml", 0, true)));
+        assertEquals(1, metrics.get("stacks.downloaded"));
+        // The new descriptor is kept
+        assertEquals(versions("1.0.0.Final-redhat-2"), versionsOf(snapshot("/stacks.yaml", 3600, true)));
+        assertEquals(2, stacks.requests.get());
+    }
+
+    @Test
+    public void ignoresASnapshotTakenFromAnotherUrl() throws Exception {
+        snapshot("/stacks.yaml", 3600, true).getAvailableBomVersions();
+
+        StacksSnapshot snapshot = snapshot("/other.yaml", 3600, true);
+        assertNull(snapshot.getFingerprint());
+        assertEquals(versions("2.0.0.Final-redhat-1", "3.0.0.Final-redhat-1"), versionsOf(snapshot));
+        assertEquals(0, metrics.get("stacks.fromSnapshot"));
+        assertEquals(1, metrics.get("stacks.downloaded"));
+        // The other URL doesn't get the conditional request of the first one
+        assertNull(otherStacks.lastIfNoneMatch);
+    }
+
+    @Test
+    public void usesAnExpiredSnapshotWhenOffline() throws Exception {
+        snapshot("/stacks.yaml", 3600, true).getAvailableBomVersions();
+
+        StacksSnapshot snapshot = snapshot("/stacks.yaml", 0, false);
+        assertNotNull(snapshot.getFingerprint());
+        assertEquals(versions("1.0.0.Final-redhat-1"), versionsOf(snapshot));
+        assertEquals(1, metrics.get("stacks.fromSnapshot"));
+        assertEquals(1, stacks.requests.get());
+    }
+
+    @Test
+    public void fallsBackToTheSnapshotWhenTheRefreshFails() throws Exception {
+        snapshot("/stacks.yaml", 3600, true).getAvailableBomVersions();
+        stacks.status = 500;
+
+        assertEquals(versions("1.0.0.Final-redhat-1"), versionsOf(snapshot("/stacks.yaml", 0, true)));
+        assertEquals(1, metrics.get("stacks.refreshFailures"));
+        assertEquals(1, metrics.get("stacks.fromSnapshot"));
+    }
+
+    @Test
+    public void ignoresABomListThatDoesNotMatchItsMetadata() throws Exception {
+        snapshot("/stacks.yaml", 3600, true).getAvailableBomVersions();
+        // Like a build that died after replacing the BOM list, but before the metadata
+        OutputStream out = new FileOutputStream(new File(snapshotDirectory, "boms.txt"), true);
+        out.write("x\t9.9\tx\tx\tx\t\t\n".getBytes("UTF-8"));
+        out.close();
+
+        StacksSnapshot snapshot = snapshot("/stacks.yaml", 3600, true);
+        assertNull(snapshot.getFingerprint());
+        assertEquals(versions("1.0.0.Final-redhat-1"), versionsOf(snapshot));
+        assertEquals(1, metrics.get("stacks.downloaded"));
+        assertEquals(2, stacks.requests.get());
+    }
+
+    private StacksSnapshot snapshot(String path, int ttlSeconds, boolean online) throws IOException {
+        MavenStacksConfiguration configuration = new MavenStacksConfiguration(null);
+        configuration.setUrl(new URL("http://127.0.0.1:" + server.getAddress().getPort() + path));
+        configuration.setOnline(online);
+        configuration.setSnapshotDirectory(snapshotDirectory);
+        configuration.setSnapshotTtlSeconds(ttlSeconds);
+        metrics = new Metrics();
+        return new StacksSnapshot(configuration, new MavenStacksMessages(new SystemStreamLog()), metrics);
+    }
+
+    private static List<String> versionsOf(StacksSnapshot snapshot) {
+        List<String> versions = new ArrayList<String>();
+        for (BomVersion bomVersion : snapshot.getAvailableBomVersions()) {
+            versions.add(bomVersion.getBom().getArtifactId() + ":" + bomVersion.getVersion());
+        }
+        return versions;
+    }
+
+    private static List<String> versions(String... versions) {
+        List<String> result = new ArrayList<String>();
+        for (String version : versions) {
+            result.add("jboss-javaee-6.0:" + version);
+        }
+        return result;
+    }
+
+    /**
+     * @return a stacks descriptor listing the given versions of a single BOM
+     */
+    private static byte[] descriptor(String... versions) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("availableBoms:\n");
+        sb.append(" - &jboss-javaee-6_0\n");
+        sb.append("   id: jboss-javaee-6_0\n");
+        sb.append("   name: Java EE 6\n");
+        sb.append("   groupId: org.jboss.spec\n");
+        sb.append("   artifactId: jboss-javaee-6.0\n");
+        sb.append("   recommendedVersion: ").append(versions[0]).append("\n");
+        sb.append("availableBomVersions:\n");
+        for (int i = 0; i < versions.length; i++) {
+            sb.append(" - &jboss-javaee-6_0-").append(i).append("\n");
+            sb.append("   id: jboss-javaee-6_0-").append(i).append("\n");
+            sb.append("   bom: *jboss-javaee-6_0\n");
+            sb.append("   version: ").append(versions[i]).append("\n");
+            sb.append("   labels: {}\n");
+        }
+        return sb.toString().getBytes("UTF-8");
+    }
+
+    /**
+     * Serves a stacks descriptor, answering conditional requests like a web server would
+     */
+    private static class DescriptorHandler implements HttpHandler {
+
+        private final AtomicInteger requests = new AtomicInteger();
+
+        private volatile byte[] descriptor;
+
+        private volatile String etag;
+
+        private volatile int status = 200;
+
+        private volatile String lastIfNoneMatch;
+
+        DescriptorHandler(byte[] descriptor, String etag) {
+            change(descriptor, etag);
+        }
+
+        void change(byte[] descriptor, String etag) {
+            this.descriptor = descriptor;
+            this.etag = etag;
+        }
+
+        public void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            lastIfNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            try {
+                if (status != 200) {
+                    exchange.sendResponseHeaders(status, -1);
+                } else if (etag.equals(lastIfNoneMatch)) {
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    exchange.getResponseHeaders().set("ETag", etag);
+                    exchange.sendResponseHeaders(200, descriptor.length);
+                    exchange.getResponseBody().write(descriptor);
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+
+    }
+
+}